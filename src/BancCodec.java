@@ -0,0 +1,100 @@
+import Communication.*;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Banc de mesure comparant la sérialisation Java et le codec binaire pour chaque type de message.
+ * Pour chaque type, affiche la taille du datagramme et le temps moyen d'encodage et de décodage (ns/op),
+ * mesurés après une phase de chauffe.
+ *
+ * Utilisation : {@code java BancCodec [iterations]}
+ */
+public class BancCodec {
+
+    private static final int CHAUFFE = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Map<String, Message> messages = exemples();
+
+        System.out.printf("%-18s %10s %10s %12s %12s %12s %12s%n",
+                "message", "java (o)", "bin (o)", "java enc", "bin enc", "java dec", "bin dec");
+        for (Map.Entry<String, Message> entree : messages.entrySet()) {
+            Message message = entree.getValue();
+            Mesure java = mesurer(CodecJava.INSTANCE, message, iterations);
+            Mesure binaire = mesurer(CodecBinaire.INSTANCE, message, iterations);
+            System.out.printf("%-18s %10d %10d %12.0f %12.0f %12.0f %12.0f%n",
+                    entree.getKey(), java.octets, binaire.octets,
+                    java.nsEncodage, binaire.nsEncodage, java.nsDecodage, binaire.nsDecodage);
+        }
+    }
+
+    private record Mesure(int octets, double nsEncodage, double nsDecodage) {
+    }
+
+    private static Mesure mesurer(CodecMessage codec, Message message, int iterations) throws Exception {
+        byte[] octets = codec.encoder(message);
+        long puits = 0; // Empêche l'élimination du code mesuré
+
+        for (int i = 0; i < CHAUFFE; i++) {
+            puits += codec.encoder(message).length;
+            puits += codec.decoder(ByteBuffer.wrap(octets)).hashCode();
+        }
+
+        long debut = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            puits += codec.encoder(message).length;
+        }
+        double encodage = (System.nanoTime() - debut) / (double) iterations;
+
+        debut = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            puits += codec.decoder(ByteBuffer.wrap(octets)).hashCode();
+        }
+        double decodage = (System.nanoTime() - debut) / (double) iterations;
+
+        if (puits == 42) {
+            System.out.print("");
+        }
+        return new Mesure(octets.length, encodage, decodage);
+    }
+
+    private static Map<String, Message> exemples() {
+        User user = new User(12, "alice@exemple.fr", "motdepasse");
+        Produit produit = new Produit("AB-123-CD", "Peugeot 308 SW, 2019, 45 000 km",
+                Montant.depuisUnites(12000), Montant.depuisUnites(12500), Montant.depuisUnites(100), 120, true, "vendeur@exemple.fr", "alice@exemple.fr");
+
+        Map<String, Message> messages = new LinkedHashMap<>();
+        messages.put("Inscription", new Inscription(user));
+        messages.put("Connexion", new Connexion(user));
+        messages.put("DebutEnchere", new DebutEnchere(user));
+        messages.put("Encherir", new Encherir(user, produit));
+        messages.put("AjoutProduit", new AjoutProduit(user, produit));
+        messages.put("MiseAJour", new MiseAJour(produit, "Nouvelle offre effectuée par alice@exemple.fr"));
+        messages.put("FinEnchere", new FinEnchere(produit));
+
+        RecupererProduits catalogue = new RecupererProduits(user);
+        for (int i = 0; i < 20; i++) {
+            Produit p = new Produit(produit);
+            p.setCarId("LOT-" + i);
+            catalogue.getProduits().add(p);
+        }
+        messages.put("RecupererProduits", catalogue);
+
+        Historique historique = new Historique(user);
+        historique.setHistoryDetailsList(List.of(
+                new HistoryDetails(1, "AB-123-CD", "2024-12-01T10:15:30", Montant.depuisUnites(12100)),
+                new HistoryDetails(2, "AB-123-CD", "2024-12-01T10:16:02", Montant.depuisUnites(12300)),
+                new HistoryDetails(3, "EF-456-GH", "2024-12-01T10:20:11", Montant.depuisUnites(8000))));
+        messages.put("Historique", historique);
+
+        Reclamation reclamation = new Reclamation(user, "AB-123-CD");
+        reclamation.setReclamationDetails(new ReclamationDetails("bob@exemple.fr", Montant.depuisUnites(13000), "2024-12-01T10:30:00",
+                "alice@exemple.fr", Montant.depuisUnites(12500), "2024-12-01 10:29:00"));
+        messages.put("Reclamation", reclamation);
+        return messages;
+    }
+}
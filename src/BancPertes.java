@@ -0,0 +1,118 @@
+import Communication.*;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Banc de vérification de la retransmission des requêtes sur un réseau qui perd des datagrammes.
+ *
+ * Démarre un serveur d'enchères, place devant lui un {@link RelaisAvecPertes}, puis fait passer par ce relais
+ * un commissaire, qui ouvre une vente avec un lot, et un acheteur, qui y enchérit à montants croissants avec
+ * {@code jhal.fiabilite} activé. Le banc vérifie que chaque requête aboutit malgré les pertes, puis relit la table
+ * history une fois le serveur arrêté : chaque offre doit y figurer exactement une fois, une offre retransmise
+ * n'étant jamais enregistrée deux fois. Il se termine avec le code 1 si une vérification échoue.
+ *
+ * Le serveur écrit dans la base habituelle (auction.db) ; les noms d'utilisateurs, de la vente et du lot
+ * sont propres à chaque passage.
+ *
+ * Utilisation : {@code java BancPertes [perte] [offres]}
+ */
+public class BancPertes {
+
+    private static final int PORT_RELAIS = 9878;
+    private static final int PORT_SERVEUR = 9876;
+
+    public static void main(String[] args) throws Exception {
+        double perte = args.length > 0 ? Double.parseDouble(args[0]) : 0.2;
+        int offres = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        // Lus à l'initialisation du serveur et des clients : à régler avant de les créer
+        String passage = Long.toString(System.currentTimeMillis(), 36);
+        String nomCommissaire = "banc-commissaire-" + passage;
+        System.setProperty("jhal.fiabilite", "true");
+        System.setProperty("jhal.client.retransmissions", "8");
+        System.setProperty("jhal.client.port", String.valueOf(PORT_RELAIS));
+        System.setProperty("jhal.commissaires", nomCommissaire);
+        System.setProperty("jhal.journal", "");
+        System.setProperty("jhal.limite.defaut", "0");
+        for (String type : List.of("Connexion", "Inscription", "Encherir", "EnchereMaximale")) {
+            System.setProperty("jhal.limite." + type, "0");
+        }
+
+        ServeurEnchere serveur = new ServeurEnchere();
+        serveur.demarrerServeur();
+        RelaisAvecPertes relais = new RelaisAvecPertes(PORT_RELAIS, new InetSocketAddress("127.0.0.1", PORT_SERVEUR), perte, 42);
+        Commissaire commissaire = new Commissaire(nomCommissaire, "banc", "127.0.0.1");
+        Utilisateur acheteur = new Utilisateur("banc-acheteur-" + passage, "banc", "127.0.0.1");
+
+        String vente = "banc-" + passage;
+        String carId = "BANC-" + passage;
+        long prixInitial = 100_000;
+        long pas = 100;
+        int echecs = 0;
+        long debut = System.nanoTime();
+        try {
+            verifier(commissaire.inscription().isSucces() && commissaire.connexion().isSucces(), "connexion du commissaire");
+            verifier(acheteur.inscription().isSucces() && acheteur.connexion().isSucces(), "connexion de l'acheteur");
+            verifier(commissaire.ajouterProduit(nomCommissaire, carId, "Lot du banc de pertes", prixInitial, pas, 3600, vente).isSucces(),
+                    "ajout du lot");
+            verifier(commissaire.lancerVente(vente).isSucces(), "debut de la vente");
+            verifier(acheteur.suivreVente(vente).isSucces() && acheteur.isVenteDemarree(vente), "suivi de la vente");
+            verifier(acheteur.recupererTousLesProduits().isSucces() && acheteur.getProduits().containsKey(carId), "catalogue");
+
+            for (int i = 1; i <= offres; i++) {
+                try {
+                    if (!acheteur.encherir(carId, prixInitial + i * pas).isSucces()) {
+                        echecs++;
+                    }
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Offre " + i + " sans reponse: " + e.getMessage());
+                    echecs++;
+                }
+            }
+        } finally {
+            acheteur.close();
+            commissaire.close();
+            relais.close();
+            serveur.arreterServeur(); // Les offres acceptées sont écrites avant la fermeture de la base
+        }
+        double duree = (System.nanoTime() - debut) / 1e9;
+
+        Map<Long, Integer> enregistrees = new HashMap<>();
+        DataBase database = new DataBase();
+        try {
+            for (HistoryDetails ligne : database.getHistoriqueByUsername(acheteur.getUsername())) {
+                if (carId.equals(ligne.getCar_id())) {
+                    enregistrees.merge(ligne.getBid_amount(), 1, Integer::sum);
+                }
+            }
+        } finally {
+            database.close();
+        }
+        long doubles = enregistrees.values().stream().filter(nombre -> nombre > 1).count();
+
+        System.out.printf("%-12s %8s %8s %8s %12s %12s %10s%n",
+                "perte", "offres", "echecs", "lignes", "doublons", "datagrammes", "duree (s)");
+        System.out.printf("%-12.2f %8d %8d %8d %12d %12d %10.1f%n",
+                perte, offres, echecs, enregistrees.size(), doubles, relais.getTransmis() + relais.getPerdus(), duree);
+        System.out.println(relais);
+
+        verifier(echecs == 0, echecs + " offre(s) sans succes malgre les retransmissions");
+        verifier(doubles == 0, doubles + " offre(s) enregistree(s) plusieurs fois");
+        verifier(enregistrees.size() == offres, enregistrees.size() + " offre(s) enregistree(s) sur " + offres);
+        System.out.println("OK");
+        System.exit(0);
+    }
+
+    /**
+     * Termine le banc avec le code 1 si une vérification échoue.
+     */
+    private static void verifier(boolean condition, String description) {
+        if (!condition) {
+            System.err.println("ECHEC: " + description);
+            System.exit(1);
+        }
+    }
+}
@@ -1,7 +1,11 @@
 import Communication.AjoutProduit;
 import Communication.DebutEnchere;
+import Communication.EnchereMaximale;
 import Communication.Encherir;
 import Communication.Produit;
+import Communication.Vente;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Classe représentant un commissaire, qui hérite des fonctionnalités de la classe Utilisateur.
@@ -27,17 +31,34 @@ public class Commissaire extends Utilisateur {
      * @param emailVendeur          L'adresse e-mail du vendeur du produit.
      * @param carId                 L'identifiant unique du produit (carId).
      * @param description           La description du produit.
-     * @param prixInitial           Le prix initial de l'enchère.
-     * @param pasEnchere            Le pas minimum pour augmenter une enchère.
+     * @param prixInitial           Le prix initial de l'enchère, en centimes.
+     * @param pasEnchere            Le pas minimum pour augmenter une enchère, en centimes.
      * @param dureeEnchereSecondes  La durée de l'enchère en secondes.
      * @return Une instance de {@link AjoutProduit} représentant la réponse du système après l'ajout.
      */
     @Override
-    public AjoutProduit ajouterProduit(String emailVendeur, String carId, String description, double prixInitial, int pasEnchere, int dureeEnchereSecondes) {
+    public AjoutProduit ajouterProduit(String emailVendeur, String carId, String description, long prixInitial, long pasEnchere, int dureeEnchereSecondes) {
+        return ajouterProduit(emailVendeur, carId, description, prixInitial, pasEnchere, dureeEnchereSecondes, null);
+    }
+
+    /**
+     * Ajoute un produit à une vente qui n'a pas encore commencé ; la vente est créée au besoin
+     * et revient au premier commissaire qui y ajoute un produit ou la démarre.
+     *
+     * @param emailVendeur          L'adresse e-mail du vendeur du produit.
+     * @param carId                 L'identifiant unique du produit (carId).
+     * @param description           La description du produit.
+     * @param prixInitial           Le prix initial de l'enchère, en centimes.
+     * @param pasEnchere            Le pas minimum pour augmenter une enchère, en centimes.
+     * @param dureeEnchereSecondes  La durée de l'enchère en secondes, mesurée depuis le début de la vente.
+     * @param vente                 L'identifiant de la vente (null : vente par défaut).
+     * @return Une instance de {@link AjoutProduit} représentant la réponse du système après l'ajout.
+     */
+    public AjoutProduit ajouterProduit(String emailVendeur, String carId, String description, long prixInitial, long pasEnchere, int dureeEnchereSecondes, String vente) {
         Produit produit = new Produit(carId, description, prixInitial, pasEnchere, dureeEnchereSecondes);
         produit.setUserVendeur(emailVendeur);
-        sendMessage(new AjoutProduit(this, produit));
-        return filterReponsesByTypeWithRetry(AjoutProduit.class, 10).getLast();
+        produit.setVente(vente);
+        return attendre(envoyerRequete(new AjoutProduit(this, produit), AjoutProduit.class));
     }
 
     /**
@@ -48,18 +69,63 @@ public class Commissaire extends Utilisateur {
      * @throws IllegalArgumentException Toujours levée pour indiquer qu'un commissaire ne peut pas enchérir.
      */
     @Override
-    public Encherir encherir(String carId, double montant) {
+    public Encherir encherir(String carId, long montant) {
+        throw new IllegalArgumentException("vous n'avez pas le droit d'encherir");
+    }
+
+    /**
+     * Lève une exception, car un commissaire n'a pas le droit d'enchérir sur des produits.
+     *
+     * @param carId   L'identifiant du produit (non utilisé).
+     * @param maximum Le montant maximal (non utilisé).
+     * @throws IllegalArgumentException Toujours levée pour indiquer qu'un commissaire ne peut pas enchérir.
+     */
+    @Override
+    public EnchereMaximale encherirMax(String carId, long maximum) {
         throw new IllegalArgumentException("vous n'avez pas le droit d'encherir");
     }
 
     /**
-     * Lance une nouvelle enchère dans le système.
+     * Lance la vente par défaut dans le système.
      *
      * @return Une instance de {@link DebutEnchere} représentant la réponse du système après le lancement de l'enchère.
      */
     public DebutEnchere lancerEnchere() {
-        sendMessage(new DebutEnchere(this));
-        return filterReponsesByTypeWithRetry(DebutEnchere.class, 10).getLast();
+        return attendre(lancerEnchereAsync());
+    }
+
+    /**
+     * Variante asynchrone de {@link #lancerEnchere()}.
+     *
+     * @return La future complétée par la réponse du serveur.
+     */
+    public CompletableFuture<DebutEnchere> lancerEnchereAsync() {
+        return lancerVenteAsync(null);
+    }
+
+    /**
+     * Lance une vente donnée ; les autres ventes ne sont pas affectées.
+     *
+     * @param vente L'identifiant de la vente (null : vente par défaut).
+     * @return Une instance de {@link DebutEnchere} représentant la réponse du système après le lancement de la vente.
+     */
+    public DebutEnchere lancerVente(String vente) {
+        return attendre(lancerVenteAsync(vente));
+    }
+
+    /**
+     * Variante asynchrone de {@link #lancerVente(String)}.
+     *
+     * @param vente L'identifiant de la vente (null : vente par défaut).
+     * @return La future complétée par la réponse du serveur.
+     */
+    public CompletableFuture<DebutEnchere> lancerVenteAsync(String vente) {
+        return envoyerRequete(new DebutEnchere(this, vente), DebutEnchere.class).thenApply(reponse -> {
+            if (reponse.isSucces()) {
+                ventesDemarrees.add(Vente.normaliser(reponse.getVente()));
+            }
+            return reponse;
+        });
     }
 
 }
@@ -24,19 +24,20 @@ public class AjoutProduit extends MessageAvecProduit {
      * @param serveur       L'instance du serveur qui traite le message.
      * @param clientAddress L'adresse du client qui a envoyé le message.
      * @param clientPort    Le port du client qui a envoyé le message.
-     * @throws IllegalArgumentException Si l'enchère a déjà commencé, empêchant l'ajout de nouveaux produits.
+     * @throws IllegalArgumentException Si la vente du produit a déjà commencé, empêchant l'ajout de nouveaux produits.
      */
     @Override
     public void traitementServeur(Serveur serveur, InetAddress clientAddress, int clientPort) {
-        if (serveur.getDebutEnchere() != null) {
-            throw new IllegalArgumentException("Impossible de rajouter des produits car l'enchere a deja commence");
-        }
-
         // Vérifie que l'utilisateur est inscrit et autorisé
-        serveur.verifierClient(getAuteur());
+        User commissaire = serveur.authentifier(this);
+
+        // Les autres ventes peuvent être en cours : seule celle du produit ne doit pas avoir commencé
+        if (serveur.getDebutEnchere(getProduit().getVente()) != null) {
+            throw new IllegalArgumentException("Impossible de rajouter des produits car la vente a deja commence");
+        }
 
         // Ajoute le produit au serveur
-        serveur.ajouterProduit(getProduit());
+        serveur.ajouterProduit(getProduit(), commissaire);
 
         // Envoie une mise à jour indiquant qu'un nouveau produit a été ajouté
         new MiseAJour(getProduit(), "Nouveau Produit rajoute aux encheres").traitementServeur(serveur);
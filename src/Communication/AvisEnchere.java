@@ -0,0 +1,123 @@
+package Communication;
+
+import java.net.InetAddress;
+
+/**
+ * Avis personnel envoyé par le serveur à un seul enchérisseur : son offre vient d'être dépassée,
+ * ou l'enchère d'un lot sur lequel il a enchéri est terminée et il l'a remportée ou perdue.
+ *
+ * Contrairement à {@link PrixMisAJour}, l'avis n'est pas diffusé : il est envoyé à la dernière adresse
+ * connue de l'utilisateur concerné, même s'il ne surveille pas le lot.
+ */
+public class AvisEnchere extends Message {
+
+    /**
+     * Nature de l'avis.
+     */
+    public enum Type {
+        /** L'offre de l'utilisateur a été dépassée par celle d'un autre enchérisseur. */
+        SURENCHERI,
+        /** L'enchère est terminée et l'utilisateur l'a remportée. */
+        GAGNE,
+        /** L'enchère est terminée et l'utilisateur ne l'a pas remportée. */
+        PERDU;
+
+        /**
+         * Retourne le type dont le rang est transmis par le codec binaire.
+         *
+         * @param ordre Le rang du type.
+         * @return Le type correspondant.
+         * @throws IllegalArgumentException Si le rang est inconnu.
+         */
+        public static Type depuisOrdre(int ordre) {
+            Type[] types = values();
+            if (ordre < 0 || ordre >= types.length) {
+                throw new IllegalArgumentException("Type d'avis inconnu: " + ordre);
+            }
+            return types[ordre];
+        }
+    }
+
+    protected Type type;
+    protected String carId; // Identifiant du lot concerné
+    protected long prixCourant; // Prix courant (ou final) du lot, en centimes
+    protected long version; // Version du lot au moment de l'avis
+
+    /**
+     * Construit un avis à partir de l'état d'un lot.
+     *
+     * @param type    La nature de l'avis.
+     * @param produit Le lot concerné, après l'offre ou la clôture.
+     */
+    public AvisEnchere(Type type, Produit produit) {
+        this(type, produit.getCarId(), produit.getPrixCourant(), produit.getVersion());
+    }
+
+    /**
+     * Constructeur complet de l'avis.
+     *
+     * @param type        La nature de l'avis.
+     * @param carId       L'identifiant du lot.
+     * @param prixCourant Le prix courant ou final du lot, en centimes.
+     * @param version     La version du lot.
+     */
+    public AvisEnchere(Type type, String carId, long prixCourant, long version) {
+        super(null); // Message du serveur, sans auteur
+        this.type = type;
+        this.carId = carId;
+        this.prixCourant = prixCourant;
+        this.version = version;
+        this.succes = true;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getCarId() {
+        return carId;
+    }
+
+    public long getPrixCourant() {
+        return prixCourant;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Retourne le texte de l'avis, composé à la lecture : il n'est pas transmis avec le message.
+     *
+     * @return Le texte de l'avis.
+     */
+    @Override
+    public String getInfo() {
+        if (info != null) {
+            return info;
+        }
+        return switch (type) {
+            case SURENCHERI -> "Votre offre sur " + carId + " est depassee : " + Montant.formater(prixCourant);
+            case GAGNE -> "Vous remportez " + carId + " pour " + Montant.formater(prixCourant);
+            case PERDU -> "Enchere terminee sur " + carId + ", remportee par un autre acheteur pour " + Montant.formater(prixCourant);
+        };
+    }
+
+    /**
+     * L'avis est produit par le serveur et n'a aucun traitement côté serveur.
+     *
+     * @param serveur       Non utilisé.
+     * @param clientAddress Non utilisé.
+     * @param clientPort    Non utilisé.
+     * @throws IllegalArgumentException Toujours : un client ne peut pas envoyer d'avis.
+     */
+    @Override
+    public void traitementServeur(Serveur serveur, InetAddress clientAddress, int clientPort) {
+        throw new IllegalArgumentException("Message reserve au serveur");
+    }
+
+    @Override
+    public String toString() {
+        return "AvisEnchere{type=" + type + ", carId=" + carId + ", prixCourant=" + Montant.formater(prixCourant) + ", version=" + version + '}';
+    }
+}
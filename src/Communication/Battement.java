@@ -0,0 +1,36 @@
+package Communication;
+
+import java.net.InetAddress;
+
+/**
+ * Classe représentant le signal de présence envoyé périodiquement par un client connecté.
+ * Le serveur retire de la liste des clients connectés ceux dont il n'a rien reçu depuis le délai d'inactivité ;
+ * un battement suffit à y inscrire de nouveau un client dont la session est encore ouverte.
+ * Hérite de {@link Message}.
+ */
+public class Battement extends Message {
+
+    /**
+     * Constructeur de la classe Battement.
+     *
+     * @param auteur L'utilisateur connecté.
+     */
+    public Battement(User auteur) {
+        super(auteur);
+    }
+
+    /**
+     * Traite le battement côté serveur : authentifie le client et note son activité.
+     *
+     * @param serveur       L'instance du serveur qui traite le message.
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort    Le port du client.
+     * @throws IllegalArgumentException Si la session du client a expiré.
+     */
+    @Override
+    public void traitementServeur(Serveur serveur, InetAddress clientAddress, int clientPort) {
+        serveur.authentifier(this);
+        serveur.ajouterClientConnecte(clientAddress, clientPort);
+        setAuteur(null); // Réinitialise l'auteur pour éviter des fuites de données
+    }
+}
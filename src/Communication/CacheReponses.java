@@ -0,0 +1,111 @@
+package Communication;
+
+import java.net.InetAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache borné des réponses envoyées par le serveur, utilisé pour écarter les requêtes retransmises.
+ *
+ * Une requête est identifiée par l'adresse et le port de son client et par son identifiant de requête.
+ * La première réception est traitée normalement ; une retransmission reçoit la réponse déjà encodée,
+ * sans nouveau traitement (une offre n'est donc jamais enregistrée deux fois), ou est ignorée si la
+ * première réception est encore en cours de traitement. Au-delà de la capacité, les requêtes les plus
+ * anciennes sont oubliées.
+ */
+public class CacheReponses {
+
+    /**
+     * Clé d'une requête : son client et son identifiant.
+     */
+    public record Cle(InetAddress adresse, int port, long idRequete) {
+    }
+
+    /**
+     * Entrée du cache ; la réponse reste nulle tant que la requête est en cours de traitement.
+     */
+    private static final class Entree {
+        private volatile MessageEncode reponse;
+    }
+
+    private final Map<Cle, Entree> entrees;
+    private final AtomicLong doublons = new AtomicLong();
+
+    /**
+     * Construit le cache.
+     *
+     * @param capacite Le nombre maximal de requêtes mémorisées.
+     */
+    public CacheReponses(int capacite) {
+        this.entrees = new LinkedHashMap<>(Math.min(capacite, 1024), 0.75f) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Cle, Entree> plusAncienne) {
+                return size() > capacite;
+            }
+        };
+    }
+
+    /**
+     * Réserve une requête pour traitement.
+     *
+     * @param cle La clé de la requête.
+     * @return {@code true} si la requête est reçue pour la première fois et doit être traitée.
+     */
+    public synchronized boolean reserver(Cle cle) {
+        if (entrees.containsKey(cle)) {
+            doublons.incrementAndGet();
+            return false;
+        }
+        entrees.put(cle, new Entree());
+        return true;
+    }
+
+    /**
+     * Retourne la réponse déjà envoyée à une requête.
+     *
+     * @param cle La clé de la requête.
+     * @return La réponse encodée, ou null si la requête est encore en cours de traitement ou a été oubliée.
+     */
+    public synchronized MessageEncode reponse(Cle cle) {
+        Entree entree = entrees.get(cle);
+        return entree != null ? entree.reponse : null;
+    }
+
+    /**
+     * Mémorise la réponse envoyée à une requête réservée.
+     *
+     * @param cle     La clé de la requête.
+     * @param reponse La réponse encodée.
+     */
+    public synchronized void enregistrer(Cle cle, MessageEncode reponse) {
+        Entree entree = entrees.get(cle);
+        if (entree != null) {
+            entree.reponse = reponse;
+        }
+    }
+
+    /**
+     * Oublie une requête réservée qui n'a pas été traitée, pour qu'une retransmission puisse l'être.
+     *
+     * @param cle La clé de la requête.
+     */
+    public synchronized void oublier(Cle cle) {
+        Entree entree = entrees.get(cle);
+        if (entree != null && entree.reponse == null) {
+            entrees.remove(cle);
+        }
+    }
+
+    /**
+     * @return Le nombre de requêtes retransmises écartées.
+     */
+    public long getDoublons() {
+        return doublons.get();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CacheReponses{taille=" + entrees.size() + ", doublons=" + getDoublons() + '}';
+    }
+}
@@ -0,0 +1,115 @@
+package Communication;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Regroupe les mises à jour de prix avant leur diffusion.
+ *
+ * Seule la dernière mise à jour de chaque produit est conservée ; les mises à jour en attente sont diffusées
+ * à intervalle régulier. Le nombre de datagrammes diffusés par seconde est ainsi borné par
+ * (nombre de produits actifs) / (période), quel que soit le nombre d'offres reçues sur un même produit.
+ *
+ * Une mise à jour n'est jamais diffusée après la fin de l'enchère de son produit : la diffusion et l'abandon
+ * d'une mise à jour se font sous le même verrou, et un produit dont l'enchère est close n'est plus diffusé.
+ */
+public class CoalesceurMisesAJour {
+
+    private final Map<String, PrixMisAJour> enAttente = new ConcurrentHashMap<>();
+    private final Consumer<PrixMisAJour> diffusion;
+    private final Predicate<String> ouvert;
+    private final ScheduledExecutorService minuterie;
+
+    private final AtomicLong recues = new AtomicLong();
+    private final AtomicLong diffusees = new AtomicLong();
+
+    /**
+     * Construit le coalesceur et démarre sa minuterie.
+     *
+     * @param periodeMillis La période de diffusion, en millisecondes.
+     * @param diffusion     L'action diffusant une mise à jour aux clients de la vente du produit.
+     * @param ouvert        Indique si l'enchère d'un produit est encore ouverte.
+     */
+    public CoalesceurMisesAJour(long periodeMillis, Consumer<PrixMisAJour> diffusion, Predicate<String> ouvert) {
+        this.diffusion = diffusion;
+        this.ouvert = ouvert;
+        this.minuterie = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "coalesceur-mises-a-jour");
+            thread.setDaemon(true);
+            return thread;
+        });
+        minuterie.scheduleAtFixedRate(this::vider, periodeMillis, periodeMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ajoute une mise à jour de prix ; elle remplace la mise à jour en attente du même produit si elle est plus récente.
+     *
+     * @param prix La mise à jour de prix.
+     */
+    public void soumettre(PrixMisAJour prix) {
+        recues.incrementAndGet();
+        enAttente.merge(prix.getCarId(), prix, (ancien, nouveau) -> nouveau.getVersion() > ancien.getVersion() ? nouveau : ancien);
+    }
+
+    /**
+     * Abandonne la mise à jour en attente d'un produit, par exemple lorsque la fin de son enchère
+     * est diffusée immédiatement avec son état complet. Si une diffusion est en cours, l'abandon attend
+     * qu'elle se termine : une mise à jour déjà prise part toujours avant la fin de l'enchère.
+     *
+     * @param carId L'identifiant du produit.
+     */
+    public synchronized void abandonner(String carId) {
+        enAttente.remove(carId);
+    }
+
+    /**
+     * Diffuse toutes les mises à jour en attente des produits dont l'enchère est encore ouverte.
+     */
+    private synchronized void vider() {
+        try {
+            for (String carId : enAttente.keySet()) {
+                PrixMisAJour prix = enAttente.remove(carId);
+                if (prix != null && ouvert.test(carId)) {
+                    diffusion.accept(prix);
+                    diffusees.incrementAndGet();
+                }
+            }
+        } catch (Exception e) {
+            // Une erreur ne doit pas arrêter la minuterie
+            System.err.println("Erreur de diffusion des mises a jour: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return Le nombre de mises à jour reçues.
+     */
+    public long getRecues() {
+        return recues.get();
+    }
+
+    /**
+     * @return Le nombre de mises à jour effectivement diffusées.
+     */
+    public long getDiffusees() {
+        return diffusees.get();
+    }
+
+    /**
+     * Diffuse les dernières mises à jour en attente puis arrête la minuterie.
+     */
+    public void arreter() {
+        minuterie.shutdown();
+        vider();
+    }
+
+    @Override
+    public String toString() {
+        return "CoalesceurMisesAJour{recues=" + getRecues() + ", diffusees=" + getDiffusees() + ", enAttente=" + enAttente.size() + '}';
+    }
+}
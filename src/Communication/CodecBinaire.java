@@ -0,0 +1,522 @@
+package Communication;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codec binaire compact écrit à la main pour les messages du protocole.
+ *
+ * <p>Chaque datagramme a la forme suivante :
+ * <pre>
+ * MAGIQUE (1 octet) | identifiant du type (1 octet) | drapeaux (1 octet) | identifiant de requête (8 octets, si présent)
+ * | date de création (varint, millisecondes) | auteur (si présent) | jeton de session (si présent) | info | corps propre au type
+ * </pre>
+ * L'identifiant de requête est écrit sur 8 octets à une position fixe, ce qui permet de réutiliser une réponse
+ * déjà encodée en n'y changeant que cet identifiant (voir {@link #avecIdRequete(byte[], long)}).
+ * Les entiers sont écrits en varint, les chaînes en UTF-8 précédées de leur longueur
+ * (une longueur nulle représente {@code null}) ; les montants sont des varints en centimes (voir {@link Montant}).
+ * </p>
+ *
+ * Chaque sous-classe de {@link Message} possède un identifiant d'un octet enregistré dans le registre
+ * du codec ; un message dont la classe n'y figure pas ne peut pas être encodé.
+ */
+public class CodecBinaire implements CodecMessage {
+
+    /** Premier octet d'un datagramme au format binaire (un flux Java sérialisé commence par 0xAC) */
+    public static final byte MAGIQUE = (byte) 0xB3; // 0xB2 : produits sans vente ; 0xB1 : prix en réels
+
+    /** Instance partagée (le codec est sans état) */
+    public static final CodecBinaire INSTANCE = new CodecBinaire();
+
+    private static final int SUCCES = 1;
+    private static final int AVEC_AUTEUR = 1 << 1;
+    private static final int AVEC_ID_REQUETE = 1 << 2;
+    private static final int AVEC_JETON = 1 << 3;
+    private static final int POSITION_DRAPEAUX = 2;
+    private static final int POSITION_ID_REQUETE = 3;
+
+    /**
+     * Écrit le corps propre à un type de message.
+     */
+    interface EncodeurCorps<T extends Message> {
+        void ecrire(T message, Ecrivain sortie);
+    }
+
+    /**
+     * Lit le corps propre à un type de message et construit le message correspondant.
+     */
+    interface DecodeurCorps<T extends Message> {
+        T lire(Lecteur entree);
+    }
+
+    /**
+     * Entrée du registre : l'identifiant d'un type de message et ses fonctions d'encodage et de décodage.
+     */
+    private record Type<T extends Message>(byte id, Class<T> classe, EncodeurCorps<T> encodeur, DecodeurCorps<T> decodeur) {
+        @SuppressWarnings("unchecked")
+        void ecrire(Message message, Ecrivain sortie) {
+            encodeur.ecrire((T) message, sortie);
+        }
+    }
+
+    private static final Map<Class<?>, Type<?>> PAR_CLASSE = new HashMap<>();
+    private static final Map<String, Class<? extends Message>> PAR_NOM = new HashMap<>(); // Classes enregistrées, par nom complet
+    private static final Type<?>[] PAR_ID = new Type<?>[256];
+
+    static {
+        enregistrer(1, Inscription.class, (m, s) -> {}, e -> new Inscription(null));
+        enregistrer(2, Connexion.class, (m, s) -> {}, e -> new Connexion(null));
+        enregistrer(3, DebutEnchere.class,
+                (m, s) -> {
+                    s.ecrireBooleen(m.debutEnchere);
+                    s.ecrireTexte(m.vente);
+                },
+                e -> {
+                    DebutEnchere m = new DebutEnchere(null);
+                    m.debutEnchere = e.lireBooleen();
+                    m.vente = e.lireTexte();
+                    return m;
+                });
+        enregistrer(4, Encherir.class,
+                (m, s) -> s.ecrireProduit(m.produit),
+                e -> new Encherir(null, e.lireProduit()));
+        enregistrer(5, AjoutProduit.class,
+                (m, s) -> s.ecrireProduit(m.produit),
+                e -> new AjoutProduit(null, e.lireProduit()));
+        enregistrer(6, MiseAJour.class,
+                (m, s) -> s.ecrireProduit(m.produit),
+                e -> new MiseAJour(e.lireProduit(), null));
+        enregistrer(7, FinEnchere.class,
+                (m, s) -> s.ecrireProduit(m.produit),
+                e -> new FinEnchere(e.lireProduit()));
+        enregistrer(8, RecupererProduits.class,
+                (m, s) -> {
+                    s.ecrireVarint(m.produits.size());
+                    for (Produit p : m.produits) {
+                        s.ecrireProduit(p);
+                    }
+                },
+                e -> {
+                    RecupererProduits m = new RecupererProduits(null);
+                    for (int i = e.lireTaille(); i > 0; i--) {
+                        m.produits.add(e.lireProduit());
+                    }
+                    return m;
+                });
+        enregistrer(9, Historique.class,
+                (m, s) -> {
+                    s.ecrireVarint(m.historyDetailsList.size());
+                    for (HistoryDetails h : m.historyDetailsList) {
+                        s.ecrireVarint(h.id);
+                        s.ecrireTexte(h.car_id);
+                        s.ecrireTexte(h.interaction_time);
+                        s.ecrireVarint(h.bid_amount);
+                    }
+                },
+                e -> {
+                    Historique m = new Historique(null);
+                    for (int i = e.lireTaille(); i > 0; i--) {
+                        m.historyDetailsList.add(new HistoryDetails((int) e.lireVarint(), e.lireTexte(), e.lireTexte(), e.lireVarint()));
+                    }
+                    return m;
+                });
+        enregistrer(10, Reclamation.class,
+                (m, s) -> {
+                    s.ecrireTexte(m.carId);
+                    ReclamationDetails d = m.reclamationDetails;
+                    s.ecrireBooleen(d != null);
+                    if (d != null) {
+                        s.ecrireTexte(d.winnerMail);
+                        s.ecrireVarint(d.winnerAmount);
+                        s.ecrireDate(d.winnerTime);
+                        s.ecrireTexte(d.currentBidderMail);
+                        s.ecrireVarint(d.currentBidAmount);
+                        s.ecrireTexte(d.currentBidTime);
+                    }
+                },
+                e -> {
+                    Reclamation m = new Reclamation(null, e.lireTexte());
+                    if (e.lireBooleen()) {
+                        m.reclamationDetails = new ReclamationDetails(e.lireTexte(), e.lireVarint(), e.lireDate(),
+                                e.lireTexte(), e.lireVarint(), e.lireTexte());
+                    }
+                    return m;
+                });
+        enregistrer(11, PrixMisAJour.class,
+                (m, s) -> {
+                    s.ecrireTexte(m.carId);
+                    s.ecrireVarint(m.prixCourant);
+                    s.ecrireTexte(m.userAcheteur);
+                    s.ecrireVarint(m.version);
+                    s.ecrireVarint(m.horodatage);
+                },
+                e -> new PrixMisAJour(e.lireTexte(), e.lireVarint(), e.lireTexte(), e.lireVarint(), e.lireVarint()));
+        enregistrer(12, SuivreVente.class,
+                (m, s) -> {
+                    s.ecrireTexte(m.vente);
+                    s.ecrireBooleen(m.suivre);
+                    s.ecrireBooleen(m.demarree);
+                },
+                e -> {
+                    SuivreVente m = new SuivreVente(null, e.lireTexte(), e.lireBooleen());
+                    m.demarree = e.lireBooleen();
+                    return m;
+                });
+        enregistrer(13, EnchereMaximale.class,
+                (m, s) -> s.ecrireProduit(m.produit),
+                e -> new EnchereMaximale(null, e.lireProduit()));
+        enregistrer(14, SurveillerLots.class,
+                (m, s) -> {
+                    s.ecrireVarint(m.carIds.size());
+                    for (String carId : m.carIds) {
+                        s.ecrireTexte(carId);
+                    }
+                    s.ecrireBooleen(m.surveiller);
+                },
+                e -> {
+                    List<String> carIds = new ArrayList<>();
+                    for (int i = e.lireTaille(); i > 0; i--) {
+                        carIds.add(e.lireTexte());
+                    }
+                    return new SurveillerLots(null, carIds, e.lireBooleen());
+                });
+        enregistrer(15, AvisEnchere.class,
+                (m, s) -> {
+                    s.ecrireOctet(m.type.ordinal());
+                    s.ecrireTexte(m.carId);
+                    s.ecrireVarint(m.prixCourant);
+                    s.ecrireVarint(m.version);
+                },
+                e -> new AvisEnchere(AvisEnchere.Type.depuisOrdre(e.lireOctet()), e.lireTexte(), e.lireVarint(), e.lireVarint()));
+        enregistrer(16, Battement.class, (m, s) -> {}, e -> new Battement(null));
+        enregistrer(17, Deconnexion.class, (m, s) -> {}, e -> new Deconnexion(null));
+        enregistrer(18, Refus.class, (m, s) -> {}, e -> new Refus(null)); // La raison est transmise dans l'en-tête
+    }
+
+    /**
+     * Enregistre un type de message dans le registre du codec.
+     *
+     * @param id       L'identifiant du type, unique, entre 1 et 255.
+     * @param classe   La classe exacte du message.
+     * @param encodeur La fonction écrivant le corps du message.
+     * @param decodeur La fonction lisant le corps et construisant le message.
+     */
+    static synchronized <T extends Message> void enregistrer(int id, Class<T> classe, EncodeurCorps<T> encodeur, DecodeurCorps<T> decodeur) {
+        if (id <= 0 || id > 255 || PAR_ID[id] != null || PAR_CLASSE.containsKey(classe)) {
+            throw new IllegalArgumentException("Identifiant de message invalide ou deja utilise: " + id + " " + classe.getSimpleName());
+        }
+        Type<T> type = new Type<>((byte) id, classe, encodeur, decodeur);
+        PAR_ID[id] = type;
+        PAR_CLASSE.put(classe, type);
+        PAR_NOM.put(classe.getName(), classe);
+    }
+
+    /**
+     * Retourne l'identifiant binaire associé à une classe de message.
+     *
+     * @param classe La classe du message.
+     * @return L'identifiant du type, ou -1 si la classe n'est pas enregistrée.
+     */
+    public static int identifiant(Class<? extends Message> classe) {
+        Type<?> type = PAR_CLASSE.get(classe);
+        return type == null ? -1 : type.id() & 0xFF;
+    }
+
+    /**
+     * Retourne la classe enregistrée portant un nom complet donné.
+     *
+     * @param nom Le nom complet de la classe (par exemple "Communication.Encherir").
+     * @return La classe du message, ou null si aucun type de message ne porte ce nom.
+     */
+    static Class<? extends Message> classe(String nom) {
+        return PAR_NOM.get(nom);
+    }
+
+    /**
+     * Lit le type d'un message binaire sans le décoder.
+     *
+     * @param donnees Le tampon contenant le message, lu entre sa position et sa limite ; il n'est pas modifié.
+     * @return La classe du message, ou null si le type est inconnu.
+     */
+    static Class<? extends Message> type(ByteBuffer donnees) {
+        if (donnees.remaining() < 2) {
+            return null;
+        }
+        Type<?> type = PAR_ID[donnees.get(donnees.position() + 1) & 0xFF];
+        return type == null ? null : type.classe();
+    }
+
+    /**
+     * Lit l'identifiant de requête d'un message binaire sans le décoder : il occupe 8 octets fixes de l'en-tête.
+     *
+     * @param donnees Le tampon contenant le message, lu entre sa position et sa limite ; il n'est pas modifié.
+     * @return L'identifiant de requête, ou 0 s'il est absent.
+     */
+    static long idRequete(ByteBuffer donnees) {
+        int debut = donnees.position();
+        if (donnees.remaining() < POSITION_ID_REQUETE + 8 || (donnees.get(debut + POSITION_DRAPEAUX) & AVEC_ID_REQUETE) == 0) {
+            return 0;
+        }
+        long idRequete = 0;
+        for (int i = 0; i < 8; i++) {
+            idRequete = (idRequete << 8) | (donnees.get(debut + POSITION_ID_REQUETE + i) & 0xFF);
+        }
+        return idRequete;
+    }
+
+    @Override
+    public byte[] encoder(Message message) throws IOException {
+        Type<?> type = PAR_CLASSE.get(message.getClass());
+        if (type == null) {
+            throw new IOException("Type de message non enregistre: " + message.getClass().getSimpleName());
+        }
+        Ecrivain sortie = new Ecrivain();
+        sortie.ecrireOctet(MAGIQUE);
+        sortie.ecrireOctet(type.id());
+        sortie.ecrireOctet((message.succes ? SUCCES : 0) | (message.auteur != null ? AVEC_AUTEUR : 0)
+                | (message.idRequete != 0 ? AVEC_ID_REQUETE : 0) | (message.jeton != null ? AVEC_JETON : 0));
+        if (message.idRequete != 0) {
+            sortie.ecrireFixe(message.idRequete);
+        }
+        sortie.ecrireDate(message.dateCreation);
+        if (message.auteur != null) {
+            sortie.ecrireVarint(message.auteur.id);
+            sortie.ecrireTexte(message.auteur.username);
+            sortie.ecrireTexte(message.auteur.password);
+        }
+        if (message.jeton != null) {
+            sortie.ecrireTexte(message.jeton);
+        }
+        sortie.ecrireTexte(message.info);
+        type.ecrire(message, sortie);
+        return sortie.versTableau();
+    }
+
+    /**
+     * Retourne une copie d'un message binaire déjà encodé dans laquelle seul l'identifiant de requête change.
+     *
+     * @param octets    Le message encodé au format binaire.
+     * @param idRequete Le nouvel identifiant de requête (0 pour aucun).
+     * @return La copie modifiée.
+     */
+    static byte[] avecIdRequete(byte[] octets, long idRequete) {
+        boolean present = (octets[POSITION_DRAPEAUX] & AVEC_ID_REQUETE) != 0;
+        int suite = present ? POSITION_ID_REQUETE + 8 : POSITION_ID_REQUETE;
+        int entete = idRequete != 0 ? POSITION_ID_REQUETE + 8 : POSITION_ID_REQUETE;
+        byte[] copie = new byte[entete + octets.length - suite];
+        System.arraycopy(octets, 0, copie, 0, POSITION_ID_REQUETE);
+        System.arraycopy(octets, suite, copie, entete, octets.length - suite);
+        if (idRequete != 0) {
+            copie[POSITION_DRAPEAUX] |= AVEC_ID_REQUETE;
+            for (int i = 0; i < 8; i++) {
+                copie[POSITION_ID_REQUETE + i] = (byte) (idRequete >>> (56 - 8 * i));
+            }
+        } else {
+            copie[POSITION_DRAPEAUX] &= ~AVEC_ID_REQUETE;
+        }
+        return copie;
+    }
+
+    @Override
+    public Message decoder(ByteBuffer donnees) throws IOException {
+        try {
+            Lecteur entree = new Lecteur(donnees);
+            if (entree.lireOctet() != MAGIQUE) {
+                throw new IOException("Datagramme qui n'est pas au format binaire");
+            }
+            Type<?> type = PAR_ID[entree.lireOctet() & 0xFF];
+            if (type == null) {
+                throw new IOException("Type de message inconnu");
+            }
+            int drapeaux = entree.lireOctet();
+            long idRequete = (drapeaux & AVEC_ID_REQUETE) != 0 ? entree.lireFixe() : 0;
+            LocalDateTime dateCreation = entree.lireDate();
+            User auteur = null;
+            if ((drapeaux & AVEC_AUTEUR) != 0) {
+                auteur = new User((int) entree.lireVarint(), entree.lireTexte(), entree.lireTexte());
+            }
+            String jeton = (drapeaux & AVEC_JETON) != 0 ? entree.lireTexte() : null;
+            String info = entree.lireTexte();
+
+            Message message = type.decodeur().lire(entree);
+            message.auteur = auteur;
+            message.jeton = jeton;
+            message.idRequete = idRequete;
+            message.dateCreation = dateCreation;
+            message.succes = (drapeaux & SUCCES) != 0;
+            message.info = info;
+            return message;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Datagramme binaire tronque ou invalide", e);
+        }
+    }
+
+    /**
+     * Tampon d'écriture extensible pour l'encodage binaire.
+     */
+    static final class Ecrivain {
+        private byte[] octets = new byte[128];
+        private int taille = 0;
+
+        private void reserver(int n) {
+            if (taille + n > octets.length) {
+                octets = Arrays.copyOf(octets, Math.max(octets.length * 2, taille + n));
+            }
+        }
+
+        void ecrireOctet(int valeur) {
+            reserver(1);
+            octets[taille++] = (byte) valeur;
+        }
+
+        void ecrireBooleen(boolean valeur) {
+            ecrireOctet(valeur ? 1 : 0);
+        }
+
+        void ecrireVarint(long valeur) {
+            reserver(10);
+            while ((valeur & ~0x7FL) != 0) {
+                octets[taille++] = (byte) ((valeur & 0x7F) | 0x80);
+                valeur >>>= 7;
+            }
+            octets[taille++] = (byte) valeur;
+        }
+
+        void ecrireFixe(long valeur) {
+            reserver(8);
+            for (int decalage = 56; decalage >= 0; decalage -= 8) {
+                octets[taille++] = (byte) (valeur >>> decalage);
+            }
+        }
+
+        void ecrireTexte(String valeur) {
+            if (valeur == null) {
+                ecrireVarint(0);
+                return;
+            }
+            byte[] utf8 = valeur.getBytes(StandardCharsets.UTF_8);
+            ecrireVarint(utf8.length + 1L);
+            reserver(utf8.length);
+            System.arraycopy(utf8, 0, octets, taille, utf8.length);
+            taille += utf8.length;
+        }
+
+        void ecrireDate(LocalDateTime valeur) {
+            ecrireVarint(valeur == null ? 0 : valeur.toInstant(ZoneOffset.UTC).toEpochMilli() + 1);
+        }
+
+        void ecrireProduit(Produit p) {
+            ecrireBooleen(p != null);
+            if (p == null) {
+                return;
+            }
+            ecrireTexte(p.carId);
+            ecrireTexte(p.description);
+            ecrireVarint(p.prixInitial);
+            ecrireVarint(p.prixCourant);
+            ecrireVarint(p.pasEnchere);
+            ecrireVarint(p.dureeEnchereSecondes == null ? 0 : p.dureeEnchereSecondes + 1L);
+            ecrireBooleen(p.disponible);
+            ecrireTexte(p.userAcheteur);
+            ecrireTexte(p.userVendeur);
+            ecrireVarint(p.version);
+            ecrireTexte(p.vente);
+        }
+
+        byte[] versTableau() {
+            return Arrays.copyOf(octets, taille);
+        }
+    }
+
+    /**
+     * Lecture d'un message binaire directement depuis un tampon.
+     */
+    static final class Lecteur {
+        private final ByteBuffer tampon;
+
+        Lecteur(ByteBuffer tampon) {
+            this.tampon = tampon;
+        }
+
+        byte lireOctet() {
+            return tampon.get();
+        }
+
+        boolean lireBooleen() {
+            return tampon.get() != 0;
+        }
+
+        long lireVarint() {
+            long valeur = 0;
+            for (int decalage = 0; decalage < 64; decalage += 7) {
+                byte b = tampon.get();
+                valeur |= (long) (b & 0x7F) << decalage;
+                if (b >= 0) {
+                    return valeur;
+                }
+            }
+            throw new IllegalArgumentException("varint trop long");
+        }
+
+        int lireTaille() {
+            long taille = lireVarint();
+            if (taille < 0 || taille > tampon.remaining()) {
+                throw new IllegalArgumentException("taille invalide: " + taille);
+            }
+            return (int) taille;
+        }
+
+        long lireFixe() {
+            return tampon.getLong();
+        }
+
+        String lireTexte() {
+            long longueur = lireVarint();
+            if (longueur == 0) {
+                return null;
+            }
+            int n = (int) (longueur - 1);
+            if (n < 0 || n > tampon.remaining()) {
+                throw new IllegalArgumentException("longueur de texte invalide: " + n);
+            }
+            byte[] utf8 = new byte[n];
+            tampon.get(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        LocalDateTime lireDate() {
+            long valeur = lireVarint();
+            return valeur == 0 ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(valeur - 1), ZoneOffset.UTC);
+        }
+
+        Produit lireProduit() {
+            if (!lireBooleen()) {
+                return null;
+            }
+            String carId = lireTexte();
+            String description = lireTexte();
+            long prixInitial = lireVarint();
+            long prixCourant = lireVarint();
+            long pasEnchere = lireVarint();
+            long duree = lireVarint();
+            boolean disponible = lireBooleen();
+            String userAcheteur = lireTexte();
+            String userVendeur = lireTexte();
+            Produit p = new Produit(carId, description, prixInitial, prixCourant, pasEnchere, 0, disponible, userVendeur, userAcheteur);
+            p.dureeEnchereSecondes = duree == 0 ? null : (int) (duree - 1);
+            p.version = lireVarint();
+            p.vente = lireTexte();
+            return p;
+        }
+    }
+}
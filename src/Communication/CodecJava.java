@@ -0,0 +1,142 @@
+package Communication;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codec utilisant la sérialisation Java standard.
+ * Un flux sérialisé commence toujours par les octets {@code 0xACED}, ce qui le distingue du format binaire.
+ */
+public class CodecJava implements CodecMessage {
+
+    /** Instance partagée (le codec est sans état) */
+    public static final CodecJava INSTANCE = new CodecJava();
+
+    @Override
+    public byte[] encoder(Message message) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(message);
+        oos.flush();
+        return baos.toByteArray();
+    }
+
+    /**
+     * Lit le type d'un message sérialisé sans le décoder : le nom de sa classe figure dans le premier descripteur
+     * de classe du flux (en-tête du flux, TC_OBJECT, TC_CLASSDESC, puis le nom).
+     * Seules les classes de messages connues du codec binaire sont reconnues.
+     *
+     * @param donnees Le tampon contenant le message, lu entre sa position et sa limite ; il n'est pas modifié.
+     * @return La classe du message, ou null si elle n'est pas reconnue.
+     */
+    static Class<? extends Message> type(ByteBuffer donnees) {
+        int debut = donnees.position();
+        if (donnees.remaining() < 8 || donnees.get(debut + 4) != 0x73 || donnees.get(debut + 5) != 0x72) {
+            return null;
+        }
+        int longueur = ((donnees.get(debut + 6) & 0xFF) << 8) | (donnees.get(debut + 7) & 0xFF);
+        if (longueur > 64 || donnees.remaining() < 8 + longueur) {
+            return null;
+        }
+        byte[] nom = new byte[longueur];
+        donnees.get(debut + 8, nom);
+        return CodecBinaire.classe(new String(nom, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Lit l'identifiant de requête d'un message sérialisé sans le décoder.
+     *
+     * Seuls les descripteurs de classe en tête du flux sont parcourus, de la classe du message jusqu'à {@link Message} :
+     * les valeurs des champs suivent, en commençant par les champs primitifs de {@link Message} dans l'ordre de
+     * son descripteur. Aucun objet n'est instancié.
+     *
+     * @param donnees Le tampon contenant le message, lu entre sa position et sa limite ; il n'est pas modifié.
+     * @return L'identifiant de requête, ou 0 si le flux n'a pas la forme attendue.
+     */
+    static long idRequete(ByteBuffer donnees) {
+        try {
+            int position = donnees.position();
+            if (donnees.getShort(position) != (short) 0xACED || donnees.get(position + 4) != 0x73) {
+                return 0;
+            }
+            position += 5; // En-tête du flux et TC_OBJECT
+            for (int niveau = 0; niveau < 8; niveau++) {
+                if (donnees.get(position++) != 0x72) { // TC_CLASSDESC
+                    return 0;
+                }
+                int longueurNom = donnees.getShort(position) & 0xFFFF;
+                String nom = new String(lireOctets(donnees, position + 2, longueurNom), StandardCharsets.UTF_8);
+                position += 2 + longueurNom + 8; // Nom et serialVersionUID
+                if ((donnees.get(position++) & 0x04) != 0) { // SC_EXTERNALIZABLE
+                    return 0;
+                }
+                int nbChamps = donnees.getShort(position) & 0xFFFF;
+                position += 2;
+                int decalage = 0; // Position du champ dans les valeurs primitives de la classe
+                int decalageId = -1;
+                for (int i = 0; i < nbChamps; i++) {
+                    char code = (char) donnees.get(position++);
+                    int longueur = donnees.getShort(position) & 0xFFFF;
+                    String champ = new String(lireOctets(donnees, position + 2, longueur), StandardCharsets.UTF_8);
+                    position += 2 + longueur;
+                    switch (code) {
+                        case 'L', '[' -> {
+                            byte marque = donnees.get(position++);
+                            if (marque == 0x74) { // TC_STRING : nom du type du champ
+                                position += 2 + (donnees.getShort(position) & 0xFFFF);
+                            } else if (marque == 0x71) { // TC_REFERENCE
+                                position += 4;
+                            } else {
+                                return 0;
+                            }
+                        }
+                        case 'B', 'Z' -> decalage += 1;
+                        case 'C', 'S' -> decalage += 2;
+                        case 'I', 'F' -> decalage += 4;
+                        case 'J', 'D' -> {
+                            if (code == 'J' && champ.equals("idRequete")) {
+                                decalageId = decalage;
+                            }
+                            decalage += 8;
+                        }
+                        default -> {
+                            return 0;
+                        }
+                    }
+                }
+                if (donnees.get(position++) != 0x78) { // TC_ENDBLOCKDATA : pas d'annotation de classe
+                    return 0;
+                }
+                if (donnees.get(position) == 0x70) { // TC_NULL : pas de super-classe sérialisable
+                    if (!nom.equals(Message.class.getName()) || decalageId < 0) {
+                        return 0;
+                    }
+                    return donnees.getLong(position + 1 + decalageId);
+                }
+            }
+            return 0;
+        } catch (IndexOutOfBoundsException e) {
+            return 0; // Flux tronqué
+        }
+    }
+
+    private static byte[] lireOctets(ByteBuffer donnees, int position, int longueur) {
+        byte[] octets = new byte[longueur];
+        donnees.get(position, octets);
+        return octets;
+    }
+
+    @Override
+    public Message decoder(ByteBuffer donnees) throws IOException {
+        ObjectInputStream ois = new ObjectInputStream(new FluxTampon(donnees));
+        try {
+            return (Message) ois.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Message inconnu: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package Communication;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Format de transport des messages échangés entre les clients et le serveur.
+ *
+ * <p>Deux formats sont disponibles :
+ * <ul>
+ *   <li>{@link CodecJava} : la sérialisation Java standard ({@link java.io.ObjectOutputStream}).</li>
+ *   <li>{@link CodecBinaire} : un format binaire compact écrit à la main, avec un identifiant d'un octet par type de message.</li>
+ * </ul>
+ * </p>
+ *
+ * Le format utilisé pour l'envoi est choisi au démarrage ; à la réception, le format est reconnu
+ * automatiquement grâce au premier octet du datagramme (voir {@link #decoderAuto(ByteBuffer)}),
+ * ce qui permet à des clients et serveurs configurés différemment de communiquer.
+ */
+public interface CodecMessage {
+
+    /**
+     * Encode un message en tableau d'octets prêt à être envoyé dans un datagramme.
+     *
+     * @param message Le message à encoder.
+     * @return Les octets représentant le message.
+     * @throws IOException Si le message ne peut pas être encodé.
+     */
+    byte[] encoder(Message message) throws IOException;
+
+    /**
+     * Décode un message à partir d'un tampon.
+     *
+     * @param donnees Le tampon contenant le message, lu entre sa position et sa limite.
+     * @return Le message décodé.
+     * @throws IOException Si le contenu du tampon n'est pas un message valide.
+     */
+    Message decoder(ByteBuffer donnees) throws IOException;
+
+    /**
+     * Retourne le codec correspondant à un nom de format.
+     *
+     * @param nom "binaire" pour {@link CodecBinaire}, toute autre valeur pour {@link CodecJava}.
+     * @return Le codec demandé.
+     */
+    static CodecMessage depuisNom(String nom) {
+        return "binaire".equalsIgnoreCase(nom) ? CodecBinaire.INSTANCE : CodecJava.INSTANCE;
+    }
+
+    /**
+     * Retourne le codec choisi au démarrage via la propriété {@code jhal.codec}.
+     *
+     * @return Le codec à utiliser pour l'envoi des messages.
+     */
+    static CodecMessage depuisConfiguration() {
+        return depuisNom(Configuration.texte("jhal.codec", "java"));
+    }
+
+    /**
+     * Décode un message en reconnaissant son format à partir de son premier octet.
+     *
+     * @param donnees Le tampon contenant le message, lu entre sa position et sa limite.
+     * @return Le message décodé.
+     * @throws IOException Si le contenu du tampon n'est pas un message valide.
+     */
+    static Message decoderAuto(ByteBuffer donnees) throws IOException {
+        if (donnees.hasRemaining() && donnees.get(donnees.position()) == CodecBinaire.MAGIQUE) {
+            return CodecBinaire.INSTANCE.decoder(donnees);
+        }
+        return CodecJava.INSTANCE.decoder(donnees);
+    }
+
+    /**
+     * Lit le type d'un message sans le décoder, quel que soit son format, pour le classer avant son traitement.
+     *
+     * @param donnees Le tampon contenant le message, lu entre sa position et sa limite ; il n'est pas modifié.
+     * @return La classe du message, ou null si elle n'est pas reconnue.
+     */
+    static Class<? extends Message> typeAuto(ByteBuffer donnees) {
+        if (donnees.hasRemaining() && donnees.get(donnees.position()) == CodecBinaire.MAGIQUE) {
+            return CodecBinaire.type(donnees);
+        }
+        return CodecJava.type(donnees);
+    }
+
+    /**
+     * Lit l'identifiant de requête d'un message sans le décoder, quel que soit son format,
+     * pour reconnaître une retransmission ou répondre à une requête refusée sans la traiter.
+     *
+     * @param donnees Le tampon contenant le message, lu entre sa position et sa limite ; il n'est pas modifié.
+     * @return L'identifiant de requête, ou 0 s'il est absent ou illisible.
+     */
+    static long idRequeteAuto(ByteBuffer donnees) {
+        if (donnees.hasRemaining() && donnees.get(donnees.position()) == CodecBinaire.MAGIQUE) {
+            return CodecBinaire.idRequete(donnees);
+        }
+        return CodecJava.idRequete(donnees);
+    }
+}
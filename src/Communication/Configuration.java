@@ -0,0 +1,67 @@
+package Communication;
+
+/**
+ * Classe utilitaire regroupant la lecture des paramètres de démarrage.
+ * Les paramètres sont passés en propriétés système (par exemple {@code -Djhal.serveur.execution=virtuel})
+ * et possèdent tous une valeur par défaut utilisée lorsque la propriété est absente ou invalide.
+ */
+public final class Configuration {
+
+    private Configuration() {
+    }
+
+    /**
+     * Lit un paramètre textuel.
+     *
+     * @param cle    Le nom de la propriété système.
+     * @param defaut La valeur retournée si la propriété est absente.
+     * @return La valeur de la propriété ou la valeur par défaut.
+     */
+    public static String texte(String cle, String defaut) {
+        String valeur = System.getProperty(cle);
+        return (valeur == null || valeur.isBlank()) ? defaut : valeur.trim();
+    }
+
+    /**
+     * Lit un paramètre entier.
+     *
+     * @param cle    Le nom de la propriété système.
+     * @param defaut La valeur retournée si la propriété est absente ou n'est pas un entier.
+     * @return La valeur de la propriété ou la valeur par défaut.
+     */
+    public static int entier(String cle, int defaut) {
+        try {
+            return Integer.parseInt(texte(cle, String.valueOf(defaut)));
+        } catch (NumberFormatException e) {
+            System.err.println("Parametre " + cle + " invalide, valeur par defaut utilisee: " + defaut);
+            return defaut;
+        }
+    }
+
+    /**
+     * Lit un paramètre entier long.
+     *
+     * @param cle    Le nom de la propriété système.
+     * @param defaut La valeur retournée si la propriété est absente ou n'est pas un entier.
+     * @return La valeur de la propriété ou la valeur par défaut.
+     */
+    public static long entierLong(String cle, long defaut) {
+        try {
+            return Long.parseLong(texte(cle, String.valueOf(defaut)));
+        } catch (NumberFormatException e) {
+            System.err.println("Parametre " + cle + " invalide, valeur par defaut utilisee: " + defaut);
+            return defaut;
+        }
+    }
+
+    /**
+     * Lit un paramètre booléen ("true" ou "false").
+     *
+     * @param cle    Le nom de la propriété système.
+     * @param defaut La valeur retournée si la propriété est absente.
+     * @return La valeur de la propriété ou la valeur par défaut.
+     */
+    public static boolean booleen(String cle, boolean defaut) {
+        return Boolean.parseBoolean(texte(cle, String.valueOf(defaut)));
+    }
+}
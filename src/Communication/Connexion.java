@@ -23,7 +23,9 @@ public class Connexion extends Message {
      * <p>Cette méthode effectue deux actions principales :
      * <ul>
      *   <li>Vérifie si l'utilisateur est valide en appelant {@link Serveur#verifierClient(User)}.</li>
+     *   <li>Ouvre une session dont le jeton est renvoyé au client via {@link Serveur#ouvrirSession(User)}.</li>
      *   <li>Ajoute le client (adresse et port) à la liste des clients connectés via {@link Serveur#ajouterClientConnecte(InetAddress, int)}.</li>
+     *   <li>Retient cette adresse comme destination des avis personnels de l'utilisateur.</li>
      * </ul>
      * </p>
      *
@@ -35,9 +37,14 @@ public class Connexion extends Message {
     @Override
     public void traitementServeur(Serveur serveur, InetAddress clientAddress, int clientPort) {
         // Vérifie si l'utilisateur est inscrit et valide
-        serveur.verifierClient(getAuteur());
+        User utilisateur = serveur.verifierClient(getAuteur());
+
+        // Les messages suivants du client porteront ce jeton à la place de ses identifiants
+        setJeton(serveur.ouvrirSession(utilisateur));
+        setAuteur(null); // Le mot de passe n'est pas renvoyé au client
 
         // Ajoute le client à la liste des clients connectés
         serveur.ajouterClientConnecte(clientAddress, clientPort);
+        serveur.associerUtilisateur(utilisateur.getUsername(), clientAddress, clientPort);
     }
 }
@@ -3,7 +3,7 @@ package Communication;
 import java.net.InetAddress;
 
 /**
- * Classe représentant un message pour démarrer une enchère.
+ * Classe représentant un message pour démarrer une vente aux enchères.
  * Hérite de la classe {@link Message}.
  */
 public class DebutEnchere extends Message {
@@ -13,6 +13,11 @@ public class DebutEnchere extends Message {
      */
     protected boolean debutEnchere = false;
 
+    /**
+     * Identifiant de la vente démarrée (null : vente par défaut, voir {@link Vente}).
+     */
+    protected String vente;
+
     /**
      * Constructeur de la classe DebutEnchere.
      *
@@ -22,6 +27,25 @@ public class DebutEnchere extends Message {
         super(auteur);
     }
 
+    /**
+     * Constructeur pour démarrer une vente donnée.
+     *
+     * @param auteur L'utilisateur qui initie le début de la vente.
+     * @param vente  L'identifiant de la vente à démarrer.
+     */
+    public DebutEnchere(User auteur, String vente) {
+        super(auteur);
+        this.vente = vente;
+    }
+
+    public String getVente() {
+        return vente;
+    }
+
+    public void setVente(String vente) {
+        this.vente = vente;
+    }
+
     /**
      * Vérifie si l'enchère a débuté.
      *
@@ -45,9 +69,9 @@ public class DebutEnchere extends Message {
      *
      * <p>Cette méthode effectue plusieurs actions :
      * <ul>
-     *   <li>Vérifie que l'utilisateur qui initie l'enchère est valide via {@link Serveur#verifierClient(User)}.</li>
-     *   <li>Marque l'enchère comme commencée en appelant {@link Serveur#setDebutEnchere()}.</li>
-     *   <li>Met à jour l'état interne et informe les autres utilisateurs via une diffusion globale.</li>
+     *   <li>Vérifie que l'utilisateur qui initie l'enchère est valide via {@link Serveur#authentifier(Message)}.</li>
+     *   <li>Démarre la vente en appelant {@link Serveur#demarrerVente(String, User)}.</li>
+     *   <li>Met à jour l'état interne et informe les clients de la vente via {@link Serveur#diffuserVente(String, Message)}.</li>
      * </ul>
      * </p>
      *
@@ -58,17 +82,21 @@ public class DebutEnchere extends Message {
     @Override
     public void traitementServeur(Serveur serveur, InetAddress clientAddress, int clientPort) {
         // Vérifie si l'utilisateur est valide
-        serveur.verifierClient(getAuteur());
+        User commissaire = serveur.authentifier(this);
 
-        // Marque l'enchère comme commencée sur le serveur
-        serveur.setDebutEnchere();
+        // Démarre la vente sur le serveur
+        vente = Vente.normaliser(vente);
+        serveur.demarrerVente(vente, commissaire);
 
         // Met à jour l'état interne de l'objet
         setDebutEnchere(true);
         setSucces(true);
         setAuteur(null); // Réinitialise l'auteur pour éviter des fuites de données
 
-        // Diffuse un message global aux clients connectés
-        serveur.broadcastMessage(this);
+        // Diffuse une annonce distincte de la réponse, qui ne porte pas l'identifiant de requête du commissaire
+        DebutEnchere annonce = new DebutEnchere(null, vente);
+        annonce.setDebutEnchere(true);
+        annonce.setSucces(true);
+        serveur.diffuserVente(vente, annonce);
     }
 }
@@ -0,0 +1,39 @@
+package Communication;
+
+import java.net.InetAddress;
+
+/**
+ * Classe représentant la déconnexion explicite d'un client : sa session est fermée et son adresse ne reçoit plus
+ * aucun message diffusé (catalogue, lots surveillés, ventes suivies, avis personnels).
+ * Hérite de {@link Message}.
+ */
+public class Deconnexion extends Message {
+
+    /**
+     * Constructeur de la classe Deconnexion.
+     *
+     * @param auteur L'utilisateur qui se déconnecte.
+     */
+    public Deconnexion(User auteur) {
+        super(auteur);
+    }
+
+    /**
+     * Traite la déconnexion côté serveur : ferme la session du client puis retire son adresse des clients connectés.
+     *
+     * @param serveur       L'instance du serveur qui traite le message.
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort    Le port du client.
+     * @throws IllegalArgumentException Si le client n'est pas authentifié.
+     */
+    @Override
+    public void traitementServeur(Serveur serveur, InetAddress clientAddress, int clientPort) {
+        String jetonSession = getJeton();
+        serveur.authentifier(this);
+        if (jetonSession != null) {
+            serveur.fermerSession(jetonSession);
+        }
+        serveur.retirerClientConnecte(clientAddress, clientPort);
+        setAuteur(null); // Réinitialise l'auteur pour éviter des fuites de données
+    }
+}
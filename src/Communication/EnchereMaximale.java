@@ -0,0 +1,56 @@
+package Communication;
+
+import java.net.InetAddress;
+import java.util.List;
+
+/**
+ * Classe représentant une enchère maximale confiée au serveur : le prix courant du produit transporté
+ * est le montant maximal que l'acheteur accepte de payer. Le serveur surenchérit pour lui, d'un pas d'enchère,
+ * face aux offres concurrentes, jusqu'à ce montant.
+ *
+ * La réponse transporte l'état du produit après résolution (prix courant et meneur), jamais le maximum d'un autre acheteur.
+ * Hérite de {@link MessageAvecProduit}.
+ */
+public class EnchereMaximale extends MessageAvecProduit {
+
+    /**
+     * Constructeur de la classe EnchereMaximale.
+     *
+     * @param auteur  L'utilisateur qui confie son enchère maximale.
+     * @param produit Le produit visé, dont le prix courant porte le montant maximal.
+     */
+    public EnchereMaximale(User auteur, Produit produit) {
+        super(auteur, produit);
+    }
+
+    /**
+     * Traite l'enchère maximale côté serveur.
+     * Le nouveau prix n'est diffusé que s'il a changé depuis la version du produit connue du client.
+     *
+     * @param serveur       L'instance du serveur qui traite le message.
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort    Le port du client.
+     * @throws IllegalArgumentException Si la vente n'a pas commencé ou si le maximum est insuffisant.
+     */
+    @Override
+    public void traitementServeur(Serveur serveur, InetAddress clientAddress, int clientPort) {
+        if (serveur.getDebutEnchere(getProduit().getVente()) == null) {
+            throw new IllegalArgumentException("L'enchère n'a pas encore commencé");
+        }
+        User acheteur = serveur.authentifier(this);
+        long versionConnue = getProduit().getVersion();
+        getProduit().setUserAcheteur(acheteur.getUsername());
+        serveur.associerUtilisateur(acheteur.getUsername(), clientAddress, clientPort);
+
+        serveur.surveillerLots(List.of(getProduit().getCarId()), clientAddress, clientPort, true);
+        Produit resultat = serveur.encherirMax(getProduit());
+        if (resultat.getVersion() > versionConnue) {
+            new PrixMisAJour(resultat).traitementServeur(serveur);
+        }
+        setProduit(resultat);
+        setInfo(acheteur.getUsername().equals(resultat.getUserAcheteur())
+                ? "Vous etes en tete"
+                : "Votre maximum est depasse par celui du meneur");
+        setAuteur(null); // Réinitialise l'auteur pour éviter des fuites de données
+    }
+}
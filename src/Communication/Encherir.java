@@ -1,6 +1,7 @@
 package Communication;
 
 import java.net.InetAddress;
+import java.util.List;
 
 /**
  * Classe représentant une action d'enchère sur un produit.
@@ -23,10 +24,12 @@ public class Encherir extends MessageAvecProduit {
      *
      * <p>Cette méthode effectue les étapes suivantes :
      * <ul>
-     *   <li>Vérifie que l'enchère a commencé en appelant {@link Serveur#getDebutEnchere()}.</li>
-     *   <li>Valide l'utilisateur effectuant l'enchère via {@link Serveur#verifierClient(User)}.</li>
+     *   <li>Vérifie que la vente du produit a commencé en appelant {@link Serveur#getDebutEnchere(String)}.</li>
+     *   <li>Valide l'utilisateur effectuant l'enchère via {@link Serveur#authentifier(Message)} ; l'offre est faite à son nom.</li>
      *   <li>Met à jour le produit avec la nouvelle enchère en appelant {@link Serveur#encherir(Produit)}.</li>
-     *   <li>Diffuse une mise à jour à tous les utilisateurs via {@link MiseAJour#traitementServeur(Serveur)}.</li>
+     *   <li>Ajoute le lot à la liste de surveillance de l'enchérisseur.</li>
+     *   <li>Diffuse le nouveau prix aux clients de la vente via {@link PrixMisAJour#traitementServeur(Serveur)}.</li>
+     *   <li>Renvoie l'état du produit après l'offre, en prévenant l'enchérisseur si le maximum d'un autre acheteur la couvre.</li>
      * </ul>
      * </p>
      *
@@ -37,24 +40,31 @@ public class Encherir extends MessageAvecProduit {
      */
     @Override
     public void traitementServeur(Serveur serveur, InetAddress clientAddress, int clientPort) {
-        // Vérifie si l'enchère a commencé
-        if (serveur.getDebutEnchere() == null) {
+        // Vérifie si la vente du produit a commencé ; le livre des enchères le vérifie aussi pour la vente réelle du lot
+        if (serveur.getDebutEnchere(getProduit().getVente()) == null) {
             throw new IllegalArgumentException("L'enchère n'a pas encore commencé");
         }
 
-        // Vérifie la validité de l'utilisateur
-        serveur.verifierClient(getAuteur());
+        // Vérifie la validité de l'utilisateur, qui sera prévenu à cette adresse si son offre est dépassée ;
+        // l'offre est faite au nom de l'utilisateur authentifié, jamais de l'acheteur indiqué par le client
+        User acheteur = serveur.authentifier(this);
+        getProduit().setUserAcheteur(acheteur.getUsername());
+        serveur.associerUtilisateur(acheteur.getUsername(), clientAddress, clientPort);
+
+        // L'enchérisseur surveille désormais le lot et en reçoit les mises à jour de prix
+        serveur.surveillerLots(List.of(getProduit().getCarId()), clientAddress, clientPort, true);
 
         // Effectue l'enchère et récupère le produit mis à jour
         Produit produitAJour = serveur.encherir(getProduit());
 
-        // Crée une mise à jour et la traite côté serveur
-        new MiseAJour(
-                produitAJour,
-                "Nouvelle offre effectuée par " + getAuteur().getUsername() +
-                        "\nSur le produit : " + produitAJour.getCarId() +
-                        " au prix de : " + produitAJour.getPrixCourant()
-        ).traitementServeur(serveur);
+        // Diffuse uniquement le nouveau prix du produit aux clients de sa vente
+        new PrixMisAJour(produitAJour).traitementServeur(serveur);
+
+        // La réponse porte l'état du lot après l'offre : le maximum d'un autre acheteur a pu la couvrir aussitôt
+        setProduit(produitAJour);
+        if (!acheteur.getUsername().equals(produitAJour.getUserAcheteur())) {
+            setInfo("Votre offre est aussitot depassee par une enchere maximale");
+        }
 
         // Marque le message comme traité avec succès
         setSucces(true);
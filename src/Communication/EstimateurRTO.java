@@ -0,0 +1,76 @@
+package Communication;
+
+/**
+ * Estime le délai de retransmission (RTO) d'une requête à partir des temps d'aller-retour mesurés,
+ * selon la méthode de la RFC 6298 : moyenne lissée (SRTT) et variation (RTTVAR) des mesures,
+ * avec RTO = SRTT + 4 × RTTVAR borné entre un minimum et un maximum.
+ *
+ * Seules les requêtes qui n'ont pas été retransmises doivent fournir une mesure (algorithme de Karn) :
+ * la réponse à une requête retransmise ne permet pas de savoir quel envoi elle acquitte.
+ */
+public class EstimateurRTO {
+
+    private static final double ALPHA = 1.0 / 8;
+    private static final double BETA = 1.0 / 4;
+
+    private final long minimumMillis;
+    private final long maximumMillis;
+    private double srtt = -1;
+    private double rttvar;
+    private long rto;
+
+    /**
+     * Construit l'estimateur.
+     *
+     * @param initialMillis Le délai utilisé avant la première mesure.
+     * @param minimumMillis Le délai minimal.
+     * @param maximumMillis Le délai maximal.
+     */
+    public EstimateurRTO(long initialMillis, long minimumMillis, long maximumMillis) {
+        this.minimumMillis = minimumMillis;
+        this.maximumMillis = maximumMillis;
+        this.rto = borner(initialMillis);
+    }
+
+    /**
+     * Prend en compte une mesure de temps d'aller-retour.
+     *
+     * @param rttMillis Le temps écoulé entre l'envoi d'une requête et la réception de sa réponse.
+     */
+    public synchronized void echantillon(double rttMillis) {
+        if (srtt < 0) {
+            srtt = rttMillis;
+            rttvar = rttMillis / 2;
+        } else {
+            rttvar = (1 - BETA) * rttvar + BETA * Math.abs(srtt - rttMillis);
+            srtt = (1 - ALPHA) * srtt + ALPHA * rttMillis;
+        }
+        rto = borner((long) Math.ceil(srtt + 4 * rttvar));
+    }
+
+    /**
+     * @return Le délai de retransmission courant, en millisecondes.
+     */
+    public synchronized long getRto() {
+        return rto;
+    }
+
+    /**
+     * Calcule le délai de la retransmission suivante (recul exponentiel), sans dépasser le maximum.
+     *
+     * @param delaiMillis Le délai de la retransmission précédente.
+     * @return Le délai suivant.
+     */
+    public long reculer(long delaiMillis) {
+        return borner(delaiMillis * 2);
+    }
+
+    private long borner(long delaiMillis) {
+        return Math.max(minimumMillis, Math.min(maximumMillis, delaiMillis));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "EstimateurRTO{srtt=" + Math.round(srtt) + ", rttvar=" + Math.round(rttvar) + ", rto=" + rto + '}';
+    }
+}
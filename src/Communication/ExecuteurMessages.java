@@ -0,0 +1,370 @@
+package Communication;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exécute le traitement des messages reçus par le serveur avec un nombre borné de tâches en attente.
+ *
+ * <p>Deux modes sont disponibles, choisis au démarrage :
+ * <ul>
+ *   <li>{@link Mode#POOL} : un nombre fixe de threads plateforme, chaque voie ayant une file bornée.</li>
+ *   <li>{@link Mode#VIRTUEL} : un thread virtuel démarré pour chaque tâche, le nombre de tâches acceptées
+ *   (en cours ou en attente de leur voie) étant borné.</li>
+ * </ul>
+ * </p>
+ *
+ * Chaque tâche est rangée dans la file de sa {@link Voie}. La prochaine tâche exécutée est toujours la plus ancienne
+ * de la voie la plus prioritaire : les enchères passent avant le catalogue, qui passe avant les consultations.
+ * Les voies secondaires ont un nombre limité de tâches simultanées, ce qui laisse toujours des threads aux enchères.
+ * Une tâche d'une voie secondaire qui a attendu plus que l'attente maximale n'est pas exécutée : son action de refus
+ * l'est à la place, pour que le client reçoive aussitôt un échec et réessaie plus tard.
+ *
+ * Lorsque la capacité est atteinte, la tâche est refusée et {@link #soumettre(Voie, Runnable, Runnable)}
+ * retourne {@code false} : c'est à l'appelant de prévenir le client.
+ */
+public class ExecuteurMessages {
+
+    /**
+     * Voie de traitement d'un message, de la plus prioritaire à la moins prioritaire.
+     */
+    public enum Voie {
+        /** Enchères, pilotage des ventes et sessions. */
+        ENCHERES,
+        /** Catalogue des produits. */
+        CATALOGUE,
+        /** Historique, réclamations et inscriptions. */
+        CONSULTATION
+    }
+
+    /**
+     * Tâche en attente, avec l'action exécutée à sa place si elle a trop attendu.
+     */
+    private record Tache(Runnable execution, Runnable refus, long depotNanos) {
+    }
+
+    /**
+     * File d'une voie ; ses champs sont protégés par le verrou de l'exécuteur.
+     */
+    private static final class File {
+        private final Voie voie;
+        private final ArrayDeque<Tache> taches = new ArrayDeque<>();
+        private final int limite; // Tâches simultanées au maximum
+        private int enCours;
+        private final AtomicLong delestes = new AtomicLong(); // Tâches refusées après une attente trop longue
+
+        private File(Voie voie, int limite) {
+            this.voie = voie;
+            this.limite = limite;
+        }
+    }
+
+    /**
+     * Mode d'exécution des tâches.
+     */
+    public enum Mode {
+        POOL, VIRTUEL;
+
+        /**
+         * Convertit le nom d'un mode (insensible à la casse) en {@link Mode}.
+         *
+         * @param nom Le nom du mode.
+         * @return Le mode correspondant, {@link #POOL} si le nom est inconnu.
+         */
+        public static Mode depuisNom(String nom) {
+            for (Mode mode : values()) {
+                if (mode.name().equalsIgnoreCase(nom)) {
+                    return mode;
+                }
+            }
+            return POOL;
+        }
+    }
+
+    private final Mode mode;
+    private final int capacite;
+    private final long attenteMaxNanos; // 0 : les voies secondaires ne sont jamais délestées
+    private final File[] files = new File[Voie.values().length];
+    private final ReentrantLock verrou = new ReentrantLock();
+    private final Condition disponible = verrou.newCondition(); // Signalée lorsqu'une tâche peut être prise (mode POOL)
+    private final Thread[] threads; // Threads du pool, aucun en mode VIRTUEL
+    private final ThreadFactory virtuels; // Threads des tâches en mode VIRTUEL, null en mode POOL
+    private boolean arrete; // Protégé par le verrou
+    private int acceptees; // Tâches en attente ou en cours en mode VIRTUEL, protégé par le verrou
+
+    private final AtomicInteger enCours = new AtomicInteger();
+    private final AtomicLong traites = new AtomicLong();
+    private final AtomicLong rejets = new AtomicLong();
+
+    /**
+     * Construit un exécuteur de messages dont les voies secondaires ne sont pas limitées.
+     *
+     * @param mode     Le mode d'exécution.
+     * @param threads  Le nombre de threads du pool (ignoré en mode VIRTUEL).
+     * @param capacite Le nombre maximal de tâches en attente par voie (mode POOL) ou acceptées (mode VIRTUEL).
+     */
+    public ExecuteurMessages(Mode mode, int threads, int capacite) {
+        this(mode, threads, capacite, Integer.MAX_VALUE, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * Construit un exécuteur de messages.
+     *
+     * @param mode               Le mode d'exécution.
+     * @param threads            Le nombre de threads du pool (ignoré en mode VIRTUEL).
+     * @param capacite           Le nombre maximal de tâches en attente par voie (mode POOL), ou acceptées toutes voies
+     *                           confondues, en cours ou en attente (mode VIRTUEL).
+     * @param limiteCatalogue    Le nombre maximal de tâches simultanées de la voie {@link Voie#CATALOGUE}.
+     * @param limiteConsultation Le nombre maximal de tâches simultanées de la voie {@link Voie#CONSULTATION}.
+     * @param attenteMaxMillis   L'attente au-delà de laquelle une tâche d'une voie secondaire est refusée, 0 pour aucune.
+     */
+    public ExecuteurMessages(Mode mode, int threads, int capacite, int limiteCatalogue, int limiteConsultation, long attenteMaxMillis) {
+        this.mode = mode;
+        this.capacite = capacite;
+        this.attenteMaxNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(attenteMaxMillis, 0));
+        files[Voie.ENCHERES.ordinal()] = new File(Voie.ENCHERES, Integer.MAX_VALUE);
+        files[Voie.CATALOGUE.ordinal()] = new File(Voie.CATALOGUE, Math.max(limiteCatalogue, 1));
+        files[Voie.CONSULTATION.ordinal()] = new File(Voie.CONSULTATION, Math.max(limiteConsultation, 1));
+        this.virtuels = mode == Mode.VIRTUEL ? fabriqueVirtuelle() : null;
+        this.threads = new Thread[mode == Mode.VIRTUEL ? 0 : threads];
+        for (int i = 0; i < this.threads.length; i++) {
+            this.threads[i] = new Thread(this::travailler, "serveur-worker-" + i);
+            this.threads[i].start();
+        }
+    }
+
+    /**
+     * Crée la fabrique des threads virtuels. Elle est obtenue par réflexion pour que le serveur compile et tourne
+     * aussi sur Java 17 : sans threads virtuels (Java 21), le mode VIRTUEL démarre un thread plateforme par tâche.
+     *
+     * @return La fabrique des threads des tâches du mode VIRTUEL.
+     */
+    private static ThreadFactory fabriqueVirtuelle() {
+        try {
+            Class<?> constructeur = Class.forName("java.lang.Thread$Builder");
+            Object virtuel = Thread.class.getMethod("ofVirtual").invoke(null);
+            virtuel = constructeur.getMethod("name", String.class, long.class).invoke(virtuel, "serveur-virtuel-", 0L);
+            return (ThreadFactory) constructeur.getMethod("factory").invoke(virtuel);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("Threads virtuels indisponibles (Java 21 requis), threads plateforme utilises");
+            AtomicLong numero = new AtomicLong();
+            return tache -> new Thread(tache, "serveur-virtuel-" + numero.getAndIncrement());
+        }
+    }
+
+    /**
+     * Soumet une tâche à la voie des enchères.
+     *
+     * @param tache La tâche à exécuter.
+     * @return {@code true} si la tâche a été acceptée, {@code false} si la capacité est atteinte.
+     */
+    public boolean soumettre(Runnable tache) {
+        return soumettre(Voie.ENCHERES, tache, () -> {});
+    }
+
+    /**
+     * Soumet une tâche à une voie.
+     * Une tâche d'une voie secondaire est refusée d'emblée si la plus ancienne tâche de sa voie attend déjà
+     * depuis plus que l'attente maximale.
+     *
+     * @param voie      La voie de la tâche.
+     * @param execution La tâche à exécuter.
+     * @param refus     L'action exécutée à la place de la tâche si elle a trop attendu dans sa file.
+     * @return {@code true} si la tâche a été acceptée, {@code false} si elle est refusée.
+     */
+    public boolean soumettre(Voie voie, Runnable execution, Runnable refus) {
+        File file = files[voie.ordinal()];
+        long maintenant = System.nanoTime();
+        verrou.lock();
+        try {
+            boolean plein = mode == Mode.VIRTUEL ? acceptees >= capacite : file.taches.size() >= capacite;
+            if (arrete || plein || perimee(file, file.taches.peek(), maintenant)) {
+                rejets.incrementAndGet();
+                return false;
+            }
+            file.taches.add(new Tache(execution, refus, maintenant));
+            if (mode == Mode.VIRTUEL) {
+                acceptees++;
+                lancer();
+            } else {
+                disponible.signal();
+            }
+            return true;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Indique si une tâche d'une voie secondaire a attendu plus que l'attente maximale.
+     */
+    private boolean perimee(File file, Tache tache, long maintenant) {
+        return tache != null && file.voie != Voie.ENCHERES && attenteMaxNanos > 0 && maintenant - tache.depotNanos() > attenteMaxNanos;
+    }
+
+    /**
+     * Retourne la voie la plus prioritaire qui a une tâche en attente et n'a pas atteint sa limite.
+     * Doit être appelée sous le verrou.
+     */
+    private File prochaineFile() {
+        for (File file : files) {
+            if (!file.taches.isEmpty() && file.enCours < file.limite) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Démarre un thread virtuel pour chaque tâche qui peut être exécutée, dans l'ordre des voies (mode VIRTUEL).
+     * Doit être appelée sous le verrou.
+     */
+    private void lancer() {
+        File file;
+        while ((file = prochaineFile()) != null) {
+            Tache tache = file.taches.poll();
+            file.enCours++;
+            File voie = file;
+            virtuels.newThread(() -> executer(voie, tache)).start();
+        }
+    }
+
+    /**
+     * Boucle d'un thread du pool : prend la prochaine tâche et l'exécute (mode POOL).
+     * Après l'arrêt, les tâches déjà acceptées sont encore exécutées.
+     */
+    private void travailler() {
+        while (true) {
+            File file;
+            Tache tache;
+            verrou.lock();
+            try {
+                while ((file = prochaineFile()) == null) {
+                    if (arrete) {
+                        return;
+                    }
+                    disponible.await();
+                }
+                tache = file.taches.poll();
+                file.enCours++;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                verrou.unlock();
+            }
+            executer(file, tache);
+        }
+    }
+
+    /**
+     * Exécute une tâche prise dans sa voie, ou la refuse si elle a trop attendu, puis libère sa place dans la voie.
+     */
+    private void executer(File file, Tache tache) {
+        enCours.incrementAndGet();
+        try {
+            if (perimee(file, tache, System.nanoTime())) {
+                file.delestes.incrementAndGet();
+                tache.refus().run();
+            } else {
+                tache.execution().run();
+                traites.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error handling message: " + e.getMessage());
+        } finally {
+            enCours.decrementAndGet();
+            verrou.lock();
+            try {
+                file.enCours--;
+                // Une tâche de cette voie, retenue par sa limite, peut maintenant être prise
+                if (mode == Mode.VIRTUEL) {
+                    acceptees--;
+                    lancer();
+                } else {
+                    disponible.signal();
+                }
+            } finally {
+                verrou.unlock();
+            }
+        }
+    }
+
+    /**
+     * Retourne le nombre de tâches en attente d'exécution, toutes voies confondues.
+     *
+     * @return La profondeur des files.
+     */
+    public int getProfondeurFile() {
+        verrou.lock();
+        try {
+            int profondeur = 0;
+            for (File file : files) {
+                profondeur += file.taches.size();
+            }
+            return profondeur;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * @return Le nombre de tâches en cours d'exécution.
+     */
+    public int getEnCours() {
+        return enCours.get();
+    }
+
+    /**
+     * @return Le nombre total de tâches terminées.
+     */
+    public long getTraites() {
+        return traites.get();
+    }
+
+    /**
+     * @return Le nombre total de tâches refusées à la soumission, faute de place ou parce que leur voie est en retard.
+     */
+    public long getRejets() {
+        return rejets.get();
+    }
+
+    /**
+     * @param voie La voie.
+     * @return Le nombre de tâches de la voie refusées après une attente trop longue.
+     */
+    public long getDelestes(Voie voie) {
+        return files[voie.ordinal()].delestes.get();
+    }
+
+    /**
+     * Arrête l'exécuteur : les tâches déjà acceptées se terminent, les nouvelles sont refusées.
+     */
+    public void arreter() {
+        verrou.lock();
+        try {
+            arrete = true;
+            disponible.signalAll();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ExecuteurMessages{" +
+                "mode=" + mode +
+                ", capacite=" + capacite +
+                ", file=" + getProfondeurFile() +
+                ", enCours=" + getEnCours() +
+                ", traites=" + getTraites() +
+                ", rejets=" + getRejets() +
+                ", delestesCatalogue=" + getDelestes(Voie.CATALOGUE) +
+                ", delestesConsultation=" + getDelestes(Voie.CONSULTATION) +
+                '}';
+    }
+}
@@ -0,0 +1,43 @@
+package Communication;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Flux d'entrée lisant directement le contenu d'un {@link ByteBuffer}, sans copie intermédiaire.
+ * Permet de désérialiser un message à partir d'un tampon reçu par un {@link java.nio.channels.DatagramChannel}.
+ */
+public class FluxTampon extends InputStream {
+
+    private final ByteBuffer tampon;
+
+    /**
+     * @param tampon Le tampon à lire, entre sa position et sa limite.
+     */
+    public FluxTampon(ByteBuffer tampon) {
+        this.tampon = tampon;
+    }
+
+    @Override
+    public int read() {
+        return tampon.hasRemaining() ? tampon.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (!tampon.hasRemaining()) {
+            return -1;
+        }
+        int n = Math.min(len, tampon.remaining());
+        tampon.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return tampon.remaining();
+    }
+}
@@ -0,0 +1,112 @@
+package Communication;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.StandardSocketOptions;
+
+/**
+ * Groupe IP multicast optionnel sur lequel le serveur publie les messages publics de la vente par défaut
+ * ({@link MiseAJour}, {@link DebutEnchere}, {@link FinEnchere}) : un seul datagramme par événement,
+ * quel que soit le nombre de clients. Les réponses et les messages ciblés restent en unicast.
+ *
+ * Le groupe est désactivé tant que {@code jhal.multicast.groupe} n'est pas renseigné ; serveur et clients
+ * doivent utiliser la même configuration. Pour un essai sur une seule machine, choisir l'interface de boucle
+ * locale ({@code -Djhal.multicast.interface=lo}).
+ */
+public final class GroupeMulticast {
+
+    private final InetSocketAddress adresse;
+    private final NetworkInterface interfaceReseau; // null : interface choisie par le système
+    private final int ttl;
+
+    /**
+     * Construit la description d'un groupe multicast.
+     *
+     * @param groupe          L'adresse du groupe (par exemple 239.1.2.3).
+     * @param port            Le port du groupe.
+     * @param interfaceReseau L'interface réseau utilisée, ou null pour celle choisie par le système.
+     * @param ttl             La portée des datagrammes émis (1 : réseau local).
+     * @throws IllegalArgumentException Si l'adresse n'est pas une adresse multicast.
+     */
+    public GroupeMulticast(InetAddress groupe, int port, NetworkInterface interfaceReseau, int ttl) {
+        if (!groupe.isMulticastAddress()) {
+            throw new IllegalArgumentException("Adresse de groupe multicast invalide: " + groupe);
+        }
+        this.adresse = new InetSocketAddress(groupe, port);
+        this.interfaceReseau = interfaceReseau;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Lit le groupe multicast dans la configuration.
+     *
+     * @return Le groupe configuré, ou null si le multicast est désactivé ou mal configuré.
+     */
+    public static GroupeMulticast depuisConfiguration() {
+        String groupe = Configuration.texte("jhal.multicast.groupe", "");
+        if (groupe.isEmpty()) {
+            return null;
+        }
+        try {
+            String nomInterface = Configuration.texte("jhal.multicast.interface", "");
+            NetworkInterface interfaceReseau = null;
+            if (!nomInterface.isEmpty()) {
+                interfaceReseau = NetworkInterface.getByName(nomInterface);
+                if (interfaceReseau == null) {
+                    throw new IllegalArgumentException("Interface reseau inconnue: " + nomInterface);
+                }
+            }
+            return new GroupeMulticast(InetAddress.getByName(groupe), Configuration.entier("jhal.multicast.port", 9877),
+                    interfaceReseau, Configuration.entier("jhal.multicast.ttl", 1));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Multicast desactive, configuration invalide: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public InetSocketAddress getAdresse() {
+        return adresse;
+    }
+
+    /**
+     * Prépare un socket à émettre vers le groupe : portée des datagrammes, interface d'émission,
+     * et retour local pour que les clients de la même machine reçoivent les messages.
+     *
+     * @param socket Le socket d'émission du serveur.
+     * @throws IOException Si une option ne peut pas être appliquée.
+     */
+    public void configurerEmission(DatagramSocket socket) throws IOException {
+        socket.setOption(StandardSocketOptions.IP_MULTICAST_TTL, ttl);
+        socket.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true);
+        if (interfaceReseau != null) {
+            socket.setOption(StandardSocketOptions.IP_MULTICAST_IF, interfaceReseau);
+        }
+    }
+
+    /**
+     * Ouvre un socket lié au port du groupe et le joint au groupe. Plusieurs clients d'une même machine
+     * peuvent rejoindre le groupe en même temps.
+     *
+     * @return Le socket de réception du groupe.
+     * @throws IOException Si le socket ne peut pas être ouvert ou le groupe rejoint.
+     */
+    public MulticastSocket rejoindre() throws IOException {
+        MulticastSocket socket = new MulticastSocket(adresse.getPort());
+        try {
+            socket.joinGroup(adresse, interfaceReseau);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return socket;
+    }
+
+    @Override
+    public String toString() {
+        return "GroupeMulticast{adresse=" + adresse + ", interface=" + (interfaceReseau == null ? "systeme" : interfaceReseau.getName()) + ", ttl=" + ttl + '}';
+    }
+}
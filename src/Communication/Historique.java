@@ -58,7 +58,7 @@ public class Historique extends Message {
      * @param clientPort    Le port du client ayant envoyé la demande.
      */
     public void traitementServeur(Serveur serveur, InetAddress clientAddress, int clientPort) {
-        serveur.verifierClient(getAuteur());
+        serveur.authentifier(this);
         setHistoryDetailsList(serveur.demanderHistorique(getAuteur()));
     }
 
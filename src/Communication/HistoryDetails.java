@@ -27,16 +27,16 @@ public class HistoryDetails implements Serializable {
     protected String interaction_time;
 
     /**
-     * Montant de l'enchère effectuée.
+     * Montant de l'enchère effectuée, en centimes.
      */
-    protected double bid_amount;
+    protected long bid_amount;
 
     /**
      * Récupère le montant de l'enchère.
      *
-     * @return Le montant de l'enchère.
+     * @return Le montant de l'enchère, en centimes.
      */
-    public double getBid_amount() {
+    public long getBid_amount() {
         return bid_amount;
     }
 
@@ -74,9 +74,9 @@ public class HistoryDetails implements Serializable {
      * @param id               L'identifiant unique de l'enchère.
      * @param car_id           L'identifiant du produit (véhicule) concerné.
      * @param interaction_time L'heure à laquelle l'enchère a été effectuée.
-     * @param bid_amount       Le montant de l'enchère effectuée.
+     * @param bid_amount       Le montant de l'enchère effectuée, en centimes.
      */
-    public HistoryDetails(int id, String car_id, String interaction_time, double bid_amount) {
+    public HistoryDetails(int id, String car_id, String interaction_time, long bid_amount) {
         this.id = id;
         this.car_id = car_id;
         this.interaction_time = interaction_time;
@@ -94,7 +94,7 @@ public class HistoryDetails implements Serializable {
         return  "\n enchère numéro : " + id +
                 ",\n car_id : " + car_id  +
                 ",\n date de l'interaction: " + interaction_time +
-                ",\n montant de l'enchérissement : " + bid_amount ;
+                ",\n montant de l'enchérissement : " + Montant.formater(bid_amount) ;
     }
 }
 
@@ -0,0 +1,168 @@
+package Communication;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limiteur de débit des requêtes reçues par le serveur, par type de message et par origine
+ * (adresse et port d'un client, ou utilisateur authentifié).
+ *
+ * Chaque couple (origine, type) dispose d'un seau de jetons : il se remplit au débit autorisé jusqu'à la rafale
+ * autorisée, et chaque requête en consomme un. Le seau est un simple {@link AtomicLong} contenant l'instant
+ * théorique auquel il sera de nouveau plein ; une requête l'avance d'un intervalle par compare-and-set, sans verrou.
+ *
+ * Les limites se règlent par type avec {@code jhal.limite.<Type>} (par exemple {@code -Djhal.limite.Encherir=10/20}
+ * pour 10 requêtes par seconde et des rafales de 20), {@code jhal.limite.defaut} s'appliquant aux autres types.
+ * Une limite de {@code 0} désactive le contrôle pour ce type.
+ */
+public class LimiteurDebit {
+
+    private static final int SEAUX_MAX = 65536; // Au-delà, les seaux pleins sont oubliés
+
+    /**
+     * Débit autorisé pour un type de message.
+     *
+     * @param intervalleNanos Le temps de remplissage d'un jeton, 0 si le type n'est pas limité.
+     * @param toleranceNanos  L'avance maximale du seau sur l'instant présent, qui fixe la rafale autorisée.
+     */
+    private record Limite(long intervalleNanos, long toleranceNanos) {
+    }
+
+    /**
+     * Seau d'une origine pour un type de message.
+     */
+    private record Cle(Object origine, Class<?> type) {
+    }
+
+    private final Map<Class<?>, Limite> limites = new ConcurrentHashMap<>();
+    private final Map<Cle, AtomicLong> seaux = new ConcurrentHashMap<>(); // Instant (ns) auquel chaque seau sera plein
+    private final AtomicBoolean purgeEnCours = new AtomicBoolean();
+    private final String texteDefaut;
+    private final Limite limiteDefaut;
+    private final AtomicLong refus = new AtomicLong();
+
+    /**
+     * Construit le limiteur à partir de la configuration.
+     */
+    public LimiteurDebit() {
+        String defaut = Configuration.texte("jhal.limite.defaut", "50/100");
+        try {
+            creerLimite(defaut);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Parametre jhal.limite.defaut invalide, valeur par defaut utilisee: 50/100");
+            defaut = "50/100";
+        }
+        this.texteDefaut = defaut; // Valeur de repli d'une limite de type invalide
+        this.limiteDefaut = creerLimite(defaut);
+        // Requêtes coûteuses (hachage, base de données) ou sensibles : limites plus strictes par défaut
+        limites.put(Connexion.class, lireLimite("jhal.limite.Connexion", "1/5"));
+        limites.put(Inscription.class, lireLimite("jhal.limite.Inscription", "1/3"));
+        limites.put(Encherir.class, lireLimite("jhal.limite.Encherir", "10/20"));
+        limites.put(EnchereMaximale.class, lireLimite("jhal.limite.EnchereMaximale", "10/20"));
+    }
+
+    /**
+     * Lit une limite de la forme {@code debit/rafale} (ou {@code debit}, la rafale valant alors le débit).
+     */
+    private static Limite lireLimite(String cle, String defaut) {
+        String valeur = Configuration.texte(cle, defaut);
+        try {
+            return creerLimite(valeur);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Parametre " + cle + " invalide, valeur par defaut utilisee: " + defaut);
+            return creerLimite(defaut);
+        }
+    }
+
+    private static Limite creerLimite(String valeur) {
+        int separateur = valeur.indexOf('/');
+        double debit = Double.parseDouble(separateur < 0 ? valeur : valeur.substring(0, separateur).trim());
+        int rafale = separateur < 0 ? (int) Math.ceil(debit) : Integer.parseInt(valeur.substring(separateur + 1).trim());
+        if (debit < 0 || Double.isNaN(debit) || Double.isInfinite(debit) || rafale < 0) {
+            throw new IllegalArgumentException("Limite invalide: " + valeur);
+        }
+        if (debit == 0) {
+            return new Limite(0, 0);
+        }
+        long intervalle = Math.max((long) (TimeUnit.SECONDS.toNanos(1) / debit), 1);
+        return new Limite(intervalle, intervalle * Math.max(rafale, 1));
+    }
+
+    /**
+     * Retourne la limite d'un type : celle réglée pour lui, sinon la limite par défaut.
+     */
+    private Limite limite(Class<?> type) {
+        if (type == null) {
+            return limiteDefaut;
+        }
+        return limites.computeIfAbsent(type, t -> {
+            String cle = "jhal.limite." + t.getSimpleName();
+            return Configuration.texte(cle, "").isEmpty() ? limiteDefaut : lireLimite(cle, texteDefaut);
+        });
+    }
+
+    /**
+     * Consomme un jeton du seau d'une origine pour un type de message.
+     *
+     * @param origine L'origine de la requête (adresse et port du client, ou nom de l'utilisateur).
+     * @param type    Le type du message, ou null s'il n'a pas pu être lu.
+     * @return {@code true} si la requête peut être traitée, {@code false} si l'origine dépasse son débit.
+     */
+    public boolean autoriser(Object origine, Class<?> type) {
+        Limite limite = limite(type);
+        if (limite.intervalleNanos() == 0) {
+            return true;
+        }
+        long maintenant = System.nanoTime();
+        Cle cle = new Cle(origine, type);
+        AtomicLong seau = seaux.get(cle);
+        if (seau == null) {
+            if (seaux.size() >= SEAUX_MAX) {
+                purger();
+            }
+            seau = seaux.computeIfAbsent(cle, c -> new AtomicLong(maintenant)); // Seau neuf : plein
+        }
+        while (true) {
+            long plein = seau.get();
+            // Un seau plein ne se remplit pas davantage : la rafale reste bornée
+            long suivant = Math.max(plein - maintenant, 0) + maintenant + limite.intervalleNanos();
+            if (suivant - maintenant > limite.toleranceNanos()) {
+                refus.incrementAndGet();
+                return false;
+            }
+            if (seau.compareAndSet(plein, suivant)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Oublie les seaux pleins, qui se comportent comme des seaux neufs. Un seul thread purge à la fois.
+     */
+    private void purger() {
+        if (!purgeEnCours.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long maintenant = System.nanoTime();
+            seaux.values().removeIf(seau -> seau.get() - maintenant <= 0);
+        } finally {
+            purgeEnCours.set(false);
+        }
+    }
+
+    /**
+     * @return Le nombre total de requêtes refusées.
+     */
+    public long getRefus() {
+        return refus.get();
+    }
+
+    @Override
+    public String toString() {
+        return "LimiteurDebit{seaux=" + seaux.size() + ", refus=" + refus.get() + '}';
+    }
+}
@@ -26,6 +26,12 @@ public abstract class Message implements Serializable {
     /** Information complémentaire à propos du message */
     protected String info;
 
+    /** Jeton de session remplaçant l'auteur une fois l'utilisateur connecté (null sinon) */
+    protected String jeton;
+
+    /** Identifiant de la requête, recopié dans la réponse du serveur (0 pour un message diffusé par le serveur) */
+    protected long idRequete;
+
     /**
      * Constructeur de la classe Message.
      *
@@ -128,6 +134,43 @@ public abstract class Message implements Serializable {
         this.info = info;
     }
 
+    /**
+     * Retourne l'identifiant de la requête à laquelle ce message appartient.
+     * Le serveur renvoie la réponse avec le même identifiant, ce qui permet au client de l'associer à sa requête.
+     *
+     * @return L'identifiant de requête, ou 0 pour un message diffusé par le serveur.
+     */
+    public long getIdRequete() {
+        return idRequete;
+    }
+
+    /**
+     * Définit l'identifiant de la requête à laquelle ce message appartient.
+     *
+     * @param idRequete L'identifiant de requête.
+     */
+    public void setIdRequete(long idRequete) {
+        this.idRequete = idRequete;
+    }
+
+    /**
+     * Retourne le jeton de session qui authentifie ce message.
+     *
+     * @return Le jeton de session, ou null si le message est authentifié par son auteur.
+     */
+    public String getJeton() {
+        return jeton;
+    }
+
+    /**
+     * Définit le jeton de session qui authentifie ce message.
+     *
+     * @param jeton Le jeton de session délivré par le serveur à la connexion.
+     */
+    public void setJeton(String jeton) {
+        this.jeton = jeton;
+    }
+
     /**
      * Méthode abstraite qui définit le traitement spécifique du message côté serveur.
      * Chaque type de message doit fournir son propre traitement via cette méthode.
@@ -0,0 +1,149 @@
+package Communication;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Message déjà encodé, prêt à être envoyé à un ou plusieurs destinataires.
+ * Le contenu n'est jamais modifié après sa création : la même instance peut être envoyée
+ * à tous les clients d'une diffusion ou réutilisée pour plusieurs réponses identiques.
+ */
+public final class MessageEncode {
+
+    private final byte[] octets;
+    private final int positionIdRequete; // Position de l'identifiant de requête d'un flux Java sérialisé, -1 si inconnue
+
+    private MessageEncode(byte[] octets) {
+        this(octets, -1);
+    }
+
+    private MessageEncode(byte[] octets, int positionIdRequete) {
+        this.octets = octets;
+        this.positionIdRequete = positionIdRequete;
+    }
+
+    /**
+     * Encode un message une seule fois.
+     *
+     * @param codec   Le codec à utiliser.
+     * @param message Le message à encoder.
+     * @return Le message encodé.
+     * @throws IOException Si le message ne peut pas être encodé.
+     */
+    public static MessageEncode de(CodecMessage codec, Message message) throws IOException {
+        return new MessageEncode(codec.encoder(message));
+    }
+
+    /**
+     * Encode une seule fois un message destiné à être réutilisé pour plusieurs requêtes avec {@link #avecIdRequete(long)}.
+     *
+     * Au format binaire, l'identifiant de requête est à une position fixe de l'en-tête. En sérialisation Java,
+     * le message est encodé avec un identifiant aléatoire, dont la position dans le flux est retenue : les champs
+     * {@code long} y sont écrits tels quels, sur 8 octets. Si cet identifiant n'apparaît pas exactement une fois,
+     * le contenu n'est pas réutilisable.
+     *
+     * @param codec   Le codec à utiliser.
+     * @param message Le message à encoder ; son identifiant de requête est rétabli après l'encodage.
+     * @return Le message encodé.
+     * @throws IOException Si le message ne peut pas être encodé.
+     */
+    public static MessageEncode reutilisable(CodecMessage codec, Message message) throws IOException {
+        if (!(codec instanceof CodecJava)) {
+            return de(codec, message);
+        }
+        long idRequete = message.getIdRequete();
+        long marqueur = ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE; // Jamais nul
+        message.setIdRequete(marqueur);
+        try {
+            byte[] octets = codec.encoder(message);
+            return new MessageEncode(octets, positionUnique(octets, marqueur));
+        } finally {
+            message.setIdRequete(idRequete);
+        }
+    }
+
+    /**
+     * Retourne la position de l'unique occurrence d'un entier long (gros-boutiste) dans un contenu, -1 s'il n'y figure
+     * pas ou plusieurs fois.
+     */
+    private static int positionUnique(byte[] octets, long valeur) {
+        int position = -1;
+        for (int i = 0; i + 8 <= octets.length; i++) {
+            if (lireLong(octets, i) == valeur) {
+                if (position >= 0) {
+                    return -1;
+                }
+                position = i;
+            }
+        }
+        return position;
+    }
+
+    private static long lireLong(byte[] octets, int position) {
+        long valeur = 0;
+        for (int i = 0; i < 8; i++) {
+            valeur = (valeur << 8) | (octets[position + i] & 0xFF);
+        }
+        return valeur;
+    }
+
+    /**
+     * Indique si le contenu peut être réutilisé pour une autre requête avec {@link #avecIdRequete(long)}.
+     *
+     * @return {@code true} si le contenu est au format binaire, ou sérialisé avec {@link #reutilisable(CodecMessage, Message)}.
+     */
+    public boolean estReutilisable() {
+        return positionIdRequete >= 0 || (octets.length > 0 && octets[0] == CodecBinaire.MAGIQUE);
+    }
+
+    /**
+     * Retourne une copie de ce contenu adressée à une autre requête.
+     * Seul l'identifiant de requête change, le reste du message n'est pas réencodé.
+     *
+     * @param idRequete L'identifiant de la requête à laquelle répondre.
+     * @return Le contenu modifié.
+     * @throws IllegalStateException Si le contenu n'est pas réutilisable.
+     */
+    public MessageEncode avecIdRequete(long idRequete) {
+        if (!estReutilisable()) {
+            throw new IllegalStateException("Seul un message au format binaire ou encode pour etre reutilise peut l'etre");
+        }
+        if (positionIdRequete >= 0) {
+            byte[] copie = octets.clone();
+            for (int i = 0; i < 8; i++) {
+                copie[positionIdRequete + i] = (byte) (idRequete >>> (56 - 8 * i));
+            }
+            return new MessageEncode(copie, positionIdRequete);
+        }
+        return new MessageEncode(CodecBinaire.avecIdRequete(octets, idRequete));
+    }
+
+    /**
+     * Construit le paquet UDP envoyant ce contenu à un destinataire.
+     * Le paquet partage le contenu encodé, qui n'est pas copié.
+     *
+     * @param address L'adresse du destinataire.
+     * @param port    Le port du destinataire.
+     * @return Le paquet à envoyer.
+     */
+    public DatagramPacket paquet(InetAddress address, int port) {
+        return new DatagramPacket(octets, octets.length, address, port);
+    }
+
+    /**
+     * @return Une vue en lecture seule du contenu encodé.
+     */
+    public ByteBuffer tampon() {
+        return ByteBuffer.wrap(octets).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return La taille du contenu encodé, en octets.
+     */
+    public int taille() {
+        return octets.length;
+    }
+}
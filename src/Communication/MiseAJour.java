@@ -23,16 +23,15 @@ public class MiseAJour extends MessageAvecProduit {
     }
 
     /**
-     * Traite la mise à jour du produit et la diffuse à tous les clients connectés.
-     * Ce traitement est effectué sur le serveur en envoyant la mise à jour à tous
-     * les clients via un broadcast.
+     * Traite la mise à jour du produit et la diffuse aux clients de la vente du produit
+     * (à tous les clients connectés pour la vente par défaut).
      *
      * @param serveur Le serveur qui gère la communication avec les clients.
      * @param clientAddress L'adresse du client à qui envoyer la mise à jour (peut être null pour un broadcast).
      * @param clientPort Le port du client (peut être 0 pour un broadcast).
      */
     public void traitementServeur(Serveur serveur, InetAddress clientAddress, int clientPort) {
-        serveur.broadcastMessage(this);  // Diffuse la mise à jour à tous les clients connectés.
+        serveur.diffuserVente(getProduit().getVente(), this);  // Diffuse la mise à jour aux clients de la vente.
     }
 
     /**
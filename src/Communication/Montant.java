@@ -0,0 +1,66 @@
+package Communication;
+
+import java.math.BigDecimal;
+
+/**
+ * Montants en virgule fixe : un prix est un {@code long} exprimé en centimes.
+ *
+ * Les comparaisons et les additions de prix sont exactes et n'allouent rien. La conversion depuis et vers
+ * le texte saisi ou affiché n'a lieu qu'aux bords de l'application (interface, terminal).
+ */
+public final class Montant {
+
+    /**
+     * Nombre de centimes dans une unité monétaire.
+     */
+    public static final long CENTIMES_PAR_UNITE = 100;
+
+    private Montant() {
+    }
+
+    /**
+     * Convertit un montant saisi en unités (par exemple "12500", "12500.5" ou "12500,50") en centimes.
+     *
+     * @param texte Le montant saisi.
+     * @return Le montant en centimes.
+     * @throws NumberFormatException Si le texte n'est pas un montant positif avec au plus deux décimales.
+     */
+    public static long depuisTexte(String texte) {
+        if (texte == null || texte.isBlank()) {
+            throw new NumberFormatException("Le montant est vide");
+        }
+        try {
+            long centimes = new BigDecimal(texte.trim().replace(',', '.')).movePointRight(2).longValueExact();
+            if (centimes < 0) {
+                throw new NumberFormatException("Le montant doit etre positif: " + texte);
+            }
+            return centimes;
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Le montant doit avoir au plus deux decimales et rester borne: " + texte);
+        }
+    }
+
+    /**
+     * Convertit un nombre entier d'unités en centimes.
+     *
+     * @param unites Le montant en unités.
+     * @return Le montant en centimes.
+     * @throws ArithmeticException Si le montant dépasse la capacité d'un {@code long}.
+     */
+    public static long depuisUnites(long unites) {
+        return Math.multiplyExact(unites, CENTIMES_PAR_UNITE);
+    }
+
+    /**
+     * Formate un montant en centimes pour l'affichage, avec deux décimales (par exemple "12500.50").
+     *
+     * @param centimes Le montant en centimes.
+     * @return Le montant formaté.
+     */
+    public static String formater(long centimes) {
+        String signe = centimes < 0 ? "-" : "";
+        long absolu = Math.abs(centimes);
+        long cents = absolu % CENTIMES_PAR_UNITE;
+        return signe + absolu / CENTIMES_PAR_UNITE + (cents < 10 ? ".0" : ".") + cents;
+    }
+}
@@ -0,0 +1,73 @@
+package Communication;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool de tampons directs ({@link ByteBuffer#allocateDirect(int)}) recyclés pour la réception des datagrammes.
+ * Un tampon est emprunté avant chaque réception puis rendu au pool par le thread de réception lui-même,
+ * une fois le datagramme examiné et, s'il doit être traité, copié dans un tableau à sa taille : un tampon n'est
+ * retenu que le temps d'une réception, quel que soit le nombre de messages en attente de traitement.
+ *
+ * Si le pool est vide, un nouveau tampon est alloué ; s'il est plein, le tampon rendu est abandonné.
+ */
+public class PoolTampons {
+
+    /** Taille d'un tampon, suffisante pour contenir un datagramme du protocole */
+    public static final int TAILLE_TAMPON = 8192;
+
+    private final ArrayBlockingQueue<ByteBuffer> disponibles;
+    private final AtomicLong allocations = new AtomicLong();
+
+    /**
+     * Construit un pool et pré-alloue ses tampons.
+     *
+     * @param capacite Le nombre maximal de tampons conservés par le pool.
+     */
+    public PoolTampons(int capacite) {
+        disponibles = new ArrayBlockingQueue<>(capacite);
+        for (int i = 0; i < capacite; i++) {
+            disponibles.offer(allouer());
+        }
+    }
+
+    /**
+     * Emprunte un tampon vide au pool.
+     *
+     * @return Un tampon prêt à recevoir des données.
+     */
+    public ByteBuffer acquerir() {
+        ByteBuffer tampon = disponibles.poll();
+        return tampon != null ? tampon : allouer();
+    }
+
+    /**
+     * Rend un tampon au pool.
+     *
+     * @param tampon Le tampon à recycler.
+     */
+    public void liberer(ByteBuffer tampon) {
+        tampon.clear();
+        disponibles.offer(tampon);
+    }
+
+    /**
+     * @return Le nombre de tampons actuellement disponibles dans le pool.
+     */
+    public int getDisponibles() {
+        return disponibles.size();
+    }
+
+    /**
+     * @return Le nombre total de tampons alloués depuis la création du pool.
+     */
+    public long getAllocations() {
+        return allocations.get();
+    }
+
+    private ByteBuffer allouer() {
+        allocations.incrementAndGet();
+        return ByteBuffer.allocateDirect(TAILLE_TAMPON);
+    }
+}
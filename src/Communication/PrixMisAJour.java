@@ -0,0 +1,124 @@
+package Communication;
+
+import java.net.InetAddress;
+
+/**
+ * Mise à jour compacte du prix d'un produit, diffusée après chaque offre acceptée.
+ * Contrairement à {@link MiseAJour}, elle ne transporte que ce qui change pendant l'enchère :
+ * l'identifiant du produit, le nouveau prix, le meilleur enchérisseur, la version du produit
+ * et l'horodatage du serveur.
+ *
+ * Le client n'applique la mise à jour que si sa version est plus récente que celle du produit qu'il connaît,
+ * ce qui le protège des datagrammes arrivés dans le désordre.
+ */
+public class PrixMisAJour extends Message {
+
+    protected String carId; // Identifiant du produit concerné
+    protected long prixCourant; // Nouveau prix courant, en centimes
+    protected String userAcheteur; // Meilleur enchérisseur
+    protected long version; // Version du produit après l'offre
+    protected long horodatage; // Instant de l'offre sur le serveur (millisecondes depuis l'époque)
+    protected transient String vente; // Vente du produit, qui détermine les destinataires ; non transmise
+
+    /**
+     * Construit une mise à jour de prix à partir d'un produit qui vient d'être mis à jour par le serveur.
+     *
+     * @param produit Le produit mis à jour.
+     */
+    public PrixMisAJour(Produit produit) {
+        this(produit.getCarId(), produit.getPrixCourant(), produit.getUserAcheteur(), produit.getVersion(), System.currentTimeMillis());
+        this.vente = produit.getVente();
+    }
+
+    /**
+     * Constructeur complet de la mise à jour de prix.
+     *
+     * @param carId        L'identifiant du produit.
+     * @param prixCourant  Le nouveau prix courant, en centimes.
+     * @param userAcheteur Le meilleur enchérisseur.
+     * @param version      La version du produit après l'offre.
+     * @param horodatage   L'instant de l'offre sur le serveur.
+     */
+    public PrixMisAJour(String carId, long prixCourant, String userAcheteur, long version, long horodatage) {
+        super(null); // Message systématique du serveur, sans auteur
+        this.carId = carId;
+        this.prixCourant = prixCourant;
+        this.userAcheteur = userAcheteur;
+        this.version = version;
+        this.horodatage = horodatage;
+        this.succes = true;
+    }
+
+    public String getCarId() {
+        return carId;
+    }
+
+    public long getPrixCourant() {
+        return prixCourant;
+    }
+
+    public String getUserAcheteur() {
+        return userAcheteur;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getHorodatage() {
+        return horodatage;
+    }
+
+    public String getVente() {
+        return vente;
+    }
+
+    /**
+     * Applique la mise à jour à la copie locale d'un produit si elle est plus récente que celle-ci.
+     *
+     * @param produit La copie locale du produit.
+     * @return {@code true} si le produit a été mis à jour, {@code false} si la mise à jour était périmée.
+     */
+    public boolean appliquer(Produit produit) {
+        if (produit == null || !produit.getCarId().equals(carId) || version <= produit.getVersion()) {
+            return false;
+        }
+        produit.setPrixCourant(prixCourant);
+        produit.setUserAcheteur(userAcheteur);
+        produit.setVersion(version);
+        return true;
+    }
+
+    /**
+     * Diffuse la mise à jour de prix aux clients de la vente du produit, éventuellement regroupée
+     * avec les autres mises à jour du même produit (voir {@link Serveur#diffuserPrix(PrixMisAJour)}).
+     *
+     * @param serveur       Le serveur qui gère la communication avec les clients.
+     * @param clientAddress Non utilisé (diffusion).
+     * @param clientPort    Non utilisé (diffusion).
+     */
+    @Override
+    public void traitementServeur(Serveur serveur, InetAddress clientAddress, int clientPort) {
+        serveur.diffuserPrix(this);
+    }
+
+    /**
+     * Variante de {@link #traitementServeur(Serveur, InetAddress, int)} pour une diffusion sans client particulier.
+     *
+     * @param serveur Le serveur qui gère la communication avec les clients.
+     */
+    public void traitementServeur(Serveur serveur) {
+        traitementServeur(serveur, null, 0);
+    }
+
+    @Override
+    public String toString() {
+        return "PrixMisAJour{" +
+                "carId=" + carId +
+                ", prixCourant=" + Montant.formater(prixCourant) +
+                ", userAcheteur=" + userAcheteur +
+                ", version=" + version +
+                ", horodatage=" + horodatage +
+                '}';
+    }
+}
@@ -11,28 +11,30 @@ public class Produit implements Serializable {
 
     protected String carId; // Identifiant unique du produit (par exemple, le numéro d'immatriculation)
     protected String description; // Description du produit
-    protected double prixInitial; // Prix initial du produit lors de la mise en vente
-    protected double prixCourant; // Prix courant du produit lors de l'enchère
-    protected int pasEnchere; // Montant minimal de l'enchère (pas d'enchère)
+    protected long prixInitial; // Prix initial du produit lors de la mise en vente, en centimes
+    protected long prixCourant; // Prix courant du produit lors de l'enchère, en centimes
+    protected long pasEnchere; // Montant minimal de l'enchère (pas d'enchère), en centimes
     protected boolean disponible; // Indique si le produit est disponible pour l'enchère
     protected Integer dureeEnchereSecondes; // Durée de l'enchère en secondes
     protected String userAcheteur; // Utilisateur ayant effectué la dernière offre
     protected String userVendeur; // Vendeur du produit
+    protected long version; // Version attribuée par le serveur, croissante à chaque modification du produit
+    protected String vente; // Vente à laquelle appartient le produit (null : vente par défaut, voir {@link Vente})
 
     /**
      * Constructeur complet pour un produit.
      *
      * @param carId L'identifiant du produit.
      * @param description La description du produit.
-     * @param prixInitial Le prix initial du produit.
-     * @param prixCourant Le prix courant du produit.
-     * @param pasEnchere Le montant minimal d'une enchère.
+     * @param prixInitial Le prix initial du produit, en centimes.
+     * @param prixCourant Le prix courant du produit, en centimes.
+     * @param pasEnchere Le montant minimal d'une enchère, en centimes.
      * @param dureeEnchereSecondes La durée de l'enchère en secondes.
      * @param disponible L'état de disponibilité du produit pour l'enchère.
      * @param userVendeur L'utilisateur vendeur du produit.
      * @param userAcheteur L'utilisateur acheteur du produit.
      */
-    public Produit(String carId, String description, double prixInitial, double prixCourant, int pasEnchere, int dureeEnchereSecondes, boolean disponible, String userVendeur, String userAcheteur) {
+    public Produit(String carId, String description, long prixInitial, long prixCourant, long pasEnchere, int dureeEnchereSecondes, boolean disponible, String userVendeur, String userAcheteur) {
         this.carId = carId;
         this.description = description;
         this.prixInitial = prixInitial;
@@ -49,11 +51,11 @@ public class Produit implements Serializable {
      *
      * @param carId L'identifiant du produit.
      * @param description La description du produit.
-     * @param prixInitial Le prix initial du produit.
-     * @param pasEnchere Le montant minimal d'une enchère.
+     * @param prixInitial Le prix initial du produit, en centimes.
+     * @param pasEnchere Le montant minimal d'une enchère, en centimes.
      * @param dureeEnchereSecondes La durée de l'enchère en secondes.
      */
-    public Produit(String carId, String description, double prixInitial, int pasEnchere, int dureeEnchereSecondes) {
+    public Produit(String carId, String description, long prixInitial, long pasEnchere, int dureeEnchereSecondes) {
         this(carId, description, prixInitial, prixInitial, pasEnchere, dureeEnchereSecondes, true, "", "");
     }
 
@@ -72,16 +74,18 @@ public class Produit implements Serializable {
         this.dureeEnchereSecondes = another.dureeEnchereSecondes;
         this.userAcheteur = another.userAcheteur;
         this.userVendeur = another.userVendeur;
+        this.version = another.version;
+        this.vente = another.vente;
     }
 
     /**
      * Effectue une enchère sur ce produit avec un montant proposé.
      *
      * @param user L'utilisateur qui fait l'enchère.
-     * @param montant Le montant de l'enchère.
+     * @param montant Le montant de l'enchère, en centimes.
      * @return Une nouvelle instance de `Produit` avec le prix mis à jour et l'acheteur.
      */
-    public Produit encherir(User user, double montant){
+    public Produit encherir(User user, long montant){
         Produit proposition = new Produit(this);  // Crée une copie du produit actuel
         proposition.setPrixCourant(montant);  // Met à jour le prix avec la nouvelle offre
         proposition.setUserAcheteur(user.getUsername());  // Associe l'acheteur à l'offre
@@ -106,27 +110,27 @@ public class Produit implements Serializable {
         this.description = description;
     }
 
-    public double getPrixInitial() {
+    public long getPrixInitial() {
         return prixInitial;
     }
 
-    public void setPrixInitial(double prixInitial) {
+    public void setPrixInitial(long prixInitial) {
         this.prixInitial = prixInitial;
     }
 
-    public double getPrixCourant() {
+    public long getPrixCourant() {
         return prixCourant;
     }
 
-    public void setPrixCourant(double prixCourant) {
+    public void setPrixCourant(long prixCourant) {
         this.prixCourant = prixCourant;
     }
 
-    public int getPasEnchere() {
+    public long getPasEnchere() {
         return pasEnchere;
     }
 
-    public void setPasEnchere(int pasEnchere) {
+    public void setPasEnchere(long pasEnchere) {
         this.pasEnchere = pasEnchere;
     }
 
@@ -162,6 +166,22 @@ public class Produit implements Serializable {
         this.userVendeur = userVendeur;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public String getVente() {
+        return vente;
+    }
+
+    public void setVente(String vente) {
+        this.vente = vente;
+    }
+
     /**
      * Vérifie si deux produits sont égaux en comparant leurs identifiants.
      *
@@ -184,7 +204,7 @@ public class Produit implements Serializable {
      */
     @Override
     public String toString() {
-        return "carId : " + carId + "\ndescription : " + description + "\nprixCourant : " + prixCourant +
-                "\npasEnchere : " + pasEnchere + "\ndisponible : " + disponible;
+        return "carId : " + carId + "\ndescription : " + description + "\nprixCourant : " + Montant.formater(prixCourant) +
+                "\npasEnchere : " + Montant.formater(pasEnchere) + "\ndisponible : " + disponible;
     }
 }
@@ -71,7 +71,7 @@ public class Reclamation extends Message {
      * @param clientPort Le port du client.
      */
     public void traitementServeur(Serveur serveur, InetAddress clientAddress, int clientPort) {
-        serveur.verifierClient(getAuteur());
+        serveur.authentifier(this);
         setReclamationDetails(serveur.faireReclamation(getAuteur(), getCarId()));
     }
 
@@ -5,13 +5,13 @@ import java.time.LocalDateTime;
 
 public class ReclamationDetails implements Serializable {
     protected String winnerMail;
-    protected double winnerAmount;
+    protected long winnerAmount; // En centimes
     protected LocalDateTime winnerTime;
     protected String currentBidderMail;
-    protected double currentBidAmount;
+    protected long currentBidAmount; // En centimes
     protected String currentBidTime;
 
-    public ReclamationDetails(String winnerMail, double winnerAmount, LocalDateTime winnerTime, String currentBidderMail, double currentBidAmount, String currentBidTime) {
+    public ReclamationDetails(String winnerMail, long winnerAmount, LocalDateTime winnerTime, String currentBidderMail, long currentBidAmount, String currentBidTime) {
         this.winnerMail = winnerMail;
         this.winnerAmount = winnerAmount;
         this.winnerTime = winnerTime;
@@ -20,7 +20,7 @@ public class ReclamationDetails implements Serializable {
         this.currentBidTime = currentBidTime;
     }
 
-    public ReclamationDetails(String winnerMail, double winnerAmount, String winnerTime, String currentBidderMail, double currentBidAmount, String currentBidTime) {
+    public ReclamationDetails(String winnerMail, long winnerAmount, String winnerTime, String currentBidderMail, long currentBidAmount, String currentBidTime) {
         this(winnerMail, winnerAmount, LocalDateTime.parse(winnerTime), currentBidderMail, currentBidAmount, currentBidTime);
     }
 
@@ -28,7 +28,7 @@ public class ReclamationDetails implements Serializable {
         return winnerMail;
     }
 
-    public double getWinnerAmount() {
+    public long getWinnerAmount() {
         return winnerAmount;
     }
 
@@ -40,7 +40,7 @@ public class ReclamationDetails implements Serializable {
         return currentBidderMail;
     }
 
-    public double getCurrentBidAmount() {
+    public long getCurrentBidAmount() {
         return currentBidAmount;
     }
 
@@ -52,9 +52,9 @@ public class ReclamationDetails implements Serializable {
     @Override
     public String toString() {
         return  "\n Email du gagnant : " + winnerMail +
-                ",\n Montant Gagnant : " + winnerAmount +
+                ",\n Montant Gagnant : " + Montant.formater(winnerAmount) +
                 ",\n Date de la vente final : " + winnerTime +
-                ",\n Montant de votre enchère : " + currentBidAmount +
+                ",\n Montant de votre enchère : " + Montant.formater(currentBidAmount) +
                 ",\n Date de votre enchère : " + currentBidTime ;
     }
 }
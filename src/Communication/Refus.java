@@ -0,0 +1,36 @@
+package Communication;
+
+import java.net.InetAddress;
+
+/**
+ * Réponse du serveur à une requête refusée sans être traitée (serveur surchargé, débit dépassé).
+ *
+ * Le refus ne porte que l'identifiant de la requête et la raison du refus : la requête n'est pas décodée
+ * pour le construire et n'est jamais renvoyée à son auteur. Le client fait échouer la requête en attente
+ * qui porte le même identifiant.
+ */
+public class Refus extends Message {
+
+    /**
+     * Constructeur de la classe Refus.
+     *
+     * @param raison La raison du refus, transmise au client.
+     */
+    public Refus(String raison) {
+        super(null); // Message du serveur, sans auteur
+        this.info = raison;
+    }
+
+    /**
+     * Le refus est produit par le serveur et n'a aucun traitement côté serveur.
+     *
+     * @param serveur       Non utilisé.
+     * @param clientAddress Non utilisé.
+     * @param clientPort    Non utilisé.
+     * @throws IllegalArgumentException Toujours : un client ne peut pas envoyer de refus.
+     */
+    @Override
+    public void traitementServeur(Serveur serveur, InetAddress clientAddress, int clientPort) {
+        throw new IllegalArgumentException("Message reserve au serveur");
+    }
+}
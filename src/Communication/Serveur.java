@@ -1,14 +1,19 @@
 package Communication;
 
-import java.io.ByteArrayInputStream;
-import java.io.ObjectInputStream;
+import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Classe abstraite représentant un serveur de gestion d'enchères.
@@ -17,22 +22,90 @@ import java.util.List;
  * traiter les enchères et les réclamations, et gérer la communication avec les clients.
  */
 public abstract class Serveur {
-    protected LocalDateTime debutEnchere = null; // Date de début de l'enchère
+    private static final String TROP_DE_REQUETES = "Trop de requetes, veuillez patienter";
+    private static final String SURCHARGE = "Serveur surcharge, veuillez reessayer";
+    protected ExecuteurMessages executeur; // Exécute le traitement des messages reçus
+    protected CodecMessage codec = CodecMessage.depuisConfiguration(); // Format d'envoi des messages
+    protected CoalesceurMisesAJour coalesceur; // Regroupe les mises à jour de prix (null si désactivé)
+    protected final boolean surveillance = Configuration.booleen("jhal.serveur.surveillance", true); // Prix envoyés aux seuls clients qui surveillent le lot
+    protected final AtomicLong versions = new AtomicLong(System.currentTimeMillis() * 1000); // Croissante même après un redémarrage
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>(); // Sessions ouvertes, par jeton
+    private final long dureeSessionMillis = Configuration.entierLong("jhal.serveur.session", 1800) * 1000; // Inactivité avant expiration
+    private final SecureRandom aleatoire = new SecureRandom();
+    protected final LimiteurDebit limiteur = new LimiteurDebit(); // Débit autorisé par client et par utilisateur
+    private final Map<String, MessageEncode> refusEncodes = new ConcurrentHashMap<>(); // Refus déjà encodés, par raison
+    protected final CacheReponses reponsesEnvoyees = new CacheReponses(Configuration.entier("jhal.serveur.doublons", 4096)); // Écarte les requêtes retransmises
 
     /**
-     * Retourne la date de début de l'enchère.
+     * Session ouverte par un utilisateur connecté ; son expiration est repoussée à chaque message authentifié.
+     */
+    private static final class Session {
+        private final User utilisateur;
+        private volatile long expiration;
+
+        private Session(User utilisateur, long expiration) {
+            this.utilisateur = utilisateur;
+            this.expiration = expiration;
+        }
+    }
+
+    /**
+     * Retourne l'exécuteur chargé du traitement des messages, qui expose la profondeur de sa file et ses rejets.
      *
-     * @return La date de début de l'enchère.
+     * @return L'exécuteur des messages du serveur.
      */
-    public LocalDateTime getDebutEnchere() {
-        return debutEnchere;
+    public ExecuteurMessages getExecuteur() {
+        return executeur;
     }
 
     /**
-     * Initialise la date de début de l'enchère à la date et l'heure actuelle.
+     * Retourne la date de début d'une vente.
+     *
+     * @param vente L'identifiant de la vente (null : vente par défaut).
+     * @return La date de début de la vente, ou null si elle n'a pas commencé.
+     */
+    public abstract LocalDateTime getDebutEnchere(String vente);
+
+    /**
+     * Démarre une vente à la date et l'heure actuelles ; l'échéance de chacun de ses lots est mesurée depuis ce début.
+     * Les autres ventes ne sont pas affectées.
+     *
+     * @param vente       L'identifiant de la vente (null : vente par défaut).
+     * @param commissaire Le commissaire qui démarre la vente.
+     * @throws IllegalArgumentException Si la vente appartient à un autre commissaire.
+     */
+    public abstract void demarrerVente(String vente, User commissaire) throws IllegalArgumentException;
+
+    /**
+     * Ajoute des lots à la liste de surveillance d'un client, ou les en retire. Le client reçoit les mises à jour
+     * de prix des lots qu'il surveille.
+     *
+     * @param carIds        Les identifiants des lots.
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort    Le port du client.
+     * @param surveiller    {@code true} pour surveiller les lots, {@code false} pour ne plus les surveiller.
+     * @throws IllegalArgumentException Si un lot à surveiller n'est pas en vente.
+     */
+    public abstract void surveillerLots(List<String> carIds, InetAddress clientAddress, int clientPort, boolean surveiller);
+
+    /**
+     * Abonne un client à une vente, ou l'en désabonne.
+     *
+     * @param vente         L'identifiant de la vente.
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort    Le port du client.
+     * @param suivre        {@code true} pour abonner le client, {@code false} pour le désabonner.
+     */
+    public abstract void suivreVente(String vente, InetAddress clientAddress, int clientPort, boolean suivre);
+
+    /**
+     * Attribue une nouvelle version à un produit qui vient d'être modifié.
+     * Les versions sont strictement croissantes, ce qui permet aux clients d'ignorer une mise à jour périmée.
+     *
+     * @return La nouvelle version.
      */
-    public void setDebutEnchere() {
-        this.debutEnchere = LocalDateTime.now();
+    public long prochaineVersion() {
+        return versions.incrementAndGet();
     }
 
     /**
@@ -74,6 +147,86 @@ public abstract class Serveur {
      */
     public abstract User verifierClient(User utilisateur) throws IllegalArgumentException;
 
+    /**
+     * Ouvre une session pour un utilisateur dont l'identité vient d'être vérifiée.
+     * Les sessions expirées sont purgées à cette occasion.
+     *
+     * @param utilisateur L'utilisateur vérifié.
+     * @return Le jeton aléatoire identifiant la session.
+     */
+    public String ouvrirSession(User utilisateur) {
+        long maintenant = System.currentTimeMillis();
+        sessions.values().removeIf(session -> session.expiration < maintenant);
+
+        byte[] octets = new byte[16];
+        aleatoire.nextBytes(octets);
+        String jeton = Base64.getUrlEncoder().withoutPadding().encodeToString(octets);
+        // La session ne conserve pas le mot de passe, même haché
+        sessions.put(jeton, new Session(new User(utilisateur.getId(), utilisateur.getUsername(), null), maintenant + dureeSessionMillis));
+        return jeton;
+    }
+
+    /**
+     * Authentifie l'auteur d'un message.
+     * Un message portant un jeton est vérifié dans la table des sessions, sans hachage ni accès à la base de données,
+     * et reçoit l'utilisateur de la session comme auteur. Sinon, l'auteur est vérifié avec {@link #verifierClient(User)}.
+     *
+     * @param message Le message à authentifier.
+     * @return L'utilisateur authentifié.
+     * @throws IllegalArgumentException Si la session est inconnue ou expirée, ou si l'auteur est invalide.
+     */
+    public User authentifier(Message message) throws IllegalArgumentException {
+        String jeton = message.getJeton();
+        if (jeton == null) {
+            if (message.getAuteur() == null) {
+                throw new IllegalArgumentException("l'utilisateur n'est pas connecte");
+            }
+            return verifierClient(message.getAuteur());
+        }
+        Session session = sessions.get(jeton);
+        long maintenant = System.currentTimeMillis();
+        if (session == null || session.expiration < maintenant) {
+            if (session != null) {
+                sessions.remove(jeton, session);
+            }
+            throw new IllegalArgumentException("la session a expire, veuillez vous reconnecter");
+        }
+        session.expiration = maintenant + dureeSessionMillis;
+        message.setAuteur(session.utilisateur);
+        message.setJeton(null); // Inutile de renvoyer le jeton dans la réponse
+        return session.utilisateur;
+    }
+
+    /**
+     * Retourne l'utilisateur d'une session ouverte, sans repousser son expiration.
+     *
+     * @param jeton Le jeton de la session, ou null.
+     * @return Le nom de l'utilisateur, ou null si le jeton est absent, inconnu ou expiré.
+     */
+    private String utilisateurSession(String jeton) {
+        if (jeton == null) {
+            return null;
+        }
+        Session session = sessions.get(jeton);
+        return (session == null || session.expiration < System.currentTimeMillis()) ? null : session.utilisateur.getUsername();
+    }
+
+    /**
+     * Ferme une session ; son jeton n'est plus accepté.
+     *
+     * @param jeton Le jeton de la session.
+     */
+    public void fermerSession(String jeton) {
+        sessions.remove(jeton);
+    }
+
+    /**
+     * @return Le nombre de sessions ouvertes, y compris celles expirées qui n'ont pas encore été purgées.
+     */
+    public int getNombreSessions() {
+        return sessions.size();
+    }
+
     /**
      * Enregistre un nouvel utilisateur dans la base de données du serveur.
      * Si l'utilisateur existe déjà, une exception IllegalArgumentException est lancée.
@@ -84,13 +237,42 @@ public abstract class Serveur {
     public abstract void incrireNouveauClient(User utilisateur) throws IllegalArgumentException;
 
     /**
-     * Ajoute un client connecté à la liste des clients du serveur.
+     * Ajoute un client connecté à la liste des clients du serveur, ou note son activité s'il y figure déjà.
      *
      * @param clientAddress L'adresse IP du client.
      * @param clientPort Le port du client.
      */
     public abstract void ajouterClientConnecte(InetAddress clientAddress, int clientPort);
 
+    /**
+     * Retire un client de la liste des clients du serveur ainsi que de toutes les diffusions auxquelles
+     * son adresse était inscrite.
+     *
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort Le port du client.
+     */
+    public abstract void retirerClientConnecte(InetAddress clientAddress, int clientPort);
+
+    /**
+     * Note qu'un message vient d'être reçu d'un client ; appelée avant le traitement de chaque message.
+     * Les serveurs qui retirent les clients inactifs redéfinissent cette méthode.
+     *
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort Le port du client.
+     */
+    protected void noterActivite(InetAddress clientAddress, int clientPort) {
+    }
+
+    /**
+     * Retient l'adresse depuis laquelle un utilisateur authentifié vient d'écrire : ses avis personnels
+     * (offre dépassée, lot remporté ou perdu) y sont envoyés.
+     *
+     * @param username      Le nom de l'utilisateur.
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort    Le port du client.
+     */
+    public abstract void associerUtilisateur(String username, InetAddress clientAddress, int clientPort);
+
     /**
      * Envoie un message à un client spécifique.
      *
@@ -100,6 +282,15 @@ public abstract class Serveur {
      */
     protected abstract void envoyerMessage(InetAddress clientAddress, int clientPort, Message message);
 
+    /**
+     * Envoie un message déjà encodé à un client spécifique, sans le réencoder.
+     *
+     * @param clientAddress L'adresse IP du destinataire.
+     * @param clientPort Le port du destinataire.
+     * @param donnees Le message encodé à envoyer.
+     */
+    protected abstract void envoyerDonnees(InetAddress clientAddress, int clientPort, MessageEncode donnees);
+
     /**
      * Envoie un message à tous les clients actuellement connectés au serveur.
      *
@@ -108,11 +299,78 @@ public abstract class Serveur {
     public abstract void broadcastMessage(Message message);
 
     /**
-     * Ajoute un nouveau produit à l'enchère du serveur.
+     * Envoie un message aux clients du catalogue d'une vente : à tous les clients connectés pour la vente par défaut,
+     * aux clients abonnés pour les autres ventes. Le catalogue reçoit les nouveaux lots, les débuts de vente
+     * et les fins d'enchère.
+     *
+     * @param vente   L'identifiant de la vente (null : vente par défaut).
+     * @param message Le message à diffuser.
+     */
+    public void diffuserVente(String vente, Message message) {
+        diffuser(Vente.normaliser(vente), null, message);
+    }
+
+    /**
+     * Envoie un message une seule fois à chaque client concerné : les clients du catalogue de la vente
+     * (si la vente n'est pas null) et les clients qui surveillent le lot (si le lot n'est pas null).
+     *
+     * @param vente   L'identifiant de la vente, ou null pour ne pas diffuser au catalogue.
+     * @param carId   L'identifiant du lot, ou null pour ne pas diffuser aux clients qui le surveillent.
+     * @param message Le message à diffuser.
+     */
+    public abstract void diffuser(String vente, String carId, Message message);
+
+    /**
+     * Diffuse une mise à jour de prix aux clients qui surveillent le produit.
+     * Si le regroupement est activé, seule la dernière mise à jour de chaque produit est diffusée
+     * à la prochaine échéance du coalesceur.
+     *
+     * @param prix La mise à jour de prix à diffuser.
+     */
+    public void diffuserPrix(PrixMisAJour prix) {
+        if (coalesceur != null) {
+            coalesceur.soumettre(prix);
+        } else {
+            diffuserMiseAJourPrix(prix);
+        }
+    }
+
+    /**
+     * Envoie une mise à jour de prix, déjà regroupée le cas échéant, aux clients qui surveillent le produit
+     * (ou, si la surveillance est désactivée, à tout le catalogue de sa vente).
+     *
+     * @param prix La mise à jour de prix.
+     */
+    protected void diffuserMiseAJourPrix(PrixMisAJour prix) {
+        if (surveillance) {
+            diffuser(null, prix.getCarId(), prix);
+        } else {
+            diffuserVente(prix.getVente(), prix);
+        }
+    }
+
+    /**
+     * Diffuse immédiatement la fin de l'enchère d'un produit au catalogue de sa vente et aux clients qui le surveillent,
+     * en abandonnant toute mise à jour de prix encore en attente pour ce produit.
      *
-     * @param produit Le produit à ajouter à l'enchère.
+     * @param finEnchere Le message de fin d'enchère.
      */
-    public abstract void ajouterProduit(Produit produit);
+    public void diffuserFinEnchere(FinEnchere finEnchere) {
+        if (coalesceur != null) {
+            coalesceur.abandonner(finEnchere.getProduit().getCarId());
+        }
+        Produit produit = finEnchere.getProduit();
+        diffuser(Vente.normaliser(produit.getVente()), produit.getCarId(), finEnchere);
+    }
+
+    /**
+     * Ajoute un nouveau produit à sa vente, qui est ouverte au besoin pour le commissaire.
+     *
+     * @param produit     Le produit à ajouter à l'enchère.
+     * @param commissaire Le commissaire qui ajoute le produit.
+     * @throws IllegalArgumentException Si la vente appartient à un autre commissaire.
+     */
+    public abstract void ajouterProduit(Produit produit, User commissaire);
 
     /**
      * Permet à un utilisateur de faire une offre sur un produit.
@@ -123,6 +381,15 @@ public abstract class Serveur {
      */
     public abstract Produit encherir(Produit produit);
 
+    /**
+     * Confie au serveur l'enchère maximale d'un utilisateur : le serveur surenchérit pour lui jusqu'à ce montant,
+     * et seul le prix qui résulte d'un duel entre maximums est enregistré.
+     *
+     * @param produit Le produit visé ; son prix courant porte le maximum et son acheteur l'utilisateur.
+     * @return Le produit après résolution, avec le nouveau prix et le meneur.
+     */
+    public abstract Produit encherirMax(Produit produit);
+
     /**
      * Récupère tous les produits encore disponibles sur le serveur.
      *
@@ -148,33 +415,244 @@ public abstract class Serveur {
     public abstract List<HistoryDetails> demanderHistorique(User user);
 
     /**
-     * Méthode pour traiter les paquets reçus. Elle récupère le message du paquet UDP et effectue le traitement approprié
-     * en appelant la méthode `traitementServeur` du message reçu.
+     * Confie le traitement d'un paquet reçu à l'exécuteur du serveur.
+     * Si l'exécuteur est saturé, le client reçoit immédiatement son message en échec.
      *
      * @param packet Le paquet reçu contenant le message.
      */
-    protected void gererMessage(DatagramPacket packet) {
-        try {
-            int clientPort = packet.getPort();
-            InetAddress clientAddress = packet.getAddress();
-
-            ByteArrayInputStream bais = new ByteArrayInputStream(packet.getData(), 0, packet.getLength());
-            ObjectInputStream ois = new ObjectInputStream(bais);
+    protected void repartirMessage(DatagramPacket packet) {
+        repartirMessage(ByteBuffer.wrap(packet.getData(), 0, packet.getLength()), packet.getAddress(), packet.getPort(), () -> {});
+    }
 
-            Message message = (Message) ois.readObject();
+    /**
+     * Confie le traitement d'un message reçu dans un tampon à l'exécuteur du serveur, dans la voie de son type.
+     * Le type et l'identifiant de requête sont lus dans l'en-tête du message, sans le décoder.
+     * La requête est réservée dès la réception : une retransmission d'une requête connue reçoit la réponse déjà
+     * envoyée (ou est ignorée si la première réception est encore en attente), sans consommer de jeton ni occuper
+     * l'exécuteur. Un client qui dépasse son débit pour ce type est refusé dès la réception. Un message d'une voie
+     * secondaire qui a trop attendu est refusé comme un message qui n'a pas trouvé de place. Une requête refusée
+     * est oubliée, pour qu'une retransmission soit de nouveau examinée.
+     * Le tampon est libéré (via {@code liberation}) avant de rendre la main : un message confié à l'exécuteur
+     * en est d'abord copié dans un tableau à sa taille, pour que le tampon ne reste pas retenu dans la file.
+     *
+     * @param donnees       Le tampon contenant le message, lu entre sa position et sa limite.
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort    Le port du client.
+     * @param liberation    Action rendant le tampon à son propriétaire.
+     */
+    protected void repartirMessage(ByteBuffer donnees, InetAddress clientAddress, int clientPort, Runnable liberation) {
+        Class<? extends Message> type = CodecMessage.typeAuto(donnees);
+        long idRequete = CodecMessage.idRequeteAuto(donnees);
+        CacheReponses.Cle cle = idRequete != 0 ? new CacheReponses.Cle(clientAddress, clientPort, idRequete) : null;
+        if (cle != null && !reponsesEnvoyees.reserver(cle)) {
+            liberation.run();
+            noterActivite(clientAddress, clientPort);
+            renvoyerReponse(cle, clientAddress, clientPort);
+            return;
+        }
+        if (!limiteur.autoriser(new InetSocketAddress(clientAddress, clientPort), type)) {
+            liberation.run();
+            oublierRequete(cle);
+            refuser(clientAddress, clientPort, idRequete, TROP_DE_REQUETES);
+            return;
+        }
+        ByteBuffer copie = ByteBuffer.allocate(donnees.remaining()).put(donnees).flip();
+        liberation.run();
+        Runnable refus = () -> {
+            oublierRequete(cle);
+            refuser(clientAddress, clientPort, idRequete, SURCHARGE);
+        };
+        boolean accepte = executeur.soumettre(voie(type), () -> {
+            Message message;
             try {
-                message.traitementServeur(this, clientAddress, clientPort);
-                message.setSucces(true);
+                message = lireMessage(copie);
             } catch (Exception e) {
-                message.setInfo(e.getMessage());
-                message.setSucces(false);
-            } finally {
-                envoyerMessage(clientAddress, clientPort, message);
+                System.err.println("Error handling message: " + e.getMessage());
+                oublierRequete(cle);
+                return;
             }
+            traiterRequete(message, clientAddress, clientPort, cle);
+        }, refus);
+        if (!accepte) {
+            refus.run();
+        }
+    }
+
+    /**
+     * Retourne la voie de traitement d'un type de message. Les enchères, le pilotage des ventes et les sessions
+     * passent avant le catalogue, qui passe avant l'historique, les réclamations et les inscriptions.
+     *
+     * @param type Le type du message, ou null s'il n'a pas pu être lu.
+     * @return La voie du message.
+     */
+    protected ExecuteurMessages.Voie voie(Class<? extends Message> type) {
+        if (type == RecupererProduits.class) {
+            return ExecuteurMessages.Voie.CATALOGUE;
+        }
+        if (type == Historique.class || type == Reclamation.class || type == Inscription.class) {
+            return ExecuteurMessages.Voie.CONSULTATION;
+        }
+        return ExecuteurMessages.Voie.ENCHERES;
+    }
+
+    /**
+     * Envoie un {@link Refus} en réponse à une requête. Le refus de chaque raison n'est encodé qu'une fois ;
+     * seul son identifiant de requête change d'un envoi à l'autre.
+     *
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort    Le port du client.
+     * @param idRequete     L'identifiant de la requête refusée ; 0 : aucune réponse n'est envoyée.
+     * @param raison        La raison du refus, transmise au client.
+     */
+    protected void refuser(InetAddress clientAddress, int clientPort, long idRequete, String raison) {
+        if (idRequete == 0) {
+            return; // Le client ne pourrait pas rattacher le refus à sa requête
+        }
+        try {
+            MessageEncode refus = refusEncodes.get(raison);
+            if (refus == null) {
+                refus = MessageEncode.reutilisable(codec, new Refus(raison));
+                refusEncodes.putIfAbsent(raison, refus);
+            }
+            if (!refus.estReutilisable()) {
+                Refus reponse = new Refus(raison);
+                reponse.setIdRequete(idRequete);
+                refus = MessageEncode.de(codec, reponse);
+            } else {
+                refus = refus.avecIdRequete(idRequete);
+            }
+            envoyerDonnees(clientAddress, clientPort, refus);
+        } catch (IOException e) {
+            System.err.println("Error rejecting message: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Décode le message contenu dans un tampon, directement depuis celui-ci.
+     * Le format (sérialisation Java ou binaire) est reconnu automatiquement.
+     *
+     * @param donnees Le tampon contenant le message, lu entre sa position et sa limite.
+     * @return Le message contenu dans le tampon.
+     * @throws Exception Si le contenu du tampon n'est pas un message valide.
+     */
+    protected Message lireMessage(ByteBuffer donnees) throws Exception {
+        return CodecMessage.decoderAuto(donnees);
+    }
 
+    /**
+     * Encode un message avec le codec choisi au démarrage du serveur.
+     *
+     * @param message Le message à encoder.
+     * @return Les octets à envoyer.
+     * @throws IOException Si le message ne peut pas être encodé.
+     */
+    protected byte[] encoder(Message message) throws IOException {
+        return codec.encoder(message);
+    }
+
+    /**
+     * Encode la réponse renvoyée à l'auteur d'un message traité.
+     * Les serveurs peuvent redéfinir cette méthode pour réutiliser une réponse déjà encodée.
+     *
+     * @param message Le message traité.
+     * @return La réponse encodée.
+     * @throws IOException Si le message ne peut pas être encodé.
+     */
+    protected MessageEncode encoderReponse(Message message) throws IOException {
+        return MessageEncode.de(codec, message);
+    }
+
+    /**
+     * Méthode pour traiter les paquets reçus. Elle récupère le message du paquet UDP et effectue le traitement approprié
+     * en appelant la méthode `traitementServeur` du message reçu.
+     *
+     * @param packet Le paquet reçu contenant le message.
+     */
+    protected void gererMessage(DatagramPacket packet) {
+        try {
+            Message message = lireMessage(ByteBuffer.wrap(packet.getData(), 0, packet.getLength()));
+            traiterMessage(message, packet.getAddress(), packet.getPort());
         } catch (Exception e) {
             System.err.println("Error handling message: " + e.getMessage());
             e.printStackTrace();
         }
     }
+
+    /**
+     * Exécute le traitement d'un message décodé en appelant sa méthode `traitementServeur`,
+     * puis renvoie le message complété à son auteur.
+     * Une requête retransmise par le client n'est pas traitée une seconde fois : elle reçoit la réponse
+     * déjà envoyée, ou est ignorée si la première réception est encore en cours de traitement.
+     *
+     * @param message       Le message reçu.
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort    Le port du client.
+     */
+    protected void traiterMessage(Message message, InetAddress clientAddress, int clientPort) {
+        CacheReponses.Cle cle = null;
+        if (message.getIdRequete() != 0) {
+            cle = new CacheReponses.Cle(clientAddress, clientPort, message.getIdRequete());
+            if (!reponsesEnvoyees.reserver(cle)) {
+                noterActivite(clientAddress, clientPort);
+                renvoyerReponse(cle, clientAddress, clientPort);
+                return;
+            }
+        }
+        traiterRequete(message, clientAddress, clientPort, cle);
+    }
+
+    /**
+     * Traite une requête déjà réservée dans le cache des réponses, et y mémorise la réponse envoyée.
+     * Un message d'une session dont l'utilisateur dépasse son débit pour ce type reçoit un refus sans être traité,
+     * et la requête est oubliée.
+     *
+     * @param message       Le message reçu.
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort    Le port du client.
+     * @param cle           La clé réservée de la requête, ou null si elle n'a pas d'identifiant.
+     */
+    private void traiterRequete(Message message, InetAddress clientAddress, int clientPort, CacheReponses.Cle cle) {
+        noterActivite(clientAddress, clientPort);
+        String utilisateur = utilisateurSession(message.getJeton());
+        if (utilisateur != null && !limiteur.autoriser(utilisateur, message.getClass())) {
+            oublierRequete(cle);
+            refuser(clientAddress, clientPort, message.getIdRequete(), TROP_DE_REQUETES);
+            return;
+        }
+        try {
+            message.traitementServeur(this, clientAddress, clientPort);
+            message.setSucces(true);
+        } catch (Exception e) {
+            message.setInfo(e.getMessage());
+            message.setSucces(false);
+        }
+        try {
+            MessageEncode reponse = encoderReponse(message);
+            if (cle != null) {
+                reponsesEnvoyees.enregistrer(cle, reponse);
+            }
+            envoyerDonnees(clientAddress, clientPort, reponse);
+        } catch (IOException e) {
+            System.err.println("Error encoding response: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Renvoie à une requête retransmise la réponse déjà envoyée, si son traitement est terminé.
+     */
+    private void renvoyerReponse(CacheReponses.Cle cle, InetAddress clientAddress, int clientPort) {
+        MessageEncode reponse = reponsesEnvoyees.reponse(cle);
+        if (reponse != null) {
+            envoyerDonnees(clientAddress, clientPort, reponse);
+        }
+    }
+
+    /**
+     * Oublie une requête réservée qui ne sera pas traitée.
+     */
+    private void oublierRequete(CacheReponses.Cle cle) {
+        if (cle != null) {
+            reponsesEnvoyees.oublier(cle);
+        }
+    }
 }
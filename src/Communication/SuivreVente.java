@@ -0,0 +1,77 @@
+package Communication;
+
+import java.net.InetAddress;
+
+/**
+ * Classe représentant une demande d'abonnement (ou de désabonnement) d'un client à une vente aux enchères.
+ * Le client abonné reçoit l'annonce du début de la vente, les nouveaux lots, les prix et les fins d'enchère
+ * de cette vente ; la vente par défaut est diffusée à tous les clients connectés.
+ * Hérite de {@link Message}.
+ */
+public class SuivreVente extends Message {
+
+    /**
+     * Identifiant de la vente suivie.
+     */
+    protected String vente;
+
+    /**
+     * {@code true} pour s'abonner à la vente, {@code false} pour se désabonner.
+     */
+    protected boolean suivre = true;
+
+    /**
+     * Renseigné dans la réponse : indique si la vente a déjà commencé.
+     */
+    protected boolean demarree;
+
+    /**
+     * Constructeur de la classe SuivreVente.
+     *
+     * @param auteur L'utilisateur qui s'abonne.
+     * @param vente  L'identifiant de la vente.
+     * @param suivre {@code true} pour s'abonner, {@code false} pour se désabonner.
+     */
+    public SuivreVente(User auteur, String vente, boolean suivre) {
+        super(auteur);
+        this.vente = vente;
+        this.suivre = suivre;
+    }
+
+    public String getVente() {
+        return vente;
+    }
+
+    public boolean isSuivre() {
+        return suivre;
+    }
+
+    public boolean isDemarree() {
+        return demarree;
+    }
+
+    public void setDemarree(boolean demarree) {
+        this.demarree = demarree;
+    }
+
+    /**
+     * Traite la demande côté serveur : abonne ou désabonne l'adresse du client, puis indique si la vente a commencé.
+     *
+     * @param serveur       L'instance du serveur qui traite la demande.
+     * @param clientAddress L'adresse IP du client à abonner.
+     * @param clientPort    Le port du client à abonner.
+     */
+    @Override
+    public void traitementServeur(Serveur serveur, InetAddress clientAddress, int clientPort) {
+        serveur.authentifier(this);
+        vente = Vente.normaliser(vente);
+        serveur.suivreVente(vente, clientAddress, clientPort, suivre);
+        setDemarree(serveur.getDebutEnchere(vente) != null);
+        setAuteur(null); // Réinitialise l'auteur pour éviter des fuites de données
+    }
+
+    @Override
+    public String toString() {
+        return "SuivreVente{vente=" + vente + ", suivre=" + suivre + ", demarree=" + demarree + ", succes=" + succes + ", info=" + info + '}';
+    }
+}
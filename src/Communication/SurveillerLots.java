@@ -0,0 +1,65 @@
+package Communication;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classe représentant l'ajout de lots à la liste de surveillance d'un client, ou leur retrait.
+ * Le client reçoit les mises à jour de prix des seuls lots qu'il surveille ; les nouveaux lots et les fins
+ * d'enchère lui parviennent par le catalogue de la vente.
+ * Hérite de {@link Message}.
+ */
+public class SurveillerLots extends Message {
+
+    /**
+     * Identifiants des lots concernés.
+     */
+    protected List<String> carIds;
+
+    /**
+     * {@code true} pour surveiller les lots, {@code false} pour ne plus les surveiller.
+     */
+    protected boolean surveiller = true;
+
+    /**
+     * Constructeur de la classe SurveillerLots.
+     *
+     * @param auteur     L'utilisateur qui surveille les lots.
+     * @param carIds     Les identifiants des lots.
+     * @param surveiller {@code true} pour surveiller les lots, {@code false} pour ne plus les surveiller.
+     */
+    public SurveillerLots(User auteur, List<String> carIds, boolean surveiller) {
+        super(auteur);
+        this.carIds = new ArrayList<>(carIds);
+        this.surveiller = surveiller;
+    }
+
+    public List<String> getCarIds() {
+        return carIds;
+    }
+
+    public boolean isSurveiller() {
+        return surveiller;
+    }
+
+    /**
+     * Traite la demande côté serveur en mettant à jour la liste de surveillance de l'adresse du client.
+     *
+     * @param serveur       L'instance du serveur qui traite la demande.
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort    Le port du client.
+     * @throws IllegalArgumentException Si un lot à surveiller n'est pas en vente.
+     */
+    @Override
+    public void traitementServeur(Serveur serveur, InetAddress clientAddress, int clientPort) {
+        serveur.authentifier(this);
+        serveur.surveillerLots(carIds, clientAddress, clientPort, surveiller);
+        setAuteur(null); // Réinitialise l'auteur pour éviter des fuites de données
+    }
+
+    @Override
+    public String toString() {
+        return "SurveillerLots{carIds=" + carIds + ", surveiller=" + surveiller + ", succes=" + succes + ", info=" + info + '}';
+    }
+}
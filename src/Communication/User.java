@@ -99,7 +99,7 @@ public class User implements Serializable {
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof User user)) return false;
-        return username.equals(user.username) && password.equals(user.password);
+        return Objects.equals(username, user.username) && Objects.equals(password, user.password);
     }
 
     /**
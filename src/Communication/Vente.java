@@ -0,0 +1,93 @@
+package Communication;
+
+import java.net.InetSocketAddress;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Vente aux enchères (salle) : un commissaire, une date de début, des lots et des clients abonnés.
+ *
+ * Chaque vente démarre indépendamment des autres : des lots peuvent être ajoutés à une vente qui n'a pas encore
+ * commencé pendant que d'autres ventes sont en cours, et l'échéance de chaque lot est mesurée depuis le début
+ * de sa propre vente. Les lots sans vente désignée appartiennent à la vente {@link #PAR_DEFAUT}, dont les annonces
+ * sont diffusées à tous les clients connectés.
+ */
+public class Vente {
+
+    /**
+     * Identifiant de la vente des lots qui n'en désignent aucune.
+     */
+    public static final String PAR_DEFAUT = "principale";
+
+    private final String id;
+    private volatile String commissaire; // null tant qu'aucun commissaire n'a ouvert la vente
+    private volatile long debutMillis = -1; // -1 tant que la vente n'a pas commencé
+    private final Set<InetSocketAddress> abonnes = ConcurrentHashMap.newKeySet(); // Clients qui suivent la vente
+
+    /**
+     * Construit une vente qui n'a pas encore commencé.
+     *
+     * @param id L'identifiant de la vente.
+     */
+    public Vente(String id) {
+        this.id = normaliser(id);
+    }
+
+    /**
+     * Retourne l'identifiant canonique d'une vente : un identifiant absent ou vide désigne la vente par défaut.
+     *
+     * @param id L'identifiant reçu.
+     * @return L'identifiant canonique.
+     */
+    public static String normaliser(String id) {
+        return id == null || id.isBlank() ? PAR_DEFAUT : id.trim();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getCommissaire() {
+        return commissaire;
+    }
+
+    public void setCommissaire(String commissaire) {
+        this.commissaire = commissaire;
+    }
+
+    public long getDebutMillis() {
+        return debutMillis;
+    }
+
+    public void setDebutMillis(long debutMillis) {
+        this.debutMillis = debutMillis;
+    }
+
+    /**
+     * @return {@code true} si la vente a commencé.
+     */
+    public boolean isDemarree() {
+        return debutMillis >= 0;
+    }
+
+    /**
+     * @return {@code true} s'il s'agit de la vente par défaut.
+     */
+    public boolean isParDefaut() {
+        return PAR_DEFAUT.equals(id);
+    }
+
+    /**
+     * Retourne les clients abonnés à la vente ; l'ensemble peut être modifié pendant son parcours.
+     *
+     * @return Les adresses des clients abonnés.
+     */
+    public Set<InetSocketAddress> getAbonnes() {
+        return abonnes;
+    }
+
+    @Override
+    public String toString() {
+        return "Vente{id=" + id + ", commissaire=" + commissaire + ", debutMillis=" + debutMillis + ", abonnes=" + abonnes.size() + '}';
+    }
+}
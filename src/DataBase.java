@@ -3,24 +3,42 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import Communication.*;
 
 
+/**
+ * Accès à la base de données SQLite, ouverte en mode WAL.
+ * Les lectures empruntent une connexion en lecture seule au pool {@link LecteursBase} et s'exécutent en même temps
+ * que les écritures ; toutes les écritures passent par l'{@link EcrivainBase}, seul propriétaire de la connexion
+ * d'écriture, qui les valide par lots et complète une future par écriture.
+ */
 public class DataBase {
-    private Connection connection;
+    private Connection connexionEcriture; // Connexion réservée au thread d'écriture
+    private EcrivainBase ecrivain;
+    private LecteursBase lecteurs; // Connexions en lecture seule
     private static final String URL = "jdbc:sqlite:auction.db";
+    private static final int NB_LECTEURS = Configuration.entier("jhal.db.lecteurs", 4); // Connexions du pool de lecture
+    private static final String SYNCHRONOUS = Configuration.texte("jhal.db.synchrone", "NORMAL"); // OFF, NORMAL ou FULL
+    private static final int CAPACITE_ECRITURES = Configuration.entier("jhal.serveur.ecritures", 10_000); // Écritures en attente au maximum
+    private static final int TAILLE_LOT = Configuration.entier("jhal.db.lot", 256); // Écritures validées par un même commit
+    private static final long ATTENTE_LOT_MICROS = Configuration.entierLong("jhal.db.attente", 2000); // Attente d'autres écritures avant le commit
+    private static final int VERSION_SCHEMA = 2; // PRAGMA user_version ; 1 : montants en centimes (INTEGER) ; 2 : vente de chaque produit
 
     /**
      * Constructeur de la base de données
      */
     public DataBase() {
         try {
-            connection = DriverManager.getConnection(URL);
-            try (Statement stmt = connection.createStatement()) {
-                stmt.execute("PRAGMA foreign_keys = ON");
+            connexionEcriture = ouvrirConnexion();
+            try (Statement stmt = connexionEcriture.createStatement()) {
+                // Le mode WAL est enregistré dans le fichier : il s'applique ensuite à toutes les connexions
+                stmt.execute("PRAGMA journal_mode = WAL");
             }
             System.out.println("Database connection established successfully.");
             initializeTables();
+            lecteurs = new LecteursBase(DataBase::ouvrirConnexion, NB_LECTEURS);
+            ecrivain = new EcrivainBase(connexionEcriture, CAPACITE_ECRITURES, TAILLE_LOT, ATTENTE_LOT_MICROS);
         } catch (SQLException e) {
             System.err.println("Failed to connect to the database.");
             e.printStackTrace();
@@ -28,65 +46,170 @@ public class DataBase {
         }
     }
 
+    /**
+     * ouvre une connexion à la base de données ; une connexion qui trouve la base verrouillée attend au lieu d'échouer.
+     * En mode WAL, le niveau synchronous NORMAL ne synchronise le disque qu'aux points de contrôle : un commit reste atomique
+     * mais peut être perdu en cas de coupure de courant, FULL synchronise à chaque commit
+     * @return la connexion ouverte
+     * @throws SQLException
+     */
+    private static Connection ouvrirConnexion() throws SQLException {
+        Connection connexion = DriverManager.getConnection(URL);
+        try (Statement stmt = connexion.createStatement()) {
+            stmt.execute("PRAGMA foreign_keys = ON");
+            stmt.execute("PRAGMA busy_timeout = 5000");
+            stmt.execute("PRAGMA synchronous = " + niveauSynchronous());
+        }
+        return connexion;
+    }
+
+    /**
+     * @return le niveau synchronous configuré, NORMAL s'il n'est pas reconnu
+     */
+    private static String niveauSynchronous() {
+        String niveau = SYNCHRONOUS.toUpperCase();
+        return switch (niveau) {
+            case "OFF", "NORMAL", "FULL", "EXTRA" -> niveau;
+            default -> "NORMAL";
+        };
+    }
+
     /**
      * initialisation des tables de la basse de données: table Users qui contient un id, username et mdp d'un utiisateur
      * Table Cars qui contient tous les produits et leurs informations
      * Table Bids qui contient toutes les offres qui ont été placé sur un Produit donc elle contient l'id de la voiture, le mail de l'encherisseur, le montant et la date de l'enchere
      * Table History qui contient les id des produits sur lesquelles un utilisateur a encherit et le temps de son enchère
+     * Les montants sont des entiers en centimes ; une base créée avec des montants réels est d'abord migrée
+     * Chaque produit de la table Cars porte l'identifiant de sa vente (sale_id), la vente par défaut pour les produits plus anciens
      * @throws SQLException
      */
     private void initializeTables() throws SQLException {
-        String createCarsTable = """
-                CREATE TABLE IF NOT EXISTS cars (
+        String createUsersTable = """
+                CREATE TABLE IF NOT EXISTS users (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    username TEXT UNIQUE NOT NULL,
+                    password TEXT NOT NULL
+                )""";
+
+        try (Statement stmt = connexionEcriture.createStatement()) {
+            int version = versionSchema(stmt);
+            if (version < 1 && tableExiste(stmt, "cars")) {
+                migrerVersCentimes(stmt); // Recrée aussi la table cars avec sa colonne sale_id
+            } else if (version < 2 && tableExiste(stmt, "cars")) {
+                stmt.execute("ALTER TABLE cars ADD COLUMN sale_id TEXT NOT NULL DEFAULT '" + Vente.PAR_DEFAUT + "'");
+            }
+            stmt.execute(createUsersTable);
+            stmt.execute(tableCars("cars"));
+            stmt.execute(tableBids("bids"));
+            stmt.execute(tableHistory("history"));
+            // Sert la meilleure offre de chaque produit sans parcourir toute la table
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_bids_car_montant ON bids (car_id, bid_amount)");
+            stmt.execute("PRAGMA user_version = " + VERSION_SCHEMA);
+            System.out.println("Database tables initialized successfully.");
+        }
+    }
+
+    private static String tableCars(String nom) {
+        return """
+                CREATE TABLE IF NOT EXISTS %s (
                     car_id TEXT PRIMARY KEY,
                     description TEXT NOT NULL,
-                    starting_price REAL NOT NULL,
-                    current_price REAL NOT NULL,
+                    starting_price INTEGER NOT NULL,
+                    current_price INTEGER NOT NULL,
                     seller_mail TEXT NOT NULL,
                     user_mail TEXT,
                     increment INTEGER NOT NULL,
                     duration INTEGER NOT NULL,
                     status TEXT NOT NULL DEFAULT 'ACTIVE',
                     created_at TEXT NOT NULL DEFAULT (datetime('now')),
+                    sale_id TEXT NOT NULL DEFAULT '%s',
                     FOREIGN KEY (seller_mail) REFERENCES users(username),
                     FOREIGN KEY (user_mail) REFERENCES users(username),
                     CHECK (status IN ('ACTIVE', 'SOLD'))
-                )""";
-
-        String createUsersTable = """
-                CREATE TABLE IF NOT EXISTS users (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    username TEXT UNIQUE NOT NULL,
-                    password TEXT NOT NULL
-                )""";
+                )""".formatted(nom, Vente.PAR_DEFAUT);
+    }
 
-        String createBidsTable = """
-                CREATE TABLE IF NOT EXISTS bids (
+    private static String tableBids(String nom) {
+        return """
+                CREATE TABLE IF NOT EXISTS %s (
                     id INTEGER PRIMARY KEY AUTOINCREMENT,
                     car_id TEXT NOT NULL,
                     user_mail TEXT NOT NULL,
-                    bid_amount REAL NOT NULL,
+                    bid_amount INTEGER NOT NULL,
                     bid_time TEXT NOT NULL DEFAULT (datetime('now')),
                     FOREIGN KEY (car_id) REFERENCES cars(car_id),
                     FOREIGN KEY (user_mail) REFERENCES users(username)
-                )""";
-        String historyTable = """
-                CREATE TABLE IF NOT EXISTS history (
+                )""".formatted(nom);
+    }
+
+    private static String tableHistory(String nom) {
+        return """
+                CREATE TABLE IF NOT EXISTS %s (
                     id INTEGER PRIMARY KEY AUTOINCREMENT,
                     user_mail TEXT NOT NULL,
                     car_id TEXT NOT NULL,
                     interaction_time TEXT NOT NULL DEFAULT (datetime('now')),
-                    bid_amount REAL NOT NULL,
+                    bid_amount INTEGER NOT NULL,
                     FOREIGN KEY (user_mail) REFERENCES users(username),
                     FOREIGN KEY (car_id) REFERENCES cars(car_id)
-                )""";
+                )""".formatted(nom);
+    }
 
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createUsersTable);
-            stmt.execute(createCarsTable);
-            stmt.execute(createBidsTable);
-            stmt.execute(historyTable);
-            System.out.println("Database tables initialized successfully.");
+    private static int versionSchema(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static boolean tableExiste(Statement stmt, String nom) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name = '" + nom + "'")) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * migre une base dont les montants sont des réels en unités vers des entiers en centimes : chaque table est recréée
+     * avec des colonnes INTEGER puis recopiée, en une seule transaction
+     * @param stmt une requête sur la connexion d'écriture, en mode autocommit
+     * @throws SQLException si la migration échoue ; la base est alors laissée intacte
+     */
+    private void migrerVersCentimes(Statement stmt) throws SQLException {
+        System.out.println("Migration des montants de la base en centimes...");
+        stmt.execute("PRAGMA foreign_keys = OFF"); // Sans effet dans une transaction
+        connexionEcriture.setAutoCommit(false);
+        try {
+            stmt.execute(tableCars("cars_centimes"));
+            stmt.execute("""
+                    INSERT INTO cars_centimes (car_id, description, starting_price, current_price, seller_mail, user_mail,
+                                               increment, duration, status, created_at)
+                    SELECT car_id, description, CAST(ROUND(starting_price * 100) AS INTEGER), CAST(ROUND(current_price * 100) AS INTEGER),
+                           seller_mail, user_mail, increment * 100, duration, status, created_at
+                    FROM cars""");
+            stmt.execute("DROP TABLE cars");
+            stmt.execute("ALTER TABLE cars_centimes RENAME TO cars");
+
+            stmt.execute(tableBids("bids_centimes"));
+            stmt.execute("""
+                    INSERT INTO bids_centimes (id, car_id, user_mail, bid_amount, bid_time)
+                    SELECT id, car_id, user_mail, CAST(ROUND(bid_amount * 100) AS INTEGER), bid_time FROM bids""");
+            stmt.execute("DROP TABLE bids");
+            stmt.execute("ALTER TABLE bids_centimes RENAME TO bids");
+
+            stmt.execute(tableHistory("history_centimes"));
+            stmt.execute("""
+                    INSERT INTO history_centimes (id, user_mail, car_id, interaction_time, bid_amount)
+                    SELECT id, user_mail, car_id, interaction_time, CAST(ROUND(bid_amount * 100) AS INTEGER) FROM history""");
+            stmt.execute("DROP TABLE history");
+            stmt.execute("ALTER TABLE history_centimes RENAME TO history");
+
+            stmt.execute("PRAGMA user_version = " + VERSION_SCHEMA);
+            connexionEcriture.commit();
+        } catch (SQLException e) {
+            connexionEcriture.rollback();
+            throw e;
+        } finally {
+            connexionEcriture.setAutoCommit(true);
+            stmt.execute("PRAGMA foreign_keys = ON");
         }
     }
 
@@ -94,9 +217,17 @@ public class DataBase {
      * Cette fonction ferme la connexion à la base de données si elle est encore ouverte, tout en gérant les éventuelles exceptions liées à la fermeture.
      */
     public void close() {
+        if (ecrivain != null) {
+            ecrivain.arreter(); // Les écritures en attente sont validées avant la fermeture
+            System.out.println("Bilan des ecritures: " + ecrivain);
+        }
+        if (lecteurs != null) {
+            System.out.println("Bilan des lectures: " + lecteurs);
+            lecteurs.fermer();
+        }
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+            if (connexionEcriture != null && !connexionEcriture.isClosed()) {
+                connexionEcriture.close();
                 System.out.println("Database connection closed successfully.");
             }
         } catch (SQLException e) {
@@ -111,79 +242,117 @@ public class DataBase {
      */
     public boolean testConnection() {
         try {
-            return connection != null && !connection.isClosed();
+            return connexionEcriture != null && !connexionEcriture.isClosed();
         } catch (SQLException e) {
             return false;
         }
     }
 
+    /**
+     * @return le thread d'écriture, qui expose le nombre d'écritures en attente, validées et en échec
+     */
+    public EcrivainBase getEcrivain() {
+        return ecrivain;
+    }
+
     /**
      * ajouter un utilisateur avec son username et son mot de passe à la table Users de la base de données
      * @param username
      * @param password
-     * @throws SQLException
+     * @return la future complétée une fois l'utilisateur enregistré
      */
-    public void addUser(String username, String password) throws SQLException {
-        String sql = "INSERT INTO users (username, password) VALUES (?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, username);
-            pstmt.setString(2, password);
-            pstmt.executeUpdate();
-        }
+    public CompletableFuture<Void> addUser(String username, String password) {
+        return ecrivain.soumettre(connexion -> {
+            String sql = "INSERT INTO users (username, password) VALUES (?, ?)";
+            try (PreparedStatement pstmt = connexion.prepareStatement(sql)) {
+                pstmt.setString(1, username);
+                pstmt.setString(2, password);
+                pstmt.executeUpdate();
+            }
+        });
     }
 
     /**
      * ajouter un produit à la table Cars de la base de données
-     * @param produit
-     * @throws SQLException
+     * @param car
+     * @return la future complétée une fois le produit enregistré
      */
-    public void addCar(Produit produit) throws SQLException {
-        String sql = """
-                INSERT INTO cars (car_id, description, starting_price, current_price, increment, duration, seller_mail)
-                VALUES (?, ?, ?, ?, ?, ?, ?)
-                """;
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, produit.getCarId());
-            pstmt.setString(2, produit.getDescription());
-            pstmt.setDouble(3, produit.getPrixInitial());
-            pstmt.setDouble(4, produit.getPrixCourant());
-            pstmt.setInt(5, produit.getPasEnchere());
-            pstmt.setInt(6, produit.getDureeEnchereSecondes());
-            pstmt.setString(7, produit.getUserVendeur());
-            pstmt.executeUpdate();
-        }
+    public CompletableFuture<Void> addCar(Produit car) {
+        return insererCar(car, "INSERT");
+    }
+
+    /**
+     * ajouter un produit relu dans le journal des enchères à la table Cars, s'il n'y est pas déjà
+     * @param car
+     * @return la future complétée une fois le produit enregistré ou reconnu comme déjà enregistré
+     */
+    public CompletableFuture<Void> addCarIfAbsent(Produit car) {
+        return insererCar(car, "INSERT OR IGNORE");
+    }
+
+    private CompletableFuture<Void> insererCar(Produit car, String insertion) {
+        Produit produit = new Produit(car); // Le produit peut encore changer avant l'écriture
+        return ecrivain.soumettre(connexion -> {
+            String sql = """
+                    %s INTO cars (car_id, description, starting_price, current_price, increment, duration, seller_mail, sale_id)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                    """.formatted(insertion);
+            try (PreparedStatement pstmt = connexion.prepareStatement(sql)) {
+                pstmt.setString(1, produit.getCarId());
+                pstmt.setString(2, produit.getDescription());
+                pstmt.setLong(3, produit.getPrixInitial());
+                pstmt.setLong(4, produit.getPrixCourant());
+                pstmt.setLong(5, produit.getPasEnchere());
+                pstmt.setInt(6, produit.getDureeEnchereSecondes());
+                pstmt.setString(7, produit.getUserVendeur());
+                pstmt.setString(8, Vente.normaliser(produit.getVente()));
+                pstmt.executeUpdate();
+            }
+        });
     }
 
     /**
      * mettre à jour les informations d'un produit dans la base de données après qu'un utilisateur place une enchère
-     * @param produit
-     * @throws SQLException
+     * @param car
+     * @return la future complétée une fois le produit mis à jour
      */
-    public void updateCar(Produit produit) throws SQLException {
-        String sql = """
-                UPDATE cars SET
-                    current_price = ?,
-                    user_mail = ?,
-                    status = ?,
-                    description = ?,
-                    starting_price = ?,
-                    increment = ?,
-                    duration = ?,
-                    seller_mail = ?
-                    WHERE car_id = ?
-                """;
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setDouble(1, produit.getPrixCourant());
-            pstmt.setString(2, produit.getUserAcheteur());
-            pstmt.setString(3, produit.isDisponible() ? "ACTIVE" : "SOLD");
-            pstmt.setString(4, produit.getDescription());
-            pstmt.setDouble(5, produit.getPrixInitial());
-            pstmt.setInt(6, produit.getPasEnchere());
-            pstmt.setInt(7, produit.getDureeEnchereSecondes());
-            pstmt.setString(8, produit.getUserVendeur());
-            pstmt.setString(9, produit.getCarId());
-            pstmt.executeUpdate();
-        }
+    public CompletableFuture<Void> updateCar(Produit car) {
+        Produit produit = new Produit(car); // Le produit peut encore changer avant l'écriture
+        return ecrivain.soumettre(connexion -> {
+            String sql = """
+                    UPDATE cars SET
+                        current_price = ?,
+                        user_mail = ?,
+                        status = ?,
+                        description = ?,
+                        starting_price = ?,
+                        increment = ?,
+                        duration = ?,
+                        seller_mail = ?
+                        WHERE car_id = ?
+                    """;
+            try (PreparedStatement pstmt = connexion.prepareStatement(sql)) {
+                pstmt.setLong(1, produit.getPrixCourant());
+                pstmt.setString(2, produit.getUserAcheteur());
+                pstmt.setString(3, produit.isDisponible() ? "ACTIVE" : "SOLD");
+                pstmt.setString(4, produit.getDescription());
+                pstmt.setLong(5, produit.getPrixInitial());
+                pstmt.setLong(6, produit.getPasEnchere());
+                pstmt.setInt(7, produit.getDureeEnchereSecondes());
+                pstmt.setString(8, produit.getUserVendeur());
+                pstmt.setString(9, produit.getCarId());
+                pstmt.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * attendre que les écritures soumises jusqu'ici soient validées : le thread d'écriture les exécute dans l'ordre
+     * @return la future complétée une fois validées toutes les écritures soumises avant elle
+     */
+    public CompletableFuture<Void> barriere() {
+        return ecrivain.soumettre(connexion -> {
+        });
     }
 
     /**
@@ -194,40 +363,49 @@ public class DataBase {
      */
     public Produit getCar(String carID) throws SQLException {
         String sql = "SELECT * FROM cars WHERE car_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        return lecteurs.lire(lecteur -> {
+            PreparedStatement pstmt = lecteur.preparer(sql);
             pstmt.setString(1, carID);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    Produit produit = new Produit(
-                            rs.getString("car_id"),
-                            rs.getString("description"),
-                            rs.getDouble("starting_price"),
-                            rs.getDouble("current_price"),
-                            rs.getInt("increment"),
-                            rs.getInt("duration"),
-                            rs.getString("status").equals("ACTIVE"),
-                            rs.getString("seller_mail"),
-                            rs.getString("user_mail"));
-                    return produit;
+                    return lireProduit(rs);
                 }
             }
-        }
-        return null;
+            return null;
+        });
+    }
+
+    /**
+     * construire un produit à partir de la ligne courante d'un résultat sur la table Cars
+     */
+    private static Produit lireProduit(ResultSet rs) throws SQLException {
+        Produit produit = new Produit(
+                rs.getString("car_id"),
+                rs.getString("description"),
+                rs.getLong("starting_price"),
+                rs.getLong("current_price"),
+                rs.getLong("increment"),
+                rs.getInt("duration"),
+                rs.getString("status").equals("ACTIVE"),
+                rs.getString("seller_mail"),
+                rs.getString("user_mail"));
+        produit.setVente(rs.getString("sale_id"));
+        return produit;
     }
 
     /**
      * ajouter des offres faites sur un produit aux tables Bids et History dans la base de données en enregistrant son email et le montant avec lequel il a encherit
-     * Ainsi que mettre à jour les informations du produit dans la table Cars
+     * Ainsi que mettre à jour les informations du produit dans la table Cars.
+     * L'offre est vérifiée une dernière fois : les écritures étant exécutées dans l'ordre par un seul thread, la table Cars reflète toutes les offres précédentes
      * @param carId : Id de la voiture sur laquelle on place une enchère
      * @param user_mail : le mail de l'utilisateur qui fait l'offre
-     * @param amount : le montant de l'offre
-     * @throws SQLException
+     * @param amount : le montant de l'offre, en centimes
+     * @return la future complétée une fois l'offre enregistrée, ou en échec si elle est refusée
      */
-    public void addBid(String carId, String user_mail, double amount) throws SQLException {
-        connection.setAutoCommit(false);
-        try {
+    public CompletableFuture<Void> addBid(String carId, String user_mail, long amount) {
+        return ecrivain.soumettre(connexion -> {
             String checkSql = "SELECT status, current_price, increment FROM cars WHERE car_id = ? AND status = 'ACTIVE'";
-            try (PreparedStatement checkStmt = connection.prepareStatement(checkSql)) {
+            try (PreparedStatement checkStmt = connexion.prepareStatement(checkSql)) {
                 checkStmt.setString(1, carId);
                 ResultSet rs = checkStmt.executeQuery();
 
@@ -235,44 +413,68 @@ public class DataBase {
                     throw new SQLException("Car is not available for bidding");
                 }
 
-                double currentPrice = rs.getDouble("current_price");
-                double increment = rs.getDouble("increment");
+                long currentPrice = rs.getLong("current_price");
+                long increment = rs.getLong("increment");
                 if (amount < currentPrice + increment) {
                     throw new SQLException("Bid amount must be higher than current price");
                 }
             }
-            String updateSql = "UPDATE cars SET current_price = ?, user_mail = ? WHERE car_id = ?";
-            try (PreparedStatement updateStmt = connection.prepareStatement(updateSql)) {
-                updateStmt.setDouble(1, amount);
-                updateStmt.setString(2, user_mail);
-                updateStmt.setString(3, carId);
-                updateStmt.executeUpdate();
-            }
-            String bidSql = "INSERT INTO bids (car_id, user_mail, bid_amount, bid_time) VALUES (?, ?, ?, datetime('now'))";
-            try (PreparedStatement bidStmt = connection.prepareStatement(bidSql)) {
-                bidStmt.setString(1, carId);
-                bidStmt.setString(2, user_mail);
-                bidStmt.setDouble(3, amount);
-                bidStmt.executeUpdate();
+            enregistrerOffre(connexion, carId, user_mail, amount);
+        });
+    }
+
+    /**
+     * enregistrer de nouveau une offre relue dans le journal des enchères au redémarrage du serveur :
+     * l'offre n'est ajoutée aux tables Bids et History, et le produit mis à jour dans la table Cars, que si elle n'y est pas déjà.
+     * Les prix d'un produit ne faisant que monter, une offre déjà enregistrée se reconnaît à son montant
+     * @param carId : Id de la voiture sur laquelle l'offre a été acceptée
+     * @param user_mail : le mail de l'utilisateur qui a fait l'offre
+     * @param amount : le montant de l'offre, en centimes
+     * @return la future complétée une fois l'offre enregistrée ou reconnue comme déjà enregistrée
+     */
+    public CompletableFuture<Void> addBidIfAbsent(String carId, String user_mail, long amount) {
+        return ecrivain.soumettre(connexion -> {
+            String checkSql = "SELECT 1 FROM bids WHERE car_id = ? AND bid_amount = ?";
+            try (PreparedStatement checkStmt = connexion.prepareStatement(checkSql)) {
+                checkStmt.setString(1, carId);
+                checkStmt.setLong(2, amount);
+                if (checkStmt.executeQuery().next()) {
+                    return;
+                }
             }
+            enregistrerOffre(connexion, carId, user_mail, amount);
+        });
+    }
 
-            String historySql = "INSERT INTO history (user_mail, car_id, bid_amount, interaction_time) VALUES (?, ?, ?, ?)";
-            try (PreparedStatement historyStmt = connection.prepareStatement(historySql)) {
-                historyStmt.setString(1, user_mail);
-                historyStmt.setString(2, carId);
-                historyStmt.setDouble(3, amount);
+    /**
+     * mettre à jour le produit dans la table Cars et ajouter l'offre aux tables Bids et History, sur la connexion du thread d'écriture
+     */
+    private static void enregistrerOffre(Connection connexion, String carId, String user_mail, long amount) throws SQLException {
+        String updateSql = "UPDATE cars SET current_price = ?, user_mail = ? WHERE car_id = ?";
+        try (PreparedStatement updateStmt = connexion.prepareStatement(updateSql)) {
+            updateStmt.setLong(1, amount);
+            updateStmt.setString(2, user_mail);
+            updateStmt.setString(3, carId);
+            updateStmt.executeUpdate();
+        }
+        String bidSql = "INSERT INTO bids (car_id, user_mail, bid_amount, bid_time) VALUES (?, ?, ?, datetime('now'))";
+        try (PreparedStatement bidStmt = connexion.prepareStatement(bidSql)) {
+            bidStmt.setString(1, carId);
+            bidStmt.setString(2, user_mail);
+            bidStmt.setLong(3, amount);
+            bidStmt.executeUpdate();
+        }
 
-                String currentTime = java.time.LocalDateTime.now().toString();
-                historyStmt.setString(4, currentTime);
+        String historySql = "INSERT INTO history (user_mail, car_id, bid_amount, interaction_time) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement historyStmt = connexion.prepareStatement(historySql)) {
+            historyStmt.setString(1, user_mail);
+            historyStmt.setString(2, carId);
+            historyStmt.setLong(3, amount);
 
-                historyStmt.executeUpdate();
-            }
-            connection.commit();
-        } catch (SQLException e) {
-            connection.rollback();
-            throw e;
-        } finally {
-            connection.setAutoCommit(true);
+            String currentTime = java.time.LocalDateTime.now().toString();
+            historyStmt.setString(4, currentTime);
+
+            historyStmt.executeUpdate();
         }
     }
 
@@ -283,13 +485,17 @@ public class DataBase {
      */
     public User getUserByUsername(String username) {
         String sql = "SELECT * FROM users WHERE username = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, username);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return new User(rs.getInt("id"), rs.getString("username"), rs.getString("password"));
+        try {
+            return lecteurs.lire(lecteur -> {
+                PreparedStatement pstmt = lecteur.preparer(sql);
+                pstmt.setString(1, username);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return new User(rs.getInt("id"), rs.getString("username"), rs.getString("password"));
+                    }
                 }
-            }
+                return null;
+            });
         } catch (SQLException e) {
             System.err.println("Error retrieving user: " + e.getMessage());
             e.printStackTrace();
@@ -304,22 +510,15 @@ public class DataBase {
     public List<Produit> getAllCars() {
         List<Produit> allCarsActive = new ArrayList<>();
         String sql = "SELECT * FROM cars WHERE status = 'ACTIVE'";
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                Produit produit = new Produit(
-                        rs.getString("car_id"),
-                        rs.getString("description"),
-                        rs.getDouble("starting_price"),
-                        rs.getDouble("current_price"),
-                        rs.getInt("increment"),
-                        rs.getInt("duration"),
-                        rs.getString("status").equals("ACTIVE"),
-                        rs.getString("seller_mail"),
-                        rs.getString("user_mail")
-                );
-                allCarsActive.add(produit);
-            }
+        try {
+            lecteurs.lire(lecteur -> {
+                try (ResultSet rs = lecteur.preparer(sql).executeQuery()) {
+                    while (rs.next()) {
+                        allCarsActive.add(lireProduit(rs));
+                    }
+                }
+                return null;
+            });
         } catch (SQLException e) {
             System.err.println("Error retrieving cars: " + e.getMessage());
             e.printStackTrace();
@@ -327,6 +526,39 @@ public class DataBase {
         return allCarsActive;
     }
 
+    /**
+     * obtenir les produits dont les enchères sont actives avec leur meilleure offre enregistrée dans la table Bids,
+     * afin de reconstruire le livre des enchères au démarrage du serveur
+     * @return la liste des produits actifs, dont le prix courant et l'acheteur tiennent compte de la meilleure offre
+     */
+    public List<Produit> getAllCarsWithBestBids() {
+        List<Produit> cars = getAllCars();
+        Map<String, Produit> parId = new HashMap<>();
+        for (Produit produit : cars) {
+            parId.put(produit.getCarId(), produit);
+        }
+        // SQLite renvoie les colonnes de la ligne ayant le montant maximal
+        String sql = "SELECT car_id, user_mail, MAX(bid_amount) AS bid_amount FROM bids GROUP BY car_id";
+        try {
+            lecteurs.lire(lecteur -> {
+                try (ResultSet rs = lecteur.preparer(sql).executeQuery()) {
+                    while (rs.next()) {
+                        Produit produit = parId.get(rs.getString("car_id"));
+                        if (produit != null && rs.getLong("bid_amount") > produit.getPrixCourant()) {
+                            produit.setPrixCourant(rs.getLong("bid_amount"));
+                            produit.setUserAcheteur(rs.getString("user_mail"));
+                        }
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            System.err.println("Error retrieving bids: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return cars;
+    }
+
     /**
      * Retourne la liste des produits disponibles de la data base
      * @return List des Produits
@@ -373,10 +605,10 @@ LatestCurrentUserBid AS (
 )
 SELECT 
     COALESCE(h.winner_mail, 'No previous winner') AS winner_mail,
-    COALESCE(h.winner_amount, 0.0) AS winner_amount,
+    COALESCE(h.winner_amount, 0) AS winner_amount,
     COALESCE(h.winner_time, 'N/A') AS winner_time,
     COALESCE(c.current_bidder_mail, 'No current bidder') AS current_bidder_mail,
-    COALESCE(c.current_bid_amount, 0.0) AS current_bid_amount,
+    COALESCE(c.current_bid_amount, 0) AS current_bid_amount,
     COALESCE(c.current_bid_time, 'N/A') AS current_bid_time
 FROM 
     LatestHistoryBid h
@@ -386,23 +618,27 @@ CROSS JOIN
         // coalsce retourne la premiere valeur non NULL parmi une liste d'expressions
         //DESC (pour trier) le dernier qui a encherit sera en premier
         //cross join c'est intersection entre winner object w currentBid qu'on a crée pour regrouper toutes les infos ensemble
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setString(1, carId);
-            pstmt.setString(2, carId);
-            pstmt.setString(3, currentUserMail);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return new ReclamationDetails(
-                            rs.getString("winner_mail"),
-                            rs.getDouble("winner_amount"),
-                            rs.getString("winner_time"),
-                            rs.getString("current_bidder_mail"),
-                            rs.getDouble("current_bid_amount"),
-                            rs.getString("current_bid_time")
-                    );
+        try {
+            return lecteurs.lire(lecteur -> {
+                PreparedStatement pstmt = lecteur.preparer(query);
+                pstmt.setString(1, carId);
+                pstmt.setString(2, carId);
+                pstmt.setString(3, currentUserMail);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return new ReclamationDetails(
+                                rs.getString("winner_mail"),
+                                rs.getLong("winner_amount"),
+                                rs.getString("winner_time"),
+                                rs.getString("current_bidder_mail"),
+                                rs.getLong("current_bid_amount"),
+                                rs.getString("current_bid_time")
+                        );
+                    }
                 }
-            }
+                return null;
+            });
         } catch (SQLException e) {
             System.err.println("Reclamation query error: " + e.getMessage());
         }
@@ -422,24 +658,24 @@ CROSS JOIN
 
         System.out.println("Retrieving history for user: " + user_mail);
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-
-            pstmt.setString(1, user_mail);
+        try {
+            lecteurs.lire(lecteur -> {
+                PreparedStatement pstmt = lecteur.preparer(sql);
 
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (!rs.isBeforeFirst()) {
-                    return historique;
-                }
+                pstmt.setString(1, user_mail);
 
-                while (rs.next()) {
-                    int id = rs.getInt("id");
-                    String carId = rs.getString("car_id");
-                    String interactionTime = rs.getString("interaction_time");
-                    double bidAmount = rs.getDouble("bid_amount");
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int id = rs.getInt("id");
+                        String carId = rs.getString("car_id");
+                        String interactionTime = rs.getString("interaction_time");
+                        long bidAmount = rs.getLong("bid_amount");
 
-                    historique.add(new HistoryDetails(id, carId, interactionTime, bidAmount));
+                        historique.add(new HistoryDetails(id, carId, interactionTime, bidAmount));
+                    }
                 }
-            }
+                return null;
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -0,0 +1,208 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread unique d'écriture dans la base de données, avec validation groupée (group commit).
+ *
+ * Le thread possède sa propre connexion JDBC, que personne d'autre n'utilise : les transactions ne peuvent plus
+ * s'entrelacer. Les écritures sont placées dans une file et exécutées dans l'ordre ; le thread regroupe
+ * les écritures disponibles en un lot, borné par une taille maximale et un délai d'attente, et les valide
+ * par un seul commit. Chaque écriture est isolée par un point de sauvegarde : une écriture en échec est annulée
+ * sans empêcher la validation des autres. La future de chaque écriture est complétée après le commit de son lot.
+ *
+ * La file est bornée ; lorsqu'elle est pleine, la soumission attend qu'une place se libère.
+ */
+public class EcrivainBase {
+
+    /**
+     * Écriture à exécuter sur la connexion du thread d'écriture, dans la transaction du lot en cours.
+     */
+    public interface Ecriture {
+        void executer(Connection connexion) throws SQLException;
+    }
+
+    /**
+     * Écriture en attente et la future complétée une fois son lot validé.
+     */
+    private record Commande(Ecriture ecriture, CompletableFuture<Void> resultat) {
+    }
+
+    private final Connection connexion;
+    private final BlockingQueue<Commande> file;
+    private final int tailleLot;
+    private final long attenteNanos;
+    private final Thread ecrivain;
+    private volatile boolean actif = true;
+
+    private final AtomicLong ecrites = new AtomicLong();
+    private final AtomicLong echecs = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+
+    /**
+     * Construit la file d'écriture et démarre son thread.
+     *
+     * @param connexion         La connexion réservée au thread d'écriture.
+     * @param capacite          Le nombre maximal d'écritures en attente.
+     * @param tailleLot         Le nombre maximal d'écritures validées par un même commit.
+     * @param attenteMicros     Le délai pendant lequel un lot attend d'autres écritures avant d'être validé.
+     * @throws SQLException Si la connexion ne peut pas passer en mode transactionnel.
+     */
+    public EcrivainBase(Connection connexion, int capacite, int tailleLot, long attenteMicros) throws SQLException {
+        this.connexion = connexion;
+        this.file = new LinkedBlockingQueue<>(capacite);
+        this.tailleLot = Math.max(1, tailleLot);
+        this.attenteNanos = TimeUnit.MICROSECONDS.toNanos(attenteMicros);
+        connexion.setAutoCommit(false);
+        this.ecrivain = new Thread(this::ecrire, "ecrivain-base");
+        ecrivain.start();
+    }
+
+    /**
+     * Ajoute une écriture à la file.
+     *
+     * @param ecriture L'écriture à exécuter.
+     * @return La future complétée lorsque l'écriture est validée, ou en échec si elle a été annulée.
+     */
+    public CompletableFuture<Void> soumettre(Ecriture ecriture) {
+        CompletableFuture<Void> resultat = new CompletableFuture<>();
+        if (!actif) {
+            resultat.completeExceptionally(new SQLException("La base de donnees est fermee"));
+            return resultat;
+        }
+        try {
+            file.put(new Commande(ecriture, resultat));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            resultat.completeExceptionally(e);
+        }
+        return resultat;
+    }
+
+    /**
+     * Boucle du thread d'écriture ; elle ne s'arrête qu'une fois la file vide.
+     */
+    private void ecrire() {
+        List<Commande> lot = new ArrayList<>(tailleLot);
+        while (actif || !file.isEmpty()) {
+            try {
+                Commande premiere = file.poll(100, TimeUnit.MILLISECONDS);
+                if (premiere == null) {
+                    continue;
+                }
+                lot.add(premiere);
+                long limite = System.nanoTime() + attenteNanos;
+                while (lot.size() < tailleLot) {
+                    long reste = limite - System.nanoTime();
+                    Commande suivante = reste > 0 ? file.poll(reste, TimeUnit.NANOSECONDS) : file.poll();
+                    if (suivante == null) {
+                        break;
+                    }
+                    lot.add(suivante);
+                }
+            } catch (InterruptedException e) {
+                actif = false;
+            }
+            if (!lot.isEmpty()) {
+                valider(lot);
+                lot.clear();
+            }
+        }
+    }
+
+    /**
+     * Exécute un lot d'écritures et le valide par un seul commit.
+     *
+     * @param lot Les écritures du lot, dans l'ordre de soumission.
+     */
+    private void valider(List<Commande> lot) {
+        List<Commande> reussies = new ArrayList<>(lot.size());
+        try {
+            for (Commande commande : lot) {
+                Savepoint point = connexion.setSavepoint();
+                try {
+                    commande.ecriture().executer(connexion);
+                    connexion.releaseSavepoint(point);
+                    reussies.add(commande);
+                } catch (SQLException | RuntimeException e) {
+                    // Une écriture en échec est annulée seule, les autres écritures du lot sont conservées
+                    connexion.rollback(point);
+                    echecs.incrementAndGet();
+                    commande.resultat().completeExceptionally(e);
+                }
+            }
+            connexion.commit();
+            commits.incrementAndGet();
+        } catch (SQLException e) {
+            System.err.println("Echec de la validation d'un lot d'ecritures: " + e.getMessage());
+            try {
+                connexion.rollback();
+            } catch (SQLException ignored) {
+                // La connexion est inutilisable, les écritures du lot sont en échec
+            }
+            echecs.addAndGet(reussies.size());
+            for (Commande commande : reussies) {
+                commande.resultat().completeExceptionally(e);
+            }
+            return;
+        }
+        ecrites.addAndGet(reussies.size());
+        for (Commande commande : reussies) {
+            commande.resultat().complete(null);
+        }
+    }
+
+    /**
+     * @return Le nombre d'écritures en attente.
+     */
+    public int getEnAttente() {
+        return file.size();
+    }
+
+    /**
+     * @return Le nombre d'écritures validées.
+     */
+    public long getEcrites() {
+        return ecrites.get();
+    }
+
+    /**
+     * @return Le nombre d'écritures en échec.
+     */
+    public long getEchecs() {
+        return echecs.get();
+    }
+
+    /**
+     * @return Le nombre de commits effectués.
+     */
+    public long getCommits() {
+        return commits.get();
+    }
+
+    /**
+     * Exécute les écritures encore en attente puis arrête le thread d'écriture.
+     * La connexion reste ouverte ; elle est fermée par son propriétaire.
+     */
+    public void arreter() {
+        actif = false;
+        try {
+            ecrivain.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EcrivainBase{ecrites=" + getEcrites() + ", echecs=" + getEchecs() + ", commits=" + getCommits()
+                + ", enAttente=" + getEnAttente() + '}';
+    }
+}
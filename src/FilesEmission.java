@@ -0,0 +1,272 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import Communication.MessageEncode;
+
+/**
+ * Files d'émission du serveur : chaque client (adresse et port) a sa propre file bornée, vidée par des threads
+ * d'émission dédiés. Les threads de traitement des messages ne font que déposer les datagrammes et ne sont jamais
+ * bloqués par le socket, quel que soit le nombre de destinataires d'une diffusion.
+ *
+ * Un message déposé avec une clé de regroupement (mise à jour d'un lot) remplace le message de même clé encore
+ * en attente pour ce client. Lorsqu'une file est pleine, la plus ancienne mise à jour en attente est écartée ;
+ * les messages sans clé (réponses, fins d'enchère, débuts de vente, avis personnels) ne sont jamais écartés,
+ * quitte à dépasser la capacité de la file.
+ *
+ * Un thread d'émission envoie au plus {@value #LOT} messages d'un client avant de passer au client suivant ;
+ * les messages d'un même client partent dans l'ordre de leur dépôt.
+ */
+public class FilesEmission {
+
+    private static final int LOT = 32; // Messages d'un même client envoyés avant de passer au suivant
+
+    /**
+     * Envoi effectif d'un datagramme, exécuté par un thread d'émission.
+     */
+    @FunctionalInterface
+    public interface Emetteur {
+        void envoyer(InetSocketAddress destinataire, MessageEncode donnees) throws IOException;
+    }
+
+    /**
+     * Message en attente ; ses données sont remplacées lorsqu'une mise à jour plus récente de même clé est déposée.
+     */
+    private static final class Envoi {
+        private MessageEncode donnees;
+        private final String cle; // null : message qui n'est jamais écarté
+
+        private Envoi(MessageEncode donnees, String cle) {
+            this.donnees = donnees;
+            this.cle = cle;
+        }
+    }
+
+    /**
+     * File d'un client, protégée par son propre verrou.
+     */
+    private static final class FileClient {
+        private final InetSocketAddress destinataire;
+        private final ArrayDeque<Envoi> envois = new ArrayDeque<>();
+        private final Map<String, Envoi> regroupables = new HashMap<>(); // Mise à jour en attente, par clé
+        private boolean planifiee; // Confiée à un thread d'émission (dans la file des clients prêts ou en cours d'envoi)
+        private boolean fermee; // Retirée de la table : un nouveau dépôt crée une autre file
+
+        private FileClient(InetSocketAddress destinataire) {
+            this.destinataire = destinataire;
+        }
+    }
+
+    private final Map<InetSocketAddress, FileClient> files = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<FileClient> prets = new LinkedBlockingQueue<>(); // Clients qui ont des messages en attente
+    private final Emetteur emetteur;
+    private final int capacite;
+    private final Thread[] threads;
+    private volatile boolean actif = true;
+    private final AtomicInteger profondeur = new AtomicInteger(); // Messages en attente, tous clients confondus
+    private final AtomicInteger profondeurMax = new AtomicInteger(); // Plus longue file d'un client observée
+    private final AtomicLong envoyes = new AtomicLong();
+    private final AtomicLong regroupes = new AtomicLong();
+    private final AtomicLong ecartes = new AtomicLong();
+    private final AtomicLong echecs = new AtomicLong();
+
+    /**
+     * Construit les files d'émission et démarre leurs threads.
+     *
+     * @param nbThreads Le nombre de threads d'émission ; 0 pour envoyer directement sur le thread qui dépose le message.
+     * @param capacite  Le nombre de mises à jour en attente par client au-delà duquel la plus ancienne est écartée.
+     * @param emetteur  L'envoi effectif d'un datagramme.
+     */
+    public FilesEmission(int nbThreads, int capacite, Emetteur emetteur) {
+        this.capacite = Math.max(capacite, 1);
+        this.emetteur = emetteur;
+        this.threads = new Thread[Math.max(nbThreads, 0)];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(this::emettre, "emission-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    /**
+     * Dépose un message dans la file d'un client.
+     *
+     * @param destinataire Le client.
+     * @param donnees      Le message encodé.
+     * @param cle          La clé de regroupement d'une mise à jour qui peut être remplacée ou écartée,
+     *                     ou null pour un message qui doit être envoyé.
+     */
+    public void soumettre(InetSocketAddress destinataire, MessageEncode donnees, String cle) {
+        if (threads.length == 0) {
+            envoyer(destinataire, donnees);
+            return;
+        }
+        if (!actif) {
+            return;
+        }
+        while (true) {
+            FileClient file = files.computeIfAbsent(destinataire, FileClient::new);
+            synchronized (file) {
+                if (file.fermee) {
+                    continue; // Vidée et retirée entre-temps
+                }
+                ajouter(file, donnees, cle);
+                if (!file.planifiee) {
+                    file.planifiee = true;
+                    prets.add(file);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Ajoute un message à une file en appliquant la politique de regroupement et d'éviction.
+     * Doit être appelée sous le verrou de la file.
+     */
+    private void ajouter(FileClient file, MessageEncode donnees, String cle) {
+        if (cle != null) {
+            Envoi enAttente = file.regroupables.get(cle);
+            if (enAttente != null) {
+                enAttente.donnees = donnees; // Le client recevra directement la mise à jour la plus récente
+                regroupes.incrementAndGet();
+                return;
+            }
+            if (file.envois.size() >= capacite && !ecarterPlusAncienne(file)) {
+                ecartes.incrementAndGet(); // La file ne contient que des messages à envoyer : la mise à jour est écartée
+                return;
+            }
+        }
+        Envoi envoi = new Envoi(donnees, cle);
+        file.envois.add(envoi);
+        if (cle != null) {
+            file.regroupables.put(cle, envoi);
+        }
+        profondeur.incrementAndGet();
+        profondeurMax.accumulateAndGet(file.envois.size(), Math::max);
+    }
+
+    /**
+     * Écarte la plus ancienne mise à jour en attente dans une file. Doit être appelée sous le verrou de la file.
+     *
+     * @return {@code false} si la file ne contient aucune mise à jour.
+     */
+    private boolean ecarterPlusAncienne(FileClient file) {
+        for (Iterator<Envoi> it = file.envois.iterator(); it.hasNext(); ) {
+            Envoi envoi = it.next();
+            if (envoi.cle != null) {
+                it.remove();
+                file.regroupables.remove(envoi.cle);
+                profondeur.decrementAndGet();
+                ecartes.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Boucle d'un thread d'émission : prend un client prêt, envoie un lot de ses messages hors du verrou de sa file,
+     * puis le remet en fin de file des clients prêts s'il lui reste des messages.
+     */
+    private void emettre() {
+        List<MessageEncode> lot = new ArrayList<>(LOT);
+        while (actif || !prets.isEmpty()) {
+            FileClient file;
+            try {
+                file = prets.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (file == null) {
+                continue;
+            }
+            synchronized (file) {
+                while (lot.size() < LOT && !file.envois.isEmpty()) {
+                    Envoi envoi = file.envois.poll();
+                    if (envoi.cle != null) {
+                        file.regroupables.remove(envoi.cle);
+                    }
+                    lot.add(envoi.donnees);
+                }
+            }
+            profondeur.addAndGet(-lot.size());
+            for (MessageEncode donnees : lot) {
+                envoyer(file.destinataire, donnees);
+            }
+            lot.clear();
+            synchronized (file) {
+                if (!file.envois.isEmpty()) {
+                    prets.add(file); // Les autres clients prêts passent avant la suite de cette file
+                } else {
+                    file.planifiee = false;
+                    file.fermee = true;
+                    files.remove(file.destinataire, file);
+                }
+            }
+        }
+    }
+
+    private void envoyer(InetSocketAddress destinataire, MessageEncode donnees) {
+        try {
+            emetteur.envoyer(destinataire, donnees);
+            envoyes.incrementAndGet();
+        } catch (IOException e) {
+            echecs.incrementAndGet();
+            System.err.println("Error sending response: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cesse d'accepter des messages et laisse aux threads d'émission un court délai pour vider les files.
+     */
+    public void arreter() {
+        actif = false;
+        for (Thread thread : threads) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return Le nombre de messages en attente, tous clients confondus.
+     */
+    public int getProfondeur() {
+        return profondeur.get();
+    }
+
+    /**
+     * @return Le nombre de mises à jour écartées parce qu'un client ne suivait pas.
+     */
+    public long getEcartes() {
+        return ecartes.get();
+    }
+
+    /**
+     * @return Le nombre de mises à jour remplacées par une plus récente avant leur envoi.
+     */
+    public long getRegroupes() {
+        return regroupes.get();
+    }
+
+    @Override
+    public String toString() {
+        return "FilesEmission{threads=" + threads.length + ", capacite=" + capacite + ", profondeur=" + profondeur.get()
+                + ", profondeurMax=" + profondeurMax.get() + ", clients=" + files.size() + ", envoyes=" + envoyes.get()
+                + ", regroupes=" + regroupes.get() + ", ecartes=" + ecartes.get() + ", echecs=" + echecs.get() + '}';
+    }
+}
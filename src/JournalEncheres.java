@@ -0,0 +1,671 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import Communication.*;
+
+/**
+ * Journal des événements de l'enchère, en ajout seul, avec des instantanés périodiques de l'état des lots.
+ *
+ * Chaque événement (lot ajouté, vente ouverte ou démarrée, offre acceptée, enchère maximale enregistrée, lot clos)
+ * reçoit un numéro de séquence et est écrit, avec une somme de contrôle CRC32, dans un segment de taille fixe projeté
+ * en mémoire. Un instantané enregistre l'état des ventes, de tous les lots ouverts et de leurs enchères maximales
+ * ainsi que le dernier numéro de séquence qu'il contient ; les segments
+ * entièrement couverts par un instantané sont supprimés. Au redémarrage, l'état est rechargé depuis le dernier
+ * instantané puis les événements suivants sont rejoués : la durée de la reprise est bornée par l'intervalle
+ * entre deux instantanés, quel que soit le nombre d'offres passées.
+ *
+ * Format d'un événement dans un segment : [longueur:int][crc:int][type:byte][sequence:long][contenu].
+ * Une longueur nulle marque la fin des données du segment. Un événement tronqué ou dont la somme de contrôle
+ * est fausse termine le journal : il est effacé avec tout ce qui le suit.
+ *
+ * Les écritures projetées en mémoire survivent à l'arrêt brutal du processus ; elles sont forcées sur le disque
+ * à chaque changement de segment, à chaque instantané et à la fermeture.
+ */
+public class JournalEncheres {
+
+    /**
+     * Applique au livre des enchères les lots et les événements relus au redémarrage.
+     */
+    public interface Rejeu {
+        void lotAjoute(Produit lot);
+
+        void offreAcceptee(String carId, String acheteur, long montant);
+
+        void lotClos(String carId);
+
+        void venteOuverte(String vente, String commissaire);
+
+        void venteDemarree(String vente, long debut);
+
+        void maximumEnregistre(Maximum maximum);
+    }
+
+    /**
+     * Enchère maximale confiée au serveur par le meneur d'un lot.
+     */
+    public record Maximum(String carId, String acheteur, long montant) {
+    }
+
+    private static final byte LOT_AJOUTE = 1;
+    private static final byte VENTE_DEMARREE = 2;
+    private static final byte OFFRE_ACCEPTEE = 3;
+    private static final byte LOT_CLOS = 4;
+    private static final byte VENTE_OUVERTE = 5;
+    private static final byte MAXIMUM_ENREGISTRE = 6;
+
+    private static final int MAGIQUE_INSTANTANE = 0x4A484934; // "JHI4" : ventes, enchères maximales et montants en centimes
+    private static final int ENTETE = 8; // longueur et crc d'un événement
+    private static final int TAILLE_MAX_EVENEMENT = 64 * 1024;
+
+    private final Path dossier;
+    private final int tailleSegment;
+    private final long seuilInstantane;
+    private final ByteBuffer tampon = ByteBuffer.allocate(TAILLE_MAX_EVENEMENT); // Événement en cours d'écriture
+    private final CRC32 crc = new CRC32();
+    private final Object verrouInstantane = new Object();
+
+    private MappedByteBuffer segment; // Segment courant, null tant que le journal n'est pas restauré
+    private long sequence; // Numéro du dernier événement écrit
+    private long depuisInstantane; // Événements écrits depuis le dernier instantané
+    private Supplier<List<Produit>> source;
+    private Supplier<List<Vente>> sourceVentes;
+    private Supplier<List<Maximum>> sourceMaximums;
+    private Supplier<CompletableFuture<Void>> persistance;
+    private Thread instantanes;
+    private volatile boolean actif;
+    private long nombreInstantanes;
+    private long evenementsRejoues;
+
+    /**
+     * Construit un journal ; il doit être restauré par {@link #restaurer(Rejeu)} avant toute écriture.
+     *
+     * @param dossier         Le dossier des segments et des instantanés.
+     * @param tailleSegment   La taille d'un segment, en octets.
+     * @param seuilInstantane Le nombre d'événements au-delà duquel un nouvel instantané est écrit.
+     */
+    public JournalEncheres(Path dossier, int tailleSegment, long seuilInstantane) {
+        this.dossier = dossier;
+        this.tailleSegment = Math.max(tailleSegment, TAILLE_MAX_EVENEMENT + ENTETE + 4);
+        this.seuilInstantane = Math.max(1, seuilInstantane);
+    }
+
+    /**
+     * Recharge le dernier instantané valide et rejoue les événements qui le suivent, puis ouvre le journal en écriture.
+     * Un journal sans instantané n'est pas utilisable : ses segments sont effacés et le livre doit être reconstruit
+     * depuis la base de données.
+     *
+     * @param rejeu Applique les lots et les événements relus.
+     * @return {@code true} si l'état a été restauré depuis le journal, {@code false} si le journal était vide.
+     * @throws IOException Si le dossier du journal ne peut pas être lu ou écrit.
+     */
+    public synchronized boolean restaurer(Rejeu rejeu) throws IOException {
+        Files.createDirectories(dossier);
+        List<Path> segments = lister("journal-", ".seg");
+        Long base = null;
+        List<Path> instantanesTrouves = lister("instantane-", ".snap");
+        for (int i = instantanesTrouves.size() - 1; i >= 0 && base == null; i--) {
+            base = lireInstantane(instantanesTrouves.get(i), rejeu);
+        }
+        if (base == null) {
+            for (Path chemin : segments) {
+                Files.delete(chemin);
+            }
+            sequence = 0;
+            ouvrirSegment(1);
+            return false;
+        }
+        sequence = base;
+
+        long attendu = base + 1; // Numéro attendu pour l'événement suivant
+        for (int i = 0; i < segments.size(); i++) {
+            Path chemin = segments.get(i);
+            long premier = numero(chemin, "journal-", ".seg");
+            if (premier > attendu) {
+                System.err.println("Journal discontinu avant " + chemin.getFileName() + ", les segments suivants sont ignores");
+                effacer(segments.subList(i, segments.size()));
+                break;
+            }
+            MappedByteBuffer donnees = projeter(chemin);
+            attendu = Math.max(attendu, rejouer(donnees, premier, base, rejeu));
+            if (donnees.remaining() >= 4 && donnees.getInt(donnees.position()) != 0) {
+                // Événement tronqué ou corrompu : la fin du segment est effacée et le journal reprend à cet endroit
+                System.err.println("Fin du journal corrompue dans " + chemin.getFileName() + " a la position " + donnees.position());
+                effacerFin(donnees);
+                effacer(segments.subList(i + 1, segments.size()));
+                segment = donnees;
+                break;
+            }
+            segment = donnees;
+        }
+        if (segment == null || attendu <= base) {
+            // Aucun segment ne se termine après l'instantané : les événements suivants commencent un nouveau segment
+            ouvrirSegment(base + 1);
+        }
+        return true;
+    }
+
+    /**
+     * Écrit immédiatement un instantané, puis démarre le thread qui en écrit un nouveau à chaque fois
+     * que le seuil d'événements est atteint.
+     *
+     * @param source         Fournit une copie des lots ouverts.
+     * @param sourceVentes   Fournit les ventes.
+     * @param sourceMaximums Fournit les enchères maximales en vigueur.
+     * @param persistance    Fournit une future complétée une fois validées dans la base de données les écritures
+     *                       soumises jusque-là : un instantané n'est écrit qu'après elles, pour que les événements
+     *                       qu'il couvre ne puissent plus être perdus avec la file d'écriture.
+     * @throws IOException Si l'instantané ne peut pas être écrit.
+     */
+    public void demarrer(Supplier<List<Produit>> source, Supplier<List<Vente>> sourceVentes,
+                         Supplier<List<Maximum>> sourceMaximums, Supplier<CompletableFuture<Void>> persistance) throws IOException {
+        this.source = source;
+        this.sourceVentes = sourceVentes;
+        this.sourceMaximums = sourceMaximums;
+        this.persistance = persistance;
+        ecrireInstantane();
+        actif = true;
+        instantanes = new Thread(this::attendreSeuil, "instantanes");
+        instantanes.setDaemon(true);
+        instantanes.start();
+    }
+
+    /**
+     * Journalise l'ajout d'un lot.
+     *
+     * @param lot Le lot ajouté.
+     * @throws IOException Si l'événement ne peut pas être écrit.
+     */
+    public synchronized void lotAjoute(Produit lot) throws IOException {
+        tampon.clear();
+        ecrireProduit(tampon, lot);
+        ajouter(LOT_AJOUTE);
+    }
+
+    /**
+     * Journalise l'ouverture d'une vente par son commissaire.
+     *
+     * @param vente       L'identifiant de la vente.
+     * @param commissaire Le commissaire de la vente.
+     * @throws IOException Si l'événement ne peut pas être écrit.
+     */
+    public synchronized void venteOuverte(String vente, String commissaire) throws IOException {
+        tampon.clear();
+        ecrireTexte(tampon, vente);
+        ecrireTexte(tampon, commissaire);
+        ajouter(VENTE_OUVERTE);
+    }
+
+    /**
+     * Journalise le début d'une vente.
+     *
+     * @param vente L'identifiant de la vente.
+     * @param debut La date de début, en millisecondes depuis l'époque.
+     * @throws IOException Si l'événement ne peut pas être écrit.
+     */
+    public synchronized void venteDemarree(String vente, long debut) throws IOException {
+        tampon.clear();
+        ecrireTexte(tampon, vente);
+        tampon.putLong(debut);
+        ajouter(VENTE_DEMARREE);
+    }
+
+    /**
+     * Journalise une offre acceptée.
+     *
+     * @param carId    L'identifiant du lot.
+     * @param acheteur L'utilisateur qui a fait l'offre.
+     * @param montant  Le montant de l'offre, en centimes.
+     * @throws IOException Si l'événement ne peut pas être écrit.
+     */
+    public synchronized void offreAcceptee(String carId, String acheteur, long montant) throws IOException {
+        tampon.clear();
+        ecrireTexte(tampon, carId);
+        ecrireTexte(tampon, acheteur);
+        tampon.putLong(montant);
+        ajouter(OFFRE_ACCEPTEE);
+    }
+
+    /**
+     * Journalise l'enchère maximale confiée par un acheteur sur un lot.
+     *
+     * @param maximum L'enchère maximale.
+     * @throws IOException Si l'événement ne peut pas être écrit.
+     */
+    public synchronized void maximumEnregistre(Maximum maximum) throws IOException {
+        tampon.clear();
+        ecrireMaximum(tampon, maximum);
+        ajouter(MAXIMUM_ENREGISTRE);
+    }
+
+    /**
+     * Journalise la clôture d'un lot.
+     *
+     * @param carId L'identifiant du lot.
+     * @throws IOException Si l'événement ne peut pas être écrit.
+     */
+    public synchronized void lotClos(String carId) throws IOException {
+        tampon.clear();
+        ecrireTexte(tampon, carId);
+        ajouter(LOT_CLOS);
+    }
+
+    /**
+     * Écrit l'événement préparé dans le tampon à la suite du segment courant.
+     *
+     * @param type Le type de l'événement.
+     * @throws IOException Si un nouveau segment ne peut pas être créé.
+     */
+    private void ajouter(byte type) throws IOException {
+        if (segment == null) {
+            throw new IOException("Le journal n'est pas ouvert");
+        }
+        int longueurContenu = tampon.position();
+        int longueur = 1 + Long.BYTES + longueurContenu;
+        if (segment.remaining() < ENTETE + longueur + 4) { // Garde la place de la longueur nulle finale
+            segment.force();
+            ouvrirSegment(sequence + 1);
+        }
+        long numero = sequence + 1;
+        crc.reset();
+        crc.update(type);
+        for (int decalage = 56; decalage >= 0; decalage -= 8) {
+            crc.update((int) (numero >>> decalage));
+        }
+        crc.update(tampon.array(), 0, longueurContenu);
+        segment.putInt(longueur);
+        segment.putInt((int) crc.getValue());
+        segment.put(type);
+        segment.putLong(numero);
+        segment.put(tampon.array(), 0, longueurContenu);
+        sequence = numero;
+        if (++depuisInstantane == seuilInstantane) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Rejoue les événements d'un segment jusqu'à la fin de ses données ou jusqu'au premier événement invalide,
+     * sur lequel la position du segment reste placée.
+     *
+     * @param donnees Le segment projeté.
+     * @param premier Le numéro du premier événement du segment.
+     * @param base    Le numéro du dernier événement contenu dans l'instantané.
+     * @param rejeu   Applique les événements.
+     * @return Le numéro attendu pour l'événement suivant.
+     */
+    private long rejouer(MappedByteBuffer donnees, long premier, long base, Rejeu rejeu) {
+        long attendu = premier;
+        while (donnees.remaining() >= ENTETE) {
+            int debut = donnees.position();
+            int longueur = donnees.getInt(debut);
+            if (longueur < 1 + Long.BYTES || longueur > donnees.remaining() - ENTETE) {
+                break;
+            }
+            ByteBuffer evenement = donnees.slice(debut + ENTETE, longueur);
+            crc.reset();
+            crc.update(evenement.duplicate());
+            if ((int) crc.getValue() != donnees.getInt(debut + 4)) {
+                break;
+            }
+            byte type = evenement.get();
+            long numero = evenement.getLong();
+            if (numero != attendu) {
+                break;
+            }
+            if (numero > base) {
+                try {
+                    appliquer(type, evenement, rejeu);
+                } catch (RuntimeException e) {
+                    break;
+                }
+                sequence = numero;
+                evenementsRejoues++;
+            }
+            attendu++;
+            donnees.position(debut + ENTETE + longueur);
+        }
+        return attendu;
+    }
+
+    /**
+     * Applique un événement relu.
+     */
+    private void appliquer(byte type, ByteBuffer contenu, Rejeu rejeu) {
+        switch (type) {
+            case LOT_AJOUTE -> rejeu.lotAjoute(lireProduit(contenu));
+            case VENTE_DEMARREE -> rejeu.venteDemarree(lireTexte(contenu), contenu.getLong());
+            case OFFRE_ACCEPTEE -> rejeu.offreAcceptee(lireTexte(contenu), lireTexte(contenu), contenu.getLong());
+            case LOT_CLOS -> rejeu.lotClos(lireTexte(contenu));
+            case VENTE_OUVERTE -> rejeu.venteOuverte(lireTexte(contenu), lireTexte(contenu));
+            case MAXIMUM_ENREGISTRE -> rejeu.maximumEnregistre(lireMaximum(contenu));
+            default -> throw new IllegalArgumentException("Type d'evenement inconnu: " + type);
+        }
+    }
+
+    /**
+     * Boucle du thread des instantanés.
+     */
+    private void attendreSeuil() {
+        while (actif) {
+            synchronized (this) {
+                try {
+                    while (actif && depuisInstantane < seuilInstantane) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            if (!actif) {
+                return;
+            }
+            try {
+                ecrireInstantane();
+            } catch (IOException e) {
+                System.err.println("Echec de l'ecriture d'un instantane: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Écrit un instantané des ventes et des lots ouverts, puis supprime les instantanés plus anciens et les segments qu'il couvre.
+     *
+     * Le numéro de séquence est lu avant la copie des lots : chaque lot copié contient au moins les événements
+     * jusqu'à ce numéro, et les événements suivants, rejoués par-dessus, remplacent l'état qu'ils modifient.
+     * Le livre soumet l'écriture d'un événement à la base sous le verrou du lot, que la copie prend aussi :
+     * une fois la copie faite, les écritures des événements couverts sont soumises, et l'instantané attend leur validation.
+     *
+     * @throws IOException Si l'instantané ne peut pas être écrit.
+     */
+    private void ecrireInstantane() throws IOException {
+        synchronized (verrouInstantane) {
+            long base;
+            synchronized (this) {
+                base = sequence;
+                depuisInstantane = 0;
+                if (segment != null) {
+                    segment.force();
+                }
+            }
+            List<Vente> ventes = sourceVentes.get();
+            List<Produit> lots = source.get();
+            List<Maximum> maximums = sourceMaximums.get();
+            try {
+                persistance.get().join();
+            } catch (CompletionException | CancellationException e) {
+                throw new IOException("Ecritures de la base non validees, instantane differe: " + e.getMessage());
+            }
+
+            Path temporaire = dossier.resolve("instantane.tmp");
+            ByteBuffer lot = ByteBuffer.allocate(TAILLE_MAX_EVENEMENT);
+            CRC32 somme = new CRC32();
+            try (FileChannel canal = FileChannel.open(temporaire, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                 OutputStream sortie = new BufferedOutputStream(Channels.newOutputStream(canal))) {
+                ByteBuffer entete = ByteBuffer.allocate(4 + 8 + 4);
+                entete.putInt(MAGIQUE_INSTANTANE).putLong(base).putInt(ventes.size());
+                sortie.write(entete.array());
+                somme.update(entete.array());
+                for (Vente vente : ventes) {
+                    lot.clear();
+                    ecrireTexte(lot, vente.getId());
+                    ecrireTexte(lot, vente.getCommissaire());
+                    lot.putLong(vente.getDebutMillis());
+                    ecrireBloc(sortie, somme, lot);
+                }
+                ByteBuffer nombre = ByteBuffer.allocate(4).putInt(lots.size());
+                sortie.write(nombre.array());
+                somme.update(nombre.array());
+                for (Produit produit : lots) {
+                    lot.clear();
+                    ecrireProduit(lot, produit);
+                    ecrireBloc(sortie, somme, lot);
+                }
+                nombre.clear().putInt(maximums.size());
+                sortie.write(nombre.array());
+                somme.update(nombre.array());
+                for (Maximum maximum : maximums) {
+                    lot.clear();
+                    ecrireMaximum(lot, maximum);
+                    ecrireBloc(sortie, somme, lot);
+                }
+                sortie.write(ByteBuffer.allocate(4).putInt((int) somme.getValue()).array());
+                sortie.flush();
+                canal.force(true);
+            }
+            Path instantane = dossier.resolve(String.format("instantane-%020d.snap", base));
+            Files.move(temporaire, instantane, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            nombreInstantanes++;
+
+            for (Path ancien : lister("instantane-", ".snap")) {
+                if (!ancien.equals(instantane)) {
+                    Files.deleteIfExists(ancien);
+                }
+            }
+            // Un segment est couvert si le segment suivant commence au plus tard juste après l'instantané
+            List<Path> segments = lister("journal-", ".seg");
+            for (int i = 0; i + 1 < segments.size(); i++) {
+                if (numero(segments.get(i + 1), "journal-", ".seg") <= base + 1) {
+                    Files.deleteIfExists(segments.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Écrit dans un instantané le contenu d'un tampon, précédé de sa taille, et l'ajoute à la somme de contrôle.
+     */
+    private static void ecrireBloc(OutputStream sortie, CRC32 somme, ByteBuffer bloc) throws IOException {
+        ByteBuffer taille = ByteBuffer.allocate(4).putInt(bloc.position());
+        sortie.write(taille.array());
+        sortie.write(bloc.array(), 0, bloc.position());
+        somme.update(taille.array());
+        somme.update(bloc.array(), 0, bloc.position());
+    }
+
+    /**
+     * Lit un instantané et transmet ses ventes, ses lots et ses enchères maximales au rejeu.
+     *
+     * @return Le numéro du dernier événement contenu dans l'instantané, ou null s'il est invalide.
+     */
+    private Long lireInstantane(Path chemin, Rejeu rejeu) throws IOException {
+        ByteBuffer donnees = ByteBuffer.wrap(Files.readAllBytes(chemin));
+        if (donnees.remaining() < 4 + 8 + 4 + 4 + 4 + 4) {
+            return null;
+        }
+        CRC32 somme = new CRC32();
+        somme.update(donnees.array(), 0, donnees.limit() - 4);
+        if ((int) somme.getValue() != donnees.getInt(donnees.limit() - 4) || donnees.getInt() != MAGIQUE_INSTANTANE) {
+            System.err.println("Instantane invalide ignore: " + chemin.getFileName());
+            return null;
+        }
+        long base = donnees.getLong();
+        int nombreVentes = donnees.getInt();
+        for (int i = 0; i < nombreVentes; i++) {
+            int taille = donnees.getInt();
+            ByteBuffer vente = donnees.slice(donnees.position(), taille);
+            String id = lireTexte(vente);
+            rejeu.venteOuverte(id, lireTexte(vente));
+            long debut = vente.getLong();
+            if (debut >= 0) {
+                rejeu.venteDemarree(id, debut);
+            }
+            donnees.position(donnees.position() + taille);
+        }
+        int nombre = donnees.getInt();
+        for (int i = 0; i < nombre; i++) {
+            int taille = donnees.getInt();
+            rejeu.lotAjoute(lireProduit(donnees.slice(donnees.position(), taille)));
+            donnees.position(donnees.position() + taille);
+        }
+        int nombreMaximums = donnees.getInt();
+        for (int i = 0; i < nombreMaximums; i++) {
+            int taille = donnees.getInt();
+            rejeu.maximumEnregistre(lireMaximum(donnees.slice(donnees.position(), taille)));
+            donnees.position(donnees.position() + taille);
+        }
+        return base;
+    }
+
+    /**
+     * Crée un segment dont le premier événement portera le numéro donné, et en fait le segment courant.
+     */
+    private void ouvrirSegment(long premier) throws IOException {
+        segment = projeter(dossier.resolve(String.format("journal-%020d.seg", premier)));
+    }
+
+    private MappedByteBuffer projeter(Path chemin) throws IOException {
+        try (FileChannel canal = FileChannel.open(chemin, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return canal.map(FileChannel.MapMode.READ_WRITE, 0, tailleSegment);
+        }
+    }
+
+    /**
+     * Remplace par des zéros les données du segment situées après sa position.
+     */
+    private static void effacerFin(MappedByteBuffer donnees) {
+        for (int i = donnees.position(); i < donnees.limit(); i++) {
+            donnees.put(i, (byte) 0);
+        }
+        donnees.force();
+    }
+
+    private static void effacer(List<Path> chemins) throws IOException {
+        for (Path chemin : chemins) {
+            Files.deleteIfExists(chemin);
+        }
+    }
+
+    /**
+     * Liste les fichiers du dossier portant le préfixe et le suffixe donnés, triés par numéro.
+     */
+    private List<Path> lister(String prefixe, String suffixe) throws IOException {
+        List<Path> chemins = new ArrayList<>();
+        try (Stream<Path> fichiers = Files.list(dossier)) {
+            fichiers.filter(chemin -> {
+                String nom = chemin.getFileName().toString();
+                return nom.startsWith(prefixe) && nom.endsWith(suffixe);
+            }).forEach(chemins::add);
+        }
+        chemins.sort(null); // Les numéros sont complétés par des zéros
+        return chemins;
+    }
+
+    private static long numero(Path chemin, String prefixe, String suffixe) {
+        String nom = chemin.getFileName().toString();
+        return Long.parseLong(nom.substring(prefixe.length(), nom.length() - suffixe.length()));
+    }
+
+    private static void ecrireTexte(ByteBuffer tampon, String valeur) {
+        if (valeur == null) {
+            tampon.putInt(-1);
+            return;
+        }
+        byte[] utf8 = valeur.getBytes(StandardCharsets.UTF_8);
+        tampon.putInt(utf8.length);
+        tampon.put(utf8);
+    }
+
+    private static String lireTexte(ByteBuffer tampon) {
+        int longueur = tampon.getInt();
+        if (longueur < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[longueur];
+        tampon.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void ecrireMaximum(ByteBuffer tampon, Maximum maximum) {
+        ecrireTexte(tampon, maximum.carId());
+        ecrireTexte(tampon, maximum.acheteur());
+        tampon.putLong(maximum.montant());
+    }
+
+    private static Maximum lireMaximum(ByteBuffer tampon) {
+        return new Maximum(lireTexte(tampon), lireTexte(tampon), tampon.getLong());
+    }
+
+    private static void ecrireProduit(ByteBuffer tampon, Produit p) {
+        ecrireTexte(tampon, p.getCarId());
+        ecrireTexte(tampon, p.getDescription());
+        tampon.putLong(p.getPrixInitial());
+        tampon.putLong(p.getPrixCourant());
+        tampon.putLong(p.getPasEnchere());
+        tampon.putInt(p.getDureeEnchereSecondes() == null ? -1 : p.getDureeEnchereSecondes());
+        tampon.put((byte) (p.isDisponible() ? 1 : 0));
+        ecrireTexte(tampon, p.getUserVendeur());
+        ecrireTexte(tampon, p.getUserAcheteur());
+        ecrireTexte(tampon, p.getVente());
+    }
+
+    private static Produit lireProduit(ByteBuffer tampon) {
+        String carId = lireTexte(tampon);
+        String description = lireTexte(tampon);
+        long prixInitial = tampon.getLong();
+        long prixCourant = tampon.getLong();
+        long pasEnchere = tampon.getLong();
+        int duree = tampon.getInt();
+        boolean disponible = tampon.get() != 0;
+        String userVendeur = lireTexte(tampon);
+        String userAcheteur = lireTexte(tampon);
+        Produit p = new Produit(carId, description, prixInitial, prixCourant, pasEnchere, 0, disponible, userVendeur, userAcheteur);
+        p.setDureeEnchereSecondes(duree < 0 ? null : duree);
+        p.setVente(lireTexte(tampon));
+        return p;
+    }
+
+    /**
+     * Écrit un dernier instantané, qui rend le prochain démarrage immédiat, puis ferme le journal.
+     */
+    public void fermer() {
+        synchronized (this) {
+            actif = false;
+            notifyAll();
+        }
+        if (instantanes != null) {
+            try {
+                instantanes.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            if (source != null) {
+                ecrireInstantane();
+            }
+        } catch (IOException e) {
+            System.err.println("Echec de l'ecriture du dernier instantane: " + e.getMessage());
+        }
+        synchronized (this) {
+            if (segment != null) {
+                segment.force();
+                segment = null;
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "JournalEncheres{sequence=" + sequence + ", rejoues=" + evenementsRejoues + ", instantanes=" + nombreInstantanes
+                + ", depuisInstantane=" + depuisInstantane + '}';
+    }
+}
@@ -0,0 +1,137 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Petit pool de connexions en lecture seule à la base de données.
+ *
+ * En mode WAL, SQLite laisse les lectures s'exécuter en même temps que l'écriture en cours : chaque lecture emprunte
+ * une connexion du pool au lieu d'attendre derrière les offres sur une connexion partagée. Chaque connexion garde
+ * en cache les requêtes qu'elle a déjà préparées.
+ */
+public class LecteursBase {
+
+    /**
+     * Lecture à exécuter avec une connexion empruntée au pool.
+     */
+    public interface Lecture<T> {
+        T executer(Lecteur lecteur) throws SQLException;
+    }
+
+    /**
+     * Ouvre une connexion à la base de données.
+     */
+    public interface OuvertureConnexion {
+        Connection ouvrir() throws SQLException;
+    }
+
+    /**
+     * Connexion en lecture seule et son cache de requêtes préparées.
+     * Un lecteur n'est utilisé que par un thread à la fois.
+     */
+    public static final class Lecteur {
+        private final Connection connexion;
+        private final Map<String, PreparedStatement> requetes = new HashMap<>();
+
+        private Lecteur(Connection connexion) {
+            this.connexion = connexion;
+        }
+
+        /**
+         * Retourne la requête préparée correspondant au texte SQL, préparée une seule fois par connexion.
+         * La requête ne doit pas être fermée par l'appelant.
+         *
+         * @param sql Le texte de la requête.
+         * @return La requête préparée, sans paramètre défini.
+         * @throws SQLException Si la requête ne peut pas être préparée.
+         */
+        public PreparedStatement preparer(String sql) throws SQLException {
+            PreparedStatement requete = requetes.get(sql);
+            if (requete == null) {
+                requete = connexion.prepareStatement(sql);
+                requetes.put(sql, requete);
+            } else {
+                requete.clearParameters();
+            }
+            return requete;
+        }
+
+        private void fermer() {
+            try {
+                connexion.close(); // Ferme aussi les requêtes préparées
+            } catch (SQLException e) {
+                System.err.println("Error closing reader connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private final BlockingQueue<Lecteur> disponibles;
+    private final AtomicLong lectures = new AtomicLong();
+    private final AtomicLong attentes = new AtomicLong();
+
+    /**
+     * Construit le pool.
+     *
+     * @param ouverture Ouvre une nouvelle connexion à la base de données.
+     * @param taille    Le nombre de connexions du pool.
+     * @throws SQLException Si une connexion ne peut pas être ouverte.
+     */
+    public LecteursBase(OuvertureConnexion ouverture, int taille) throws SQLException {
+        int nombre = Math.max(1, taille);
+        this.disponibles = new ArrayBlockingQueue<>(nombre);
+        for (int i = 0; i < nombre; i++) {
+            Connection connexion = ouverture.ouvrir();
+            try (Statement stmt = connexion.createStatement()) {
+                stmt.execute("PRAGMA query_only = ON");
+            }
+            disponibles.add(new Lecteur(connexion));
+        }
+    }
+
+    /**
+     * Exécute une lecture avec une connexion du pool, en attendant qu'une connexion se libère si besoin.
+     *
+     * @param lecture La lecture à exécuter.
+     * @return Le résultat de la lecture.
+     * @throws SQLException Si la lecture échoue.
+     */
+    public <T> T lire(Lecture<T> lecture) throws SQLException {
+        Lecteur lecteur = disponibles.poll();
+        if (lecteur == null) {
+            attentes.incrementAndGet();
+            try {
+                lecteur = disponibles.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Lecture interrompue", e);
+            }
+        }
+        try {
+            lectures.incrementAndGet();
+            return lecture.executer(lecteur);
+        } finally {
+            disponibles.add(lecteur);
+        }
+    }
+
+    /**
+     * Ferme les connexions disponibles du pool.
+     */
+    public void fermer() {
+        Lecteur lecteur;
+        while ((lecteur = disponibles.poll()) != null) {
+            lecteur.fermer();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LecteursBase{lectures=" + lectures.get() + ", attentes=" + attentes.get() + ", disponibles=" + disponibles.size() + '}';
+    }
+}
@@ -0,0 +1,520 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import Communication.*;
+
+/**
+ * Livre des enchères tenu en mémoire : il fait autorité sur l'état des lots pendant l'enchère.
+ *
+ * Les offres sont validées et appliquées en mémoire, sous le verrou du seul lot concerné, puis leur
+ * enregistrement dans la base de données est confié au thread d'écriture ({@link EcrivainBase}) sans être attendu.
+ *
+ * Chaque lot appartient à une vente ({@link Vente}) ; les ventes démarrent indépendamment les unes des autres et
+ * une offre n'est acceptée que si la vente de son lot a commencé.
+ *
+ * Un acheteur peut confier au livre une enchère maximale : le livre surenchérit alors pour lui, d'un pas d'enchère,
+ * face aux offres concurrentes, jusqu'à ce maximum. Seul le maximum du meneur d'un lot est conservé ; un duel entre
+ * deux maximums est résolu en une seule étape, et seul le prix qui en résulte est enregistré et diffusé.
+ *
+ * Lorsqu'une offre fait perdre la tête à un enchérisseur, le livre le signale une fois le verrou du lot relâché,
+ * avec l'état du lot après l'offre, pour que le serveur prévienne l'enchérisseur dépassé.
+ *
+ * Lorsqu'un journal est fourni, chaque modification y est écrite sous le verrou du lot (ou de la vente), et le livre
+ * est restauré depuis le journal au démarrage du serveur ; sinon, il est reconstruit à partir des tables cars et bids,
+ * et les ventes y sont recréées sans commissaire ni date de début.
+ */
+public class LivreEncheres {
+
+    private final Map<String, Produit> lots = new ConcurrentHashMap<>(); // Lots en cours, par carId
+    private final Map<String, Vente> ventes = new ConcurrentHashMap<>(); // Ventes connues, par identifiant
+    private final Map<String, JournalEncheres.Maximum> maximums = new ConcurrentHashMap<>(); // Enchère maximale du meneur, par carId
+    private final AtomicLong modifications = new AtomicLong(); // Incrémenté à chaque modification d'un lot
+    private final LongSupplier versions;
+    private final DataBase database;
+    private final JournalEncheres journal; // null si le journal est désactivé
+    private volatile BiConsumer<Produit, String> surenchere = (lot, ancien) -> { }; // Reçoit le lot et l'enchérisseur qui vient d'en perdre la tête
+    private final Predicate<String> commissaires; // Utilisateurs autorisés à ouvrir et démarrer une vente
+
+    /**
+     * Construit un livre vide.
+     *
+     * @param versions    Fournit la version attribuée à un lot à chaque modification.
+     * @param database    La base de données, dont les écritures sont différées.
+     * @param journal     Le journal des événements de l'enchère, ou null s'il est désactivé.
+     * @param commissaires Indique si un utilisateur est commissaire, seul rôle autorisé à ouvrir et démarrer une vente.
+     */
+    public LivreEncheres(LongSupplier versions, DataBase database, JournalEncheres journal, Predicate<String> commissaires) {
+        this.versions = versions;
+        this.database = database;
+        this.journal = journal;
+        this.commissaires = commissaires;
+    }
+
+    /**
+     * Branche le destinataire des surenchères ; tant qu'il n'est pas branché, elles ne sont signalées à personne.
+     *
+     * @param surenchere Appelé hors du verrou du lot avec une copie du lot et l'enchérisseur qui vient d'en perdre la tête.
+     */
+    public void setSurenchere(BiConsumer<Produit, String> surenchere) {
+        this.surenchere = surenchere;
+    }
+
+    /**
+     * Restaure le livre depuis le journal : dernier instantané puis événements suivants.
+     *
+     * Les écritures différées dans la base de données sont perdues si le serveur s'arrête brutalement : chaque lot,
+     * offre et clôture relus est donc soumis de nouveau à la base, où il n'est enregistré que s'il n'y est pas déjà.
+     * Les événements couverts par l'instantané sont déjà dans la base ({@link JournalEncheres#demarrer}).
+     *
+     * @return {@code true} si le livre a été restauré, {@code false} s'il n'y a pas de journal ou si le journal était vide.
+     * @throws IOException Si le journal ne peut pas être lu.
+     */
+    public boolean restaurer() throws IOException {
+        if (journal == null) {
+            return false;
+        }
+        boolean restaure = journal.restaurer(new JournalEncheres.Rejeu() {
+            @Override
+            public void lotAjoute(Produit lot) {
+                lot.setVersion(versions.getAsLong());
+                lots.put(lot.getCarId(), lot);
+                signalerEchec(database.addCarIfAbsent(lot), "l'ajout rejoue de " + lot.getCarId());
+            }
+
+            @Override
+            public void offreAcceptee(String carId, String acheteur, long montant) {
+                Produit lot = lots.get(carId);
+                if (lot != null) {
+                    lot.setPrixCourant(montant);
+                    lot.setUserAcheteur(acheteur);
+                    lot.setVersion(versions.getAsLong());
+                    signalerEchec(database.addBidIfAbsent(carId, acheteur, montant), "l'offre rejouee de " + acheteur + " sur " + carId);
+                }
+            }
+
+            @Override
+            public void lotClos(String carId) {
+                Produit lot = lots.remove(carId);
+                maximums.remove(carId);
+                if (lot != null) {
+                    lot.setDisponible(false);
+                    signalerEchec(database.updateCar(lot), "la cloture rejouee de " + carId);
+                }
+            }
+
+            @Override
+            public void maximumEnregistre(JournalEncheres.Maximum maximum) {
+                maximums.put(maximum.carId(), maximum);
+            }
+
+            @Override
+            public void venteOuverte(String vente, String commissaire) {
+                ventes.computeIfAbsent(vente, Vente::new).setCommissaire(commissaire);
+            }
+
+            @Override
+            public void venteDemarree(String vente, long debut) {
+                ventes.computeIfAbsent(vente, Vente::new).setDebutMillis(debut);
+            }
+        });
+        modifications.incrementAndGet();
+        return restaure;
+    }
+
+    /**
+     * Remplit le livre avec les lots actifs de la base de données.
+     *
+     * @param produits Les lots actifs, avec leur meilleure offre enregistrée.
+     */
+    public void reconstruire(List<Produit> produits) {
+        for (Produit produit : produits) {
+            produit.setVersion(versions.getAsLong());
+            lots.put(produit.getCarId(), produit);
+            ventes.computeIfAbsent(Vente.normaliser(produit.getVente()), Vente::new);
+        }
+        modifications.incrementAndGet();
+    }
+
+    /**
+     * Retourne une vente connue du livre.
+     *
+     * @param id L'identifiant de la vente (null : vente par défaut).
+     * @return La vente, ou null si elle n'existe pas.
+     */
+    public Vente vente(String id) {
+        return ventes.get(Vente.normaliser(id));
+    }
+
+    /**
+     * Retourne la vente demandée, créée au besoin, après avoir vérifié qu'elle appartient au commissaire.
+     * Seul un commissaire peut ouvrir une vente ; une vente sans commissaire, ou dont le propriétaire n'est plus
+     * commissaire, revient au premier commissaire qui l'ouvre.
+     *
+     * @param id          L'identifiant de la vente (null : vente par défaut).
+     * @param commissaire Le commissaire.
+     * @return La vente.
+     * @throws IllegalArgumentException Si l'utilisateur n'est pas commissaire, si la vente appartient à un autre
+     *                                  commissaire ou si le journal échoue.
+     */
+    public Vente ouvrirVente(String id, String commissaire) {
+        if (!commissaires.test(commissaire)) {
+            throw new IllegalArgumentException("Seul un commissaire peut ouvrir ou demarrer une vente");
+        }
+        Vente vente = ventes.computeIfAbsent(Vente.normaliser(id), Vente::new);
+        synchronized (vente) {
+            if (vente.getCommissaire() == null || !commissaires.test(vente.getCommissaire())) {
+                if (journal != null) {
+                    try {
+                        journal.venteOuverte(vente.getId(), commissaire);
+                    } catch (IOException e) {
+                        throw new IllegalArgumentException("Erreur survenue dans le journal " + e.getMessage());
+                    }
+                }
+                vente.setCommissaire(commissaire);
+            } else if (!vente.getCommissaire().equals(commissaire)) {
+                throw new IllegalArgumentException("La vente " + vente.getId() + " appartient a un autre commissaire");
+            }
+        }
+        return vente;
+    }
+
+    /**
+     * Démarre une vente à l'instant présent. Démarrer de nouveau une vente repousse son début.
+     *
+     * @param id          L'identifiant de la vente (null : vente par défaut).
+     * @param commissaire Le commissaire qui démarre la vente.
+     * @return La date de début, en millisecondes depuis l'époque.
+     * @throws IllegalArgumentException Si la vente appartient à un autre commissaire ou si le journal échoue.
+     */
+    public long demarrerVente(String id, String commissaire) {
+        Vente vente = ouvrirVente(id, commissaire);
+        long debut = System.currentTimeMillis();
+        synchronized (vente) {
+            if (journal != null) {
+                try {
+                    journal.venteDemarree(vente.getId(), debut);
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Erreur survenue dans le journal " + e.getMessage());
+                }
+            }
+            vente.setDebutMillis(debut);
+        }
+        return debut;
+    }
+
+    /**
+     * Retourne les ventes connues du livre.
+     *
+     * @return Une copie de la liste des ventes.
+     */
+    public List<Vente> ventes() {
+        return new ArrayList<>(ventes.values());
+    }
+
+    /**
+     * Ajoute au livre un lot qui vient d'être enregistré dans la base de données.
+     *
+     * @param produit Le lot ajouté.
+     * @return Une copie du lot, avec sa version.
+     */
+    public Produit ajouter(Produit produit) {
+        Produit lot = new Produit(produit);
+        lot.setVersion(versions.getAsLong());
+        // Le lot est dans le livre avant d'être journalisé, pour qu'un instantané ne puisse pas l'omettre
+        synchronized (lot) {
+            lots.put(lot.getCarId(), lot);
+            if (journal != null) {
+                try {
+                    journal.lotAjoute(lot);
+                } catch (IOException e) {
+                    lots.remove(lot.getCarId(), lot);
+                    throw new IllegalArgumentException("Erreur survenue dans le journal " + e.getMessage());
+                }
+            }
+        }
+        modifications.incrementAndGet();
+        return new Produit(lot);
+    }
+
+    /**
+     * Valide et applique une offre sur un lot.
+     * L'offre est acceptée si le lot est disponible et si le montant atteint au moins le prix courant plus le pas d'enchère ;
+     * son enregistrement dans la base de données est différé. Si l'enchère maximale du meneur couvre l'offre,
+     * le meneur garde la tête et le prix s'établit un pas au-dessus de l'offre, sans dépasser ce maximum.
+     *
+     * @param carId     L'identifiant du lot.
+     * @param acheteur  L'utilisateur qui fait l'offre.
+     * @param montant   Le montant de l'offre, en centimes.
+     * @return Une copie du lot mis à jour, avec sa nouvelle version.
+     * @throws IllegalArgumentException Si le lot n'est pas disponible ou si le montant est insuffisant.
+     */
+    public Produit encherir(String carId, String acheteur, long montant) {
+        Produit lot = lotEnVente(carId);
+        String ancien;
+        Produit copie;
+        // Les offres sur un même lot sont sérialisées pour que l'ordre des versions suive celui des prix
+        synchronized (lot) {
+            if (!lot.isDisponible()) {
+                throw new IllegalArgumentException("Le produit n'est pas disponible pour les encheres");
+            }
+            if (montant < lot.getPrixCourant() + lot.getPasEnchere()) {
+                throw new IllegalArgumentException("Le montant de l'offre doit depasser le prix courant d'au moins le pas d'enchere");
+            }
+            ancien = lot.getUserAcheteur();
+            JournalEncheres.Maximum meneur = maximumDuMeneur(lot);
+            if (meneur != null && !meneur.acheteur().equals(acheteur) && meneur.montant() >= montant) {
+                // Le maximum du meneur couvre l'offre : il reste en tête, un pas au-dessus de l'offre au plus
+                copie = appliquer(lot, meneur.acheteur(), Math.min(meneur.montant(), montant + lot.getPasEnchere()));
+            } else {
+                copie = appliquer(lot, acheteur, montant);
+            }
+        }
+        signalerSurenchere(copie, ancien);
+        return copie;
+    }
+
+    /**
+     * Confie au livre l'enchère maximale d'un acheteur sur un lot.
+     *
+     * Face au maximum du meneur actuel, le plus élevé des deux l'emporte (le premier enregistré en cas d'égalité) et le
+     * prix s'établit un pas au-dessus du maximum perdant, sans dépasser le maximum gagnant. Sans maximum concurrent,
+     * l'acheteur prend la tête au prix courant plus le pas d'enchère. Le meneur qui relève son propre maximum ne
+     * change pas le prix.
+     *
+     * @param carId    L'identifiant du lot.
+     * @param acheteur L'utilisateur qui confie son maximum.
+     * @param maximum  Le montant maximal, en centimes.
+     * @return Une copie du lot après résolution, avec sa nouvelle version si le prix a changé.
+     * @throws IllegalArgumentException Si le lot n'est pas disponible ou si le maximum est insuffisant.
+     */
+    public Produit encherirMax(String carId, String acheteur, long maximum) {
+        Produit lot = lotEnVente(carId);
+        String ancien;
+        Produit copie;
+        synchronized (lot) {
+            if (!lot.isDisponible()) {
+                throw new IllegalArgumentException("Le produit n'est pas disponible pour les encheres");
+            }
+            ancien = lot.getUserAcheteur();
+            JournalEncheres.Maximum meneur = maximumDuMeneur(lot);
+            JournalEncheres.Maximum nouveau = new JournalEncheres.Maximum(carId, acheteur, maximum);
+            if (acheteur.equals(lot.getUserAcheteur())) {
+                if (maximum <= lot.getPrixCourant() || (meneur != null && maximum <= meneur.montant())) {
+                    throw new IllegalArgumentException("Le montant maximal doit depasser votre offre en cours");
+                }
+                enregistrerMaximum(nouveau);
+                return new Produit(lot);
+            }
+            long pas = lot.getPasEnchere();
+            if (maximum < lot.getPrixCourant() + pas) {
+                throw new IllegalArgumentException("Le montant maximal doit depasser le prix courant d'au moins le pas d'enchere");
+            }
+            if (meneur != null && meneur.montant() >= maximum) {
+                // Le maximum du meneur l'emporte : seul le prix monte
+                return appliquer(lot, meneur.acheteur(), Math.min(meneur.montant(), maximum + pas));
+            }
+            enregistrerMaximum(nouveau);
+            long prix = meneur == null ? lot.getPrixCourant() + pas : Math.min(maximum, meneur.montant() + pas);
+            copie = appliquer(lot, acheteur, prix);
+        }
+        signalerSurenchere(copie, ancien);
+        return copie;
+    }
+
+    /**
+     * Signale l'enchérisseur qui a perdu la tête d'un lot lors d'une offre. Appelée hors du verrou du lot.
+     *
+     * @param copie  La copie du lot après l'offre.
+     * @param ancien Le meneur avant l'offre, null ou vide s'il n'y en avait pas.
+     */
+    private void signalerSurenchere(Produit copie, String ancien) {
+        if (ancien != null && !ancien.isEmpty() && !ancien.equals(copie.getUserAcheteur())) {
+            surenchere.accept(copie, ancien);
+        }
+    }
+
+    /**
+     * Retourne un lot dont la vente a commencé.
+     *
+     * @throws IllegalArgumentException Si le lot n'est pas dans le livre ou si sa vente n'a pas commencé.
+     */
+    private Produit lotEnVente(String carId) {
+        Produit lot = lots.get(carId);
+        if (lot == null) {
+            throw new IllegalArgumentException("Le produit n'est pas disponible pour les encheres");
+        }
+        Vente vente = vente(lot.getVente());
+        if (vente == null || !vente.isDemarree()) {
+            throw new IllegalArgumentException("L'enchère n'a pas encore commencé");
+        }
+        return lot;
+    }
+
+    /**
+     * Retourne le maximum du meneur d'un lot ; un maximum dont l'auteur n'est plus en tête est abandonné.
+     * Doit être appelée sous le verrou du lot.
+     */
+    private JournalEncheres.Maximum maximumDuMeneur(Produit lot) {
+        JournalEncheres.Maximum maximum = maximums.get(lot.getCarId());
+        if (maximum != null && !maximum.acheteur().equals(lot.getUserAcheteur())) {
+            maximums.remove(lot.getCarId(), maximum);
+            return null;
+        }
+        return maximum;
+    }
+
+    /**
+     * Journalise puis conserve le maximum d'un acheteur. Doit être appelée sous le verrou du lot.
+     */
+    private void enregistrerMaximum(JournalEncheres.Maximum maximum) {
+        if (journal != null) {
+            try {
+                journal.maximumEnregistre(maximum);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Erreur survenue dans le journal " + e.getMessage());
+            }
+        }
+        maximums.put(maximum.carId(), maximum);
+    }
+
+    /**
+     * Journalise puis applique le nouveau prix et le nouveau meneur d'un lot, et diffère leur enregistrement
+     * dans la base de données. Doit être appelée sous le verrou du lot.
+     *
+     * @return Une copie du lot mis à jour.
+     */
+    private Produit appliquer(Produit lot, String acheteur, long montant) {
+        String carId = lot.getCarId();
+        if (journal != null) {
+            try {
+                journal.offreAcceptee(carId, acheteur, montant);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Erreur survenue dans le journal " + e.getMessage());
+            }
+        }
+        lot.setPrixCourant(montant);
+        lot.setUserAcheteur(acheteur);
+        lot.setVersion(versions.getAsLong());
+        Produit copie = new Produit(lot);
+        // Soumise sous le verrou pour que les offres d'un lot soient écrites dans l'ordre
+        signalerEchec(database.addBid(carId, acheteur, montant), "l'offre de " + acheteur + " sur " + carId);
+        modifications.incrementAndGet();
+        return copie;
+    }
+
+    /**
+     * Clôt l'enchère d'un lot : il n'accepte plus d'offre et quitte le livre.
+     *
+     * @param carId L'identifiant du lot.
+     * @return Une copie du lot clos, ou null s'il n'était plus dans le livre.
+     */
+    public Produit cloturer(String carId) {
+        Produit lot = lots.get(carId);
+        if (lot == null) {
+            return null;
+        }
+        Produit copie;
+        synchronized (lot) {
+            if (!lot.isDisponible()) {
+                return null;
+            }
+            if (journal != null) {
+                try {
+                    journal.lotClos(carId);
+                } catch (IOException e) {
+                    System.err.println("Echec de la journalisation de la cloture de " + carId + ": " + e.getMessage());
+                    return null;
+                }
+            }
+            lot.setDisponible(false);
+            lot.setVersion(versions.getAsLong());
+            maximums.remove(carId);
+            copie = new Produit(lot);
+            signalerEchec(database.updateCar(copie), "la cloture de " + carId);
+        }
+        lots.remove(carId, lot);
+        modifications.incrementAndGet();
+        return copie;
+    }
+
+    /**
+     * Signale l'échec d'une écriture différée, que personne n'attend.
+     *
+     * @param ecriture    La future de l'écriture.
+     * @param description La description de l'écriture.
+     */
+    private static void signalerEchec(CompletableFuture<Void> ecriture, String description) {
+        ecriture.exceptionally(e -> {
+            System.err.println("Echec de l'enregistrement de " + description + ": " + e.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Indique si un lot est encore ouvert aux offres.
+     *
+     * @param carId L'identifiant du lot.
+     * @return {@code true} si le lot est dans le livre et disponible.
+     */
+    public boolean estOuvert(String carId) {
+        Produit lot = lots.get(carId);
+        return lot != null && lot.isDisponible();
+    }
+
+    /**
+     * Retourne une copie cohérente de chaque lot encore ouvert.
+     *
+     * @return Les lots disponibles.
+     */
+    public List<Produit> produitsActifs() {
+        List<Produit> actifs = new ArrayList<>(lots.size());
+        for (Produit lot : lots.values()) {
+            synchronized (lot) {
+                if (lot.isDisponible()) {
+                    actifs.add(new Produit(lot));
+                }
+            }
+        }
+        return actifs;
+    }
+
+    /**
+     * Retourne une copie de chaque lot encore ouvert d'une vente.
+     *
+     * @param id L'identifiant de la vente (null : vente par défaut).
+     * @return Les lots disponibles de la vente.
+     */
+    public List<Produit> produitsActifs(String id) {
+        String vente = Vente.normaliser(id);
+        List<Produit> actifs = produitsActifs();
+        actifs.removeIf(produit -> !Vente.normaliser(produit.getVente()).equals(vente));
+        return actifs;
+    }
+
+    /**
+     * Retourne les enchères maximales en vigueur.
+     *
+     * @return Une copie de la liste des maximums.
+     */
+    public List<JournalEncheres.Maximum> maximums() {
+        return new ArrayList<>(maximums.values());
+    }
+
+    /**
+     * Retourne le nombre de modifications du livre, qui permet de savoir si un cache construit
+     * à partir de {@link #produitsActifs()} est encore valide.
+     *
+     * @return Le compteur de modifications.
+     */
+    public long getModifications() {
+        return modifications.get();
+    }
+}
@@ -93,13 +93,33 @@ public class OffresDispoController implements Initializable, MessageCallback {
 		Utilisateur utilisateur = Main.getUtilisateurConnecte();
 		utilisateur.ecouterMiseAJour(this);
 		utilisateur.ecouterDebutEnchere(new PopUpCallback());
+		utilisateur.ecouterAvis(avis -> Platform.runLater(() -> fctUtile.showInfoDialog("Info", avis.getInfo(), "")));
 
 		RecupererProduits message = utilisateur.recupererTousLesProduits();
 		produitsList.clear();
 		produitsList.addAll(message.getProduits());
+		surveillerProduits(message.getProduits());
 		messageLabel.setText("Offres mises à jour avec succès !");
 	}
 
+	/**
+	 * Surveille les produits affichés pour recevoir leurs mises à jour de prix.
+	 *
+	 * @param produits Les produits affichés.
+	 */
+	private void surveillerProduits(List<Produit> produits) {
+		List<String> carIds = new ArrayList<>();
+		for (Produit produit : produits) {
+			carIds.add(produit.getCarId());
+		}
+		if (!carIds.isEmpty()) {
+			Main.getUtilisateurConnecte().surveillerAsync(carIds, true).exceptionally(e -> {
+				System.err.println("Echec de la surveillance des offres: " + e.getMessage());
+				return null;
+			});
+		}
+	}
+
 	/**
 	 * Rafraîchit la liste des offres disponibles en récupérant les dernières données du serveur.
 	 */
@@ -109,6 +129,7 @@ public class OffresDispoController implements Initializable, MessageCallback {
 		RecupererProduits message = utilisateur.recupererTousLesProduits();
 
 		if (message != null) {
+			surveillerProduits(message.getProduits());
 			Platform.runLater(() -> {
 				produitsList.clear();
 				produitsList.addAll(message.getProduits());
@@ -134,11 +155,22 @@ public class OffresDispoController implements Initializable, MessageCallback {
 				messageLabel.setText("Mise à jour reçue : " + message.getInfo());
 				if (!produitsList.contains(produit)) {
 					produitsList.add(produit);
+					if (produit.isDisponible()) {
+						surveillerProduits(List.of(produit));
+					}
+				}
+			} else if (message instanceof PrixMisAJour) {
+				PrixMisAJour prix = (PrixMisAJour) message;
+				messageLabel.setText("Nouvelle offre de " + prix.getUserAcheteur() + " sur " + prix.getCarId() + " - Nouveau prix : " + Montant.formater(prix.getPrixCourant()));
+				Produit produit = Main.getUtilisateurConnecte().getProduits().get(prix.getCarId());
+				int index = produitsList.indexOf(produit);
+				if (index >= 0) {
+					produitsList.set(index, produit); // Force le rafraîchissement de la ligne
 				}
 			} else if (message instanceof Encherir) {
 				Encherir encherir = (Encherir) message;
 				Produit produit = encherir.getProduit();
-				messageLabel.setText("Mise à jour reçue : " + message.getInfo() + " - Nouveau prix : " + produit.getPrixCourant());
+				messageLabel.setText("Mise à jour reçue : " + message.getInfo() + " - Nouveau prix : " + Montant.formater(produit.getPrixCourant()));
 			}
 		});
 	}
@@ -155,12 +187,13 @@ public class OffresDispoController implements Initializable, MessageCallback {
 		if (utilisateur != null) {
 			try {
 				String auctionId = auctionIdField.getText();
-				double newPrice = Double.parseDouble(newPriceField.getText());
+				long newPrice = Montant.depuisTexte(newPriceField.getText());
 
 				Encherir reponse = utilisateur.encherir(auctionId, newPrice);
 
 				if (reponse != null && reponse.isSucces()) {
-					fctUtile.showInfoDialog("Succès", "Votre enchère a été placée avec succès !", null);
+					// L'offre acceptée peut être aussitôt couverte par l'enchère maximale d'un autre acheteur
+					fctUtile.showInfoDialog("Succès", reponse.getInfo() != null ? reponse.getInfo() : "Votre enchère a été placée avec succès !", null);
 				} else {
 					fctUtile.showErrorDialog("Erreur", "Impossible de placer l'enchère.", null);
 				}
@@ -0,0 +1,121 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Planifie la fin des enchères : chaque lot est enregistré avec son échéance absolue et le lot est clos
+ * dès que son échéance est atteinte.
+ *
+ * Les échéances sont rangées dans une {@link DelayQueue} : le thread du planificateur dort jusqu'à la prochaine
+ * échéance, sans parcourir les lots entre deux échéances. Replanifier un lot remplace son échéance ; l'ancienne
+ * reste dans la file mais est ignorée lorsqu'elle arrive à terme.
+ */
+public class PlanificateurExpirations {
+
+    /**
+     * Échéance d'un lot. Le numéro d'ordre distingue une échéance remplacée de l'échéance courante.
+     */
+    private record Echeance(String carId, long echeanceNanos, long numero) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unite) {
+            return unite.convert(echeanceNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed autre) {
+            return Long.compare(echeanceNanos, ((Echeance) autre).echeanceNanos);
+        }
+    }
+
+    private final DelayQueue<Echeance> file = new DelayQueue<>();
+    private final Map<String, Echeance> courantes = new ConcurrentHashMap<>(); // Échéance en vigueur de chaque lot
+    private final AtomicLong numeros = new AtomicLong();
+    private final Consumer<String> expiration;
+    private final Thread planificateur;
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong retardMaxNanos = new AtomicLong(); // Plus grand écart observé entre une échéance et la clôture
+
+    /**
+     * Construit le planificateur et démarre son thread.
+     *
+     * @param expiration L'action exécutée, avec l'identifiant du lot, lorsqu'une échéance est atteinte.
+     */
+    public PlanificateurExpirations(Consumer<String> expiration) {
+        this.expiration = expiration;
+        this.planificateur = new Thread(this::attendreEcheances, "expirations");
+        planificateur.setDaemon(true);
+        planificateur.start();
+    }
+
+    /**
+     * Planifie la fin de l'enchère d'un lot, en remplaçant l'échéance déjà planifiée pour ce lot.
+     *
+     * @param carId          L'identifiant du lot.
+     * @param echeanceMillis L'échéance, en millisecondes depuis l'époque.
+     */
+    public void planifier(String carId, long echeanceMillis) {
+        long delaiNanos = TimeUnit.MILLISECONDS.toNanos(echeanceMillis - System.currentTimeMillis());
+        Echeance echeance = new Echeance(carId, System.nanoTime() + delaiNanos, numeros.incrementAndGet());
+        courantes.put(carId, echeance);
+        file.add(echeance);
+    }
+
+    /**
+     * Annule l'échéance d'un lot.
+     *
+     * @param carId L'identifiant du lot.
+     */
+    public void annuler(String carId) {
+        courantes.remove(carId);
+    }
+
+    /**
+     * @return Le nombre de lots dont l'échéance est planifiée.
+     */
+    public int getPlanifiees() {
+        return courantes.size();
+    }
+
+    /**
+     * Boucle du thread du planificateur.
+     */
+    private void attendreEcheances() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Echeance echeance;
+            try {
+                echeance = file.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            // Une échéance remplacée ou annulée est ignorée
+            if (!courantes.remove(echeance.carId(), echeance)) {
+                continue;
+            }
+            retardMaxNanos.accumulateAndGet(System.nanoTime() - echeance.echeanceNanos(), Math::max);
+            expirations.incrementAndGet();
+            try {
+                expiration.accept(echeance.carId());
+            } catch (RuntimeException e) {
+                // Une erreur sur un lot ne doit pas arrêter le planificateur
+                System.err.println("Erreur a l'expiration du produit " + echeance.carId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Arrête le planificateur ; les échéances restantes ne sont pas exécutées.
+     */
+    public void arreter() {
+        planificateur.interrupt();
+    }
+
+    @Override
+    public String toString() {
+        return "PlanificateurExpirations{expirations=" + expirations.get() + ", planifiees=" + getPlanifiees()
+                + ", retardMaxMs=" + TimeUnit.NANOSECONDS.toMillis(retardMaxNanos.get()) + '}';
+    }
+}
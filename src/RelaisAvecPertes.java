@@ -0,0 +1,177 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Relais UDP local qui perd une part des datagrammes, pour éprouver la retransmission des requêtes
+ * sans toucher au transport du client ni à celui du serveur.
+ *
+ * Les clients visent le port du relais ({@code jhal.client.port}) au lieu de celui du serveur. Chaque client reçoit
+ * son propre canal vers le serveur : le serveur le voit comme un client distinct et lui répond à travers le relais.
+ * Chaque datagramme, dans un sens comme dans l'autre, est perdu avec la probabilité donnée ; le tirage suit
+ * une graine fixe pour que deux passages perdent les mêmes datagrammes.
+ */
+public class RelaisAvecPertes implements Closeable {
+
+    private final DatagramChannel entree; // Canal sur lequel écrivent les clients
+    private final InetSocketAddress serveur;
+    private final double perte;
+    private final Random hasard;
+    private final Selector selecteur;
+    private final Map<SocketAddress, DatagramChannel> versServeur = new HashMap<>(); // Canal de chaque client vers le serveur
+    private final ByteBuffer tampon = ByteBuffer.allocateDirect(64 * 1024);
+    private final Thread relais;
+    private volatile boolean actif = true;
+
+    private final AtomicLong transmis = new AtomicLong();
+    private final AtomicLong perdus = new AtomicLong();
+
+    /**
+     * Ouvre le relais et démarre son thread.
+     *
+     * @param port    Le port local sur lequel le relais reçoit les datagrammes des clients.
+     * @param serveur L'adresse du serveur.
+     * @param perte   La probabilité de perdre chaque datagramme, entre 0 et 1.
+     * @param graine  La graine du tirage des pertes.
+     * @throws IOException Si le port ne peut pas être ouvert.
+     */
+    public RelaisAvecPertes(int port, InetSocketAddress serveur, double perte, long graine) throws IOException {
+        this.serveur = serveur;
+        this.perte = perte;
+        this.hasard = new Random(graine);
+        this.selecteur = Selector.open();
+        this.entree = DatagramChannel.open();
+        entree.bind(new InetSocketAddress(serveur.getAddress(), port));
+        entree.configureBlocking(false);
+        entree.register(selecteur, SelectionKey.OP_READ);
+        this.relais = new Thread(this::relayer, "relais-pertes");
+        relais.setDaemon(true);
+        relais.start();
+    }
+
+    /**
+     * Boucle du thread du relais : transmet les datagrammes reçus de chaque côté, sauf ceux qui sont perdus.
+     */
+    private void relayer() {
+        try {
+            while (actif) {
+                selecteur.select();
+                for (SelectionKey cle : selecteur.selectedKeys()) {
+                    try {
+                        if (cle.channel() == entree) {
+                            depuisClient();
+                        } else {
+                            depuisServeur((DatagramChannel) cle.channel(), (SocketAddress) cle.attachment());
+                        }
+                    } catch (IOException e) {
+                        // Serveur ou client injoignable : le datagramme est perdu, comme sur un vrai réseau
+                        perdus.incrementAndGet();
+                    }
+                }
+                selecteur.selectedKeys().clear();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (actif) {
+                System.err.println("Relais interrompu: " + e.getMessage());
+            }
+        }
+    }
+
+    private void depuisClient() throws IOException {
+        SocketAddress client;
+        while ((client = recevoir(entree)) != null) {
+            DatagramChannel canal = versServeur.get(client);
+            if (canal == null) {
+                canal = DatagramChannel.open();
+                canal.connect(serveur);
+                canal.configureBlocking(false);
+                canal.register(selecteur, SelectionKey.OP_READ, client);
+                versServeur.put(client, canal);
+            }
+            if (transmettre()) {
+                canal.write(tampon);
+            }
+        }
+    }
+
+    private void depuisServeur(DatagramChannel canal, SocketAddress client) throws IOException {
+        while (recevoir(canal) != null) {
+            if (transmettre()) {
+                entree.send(tampon, client);
+            }
+        }
+    }
+
+    /**
+     * Reçoit un datagramme dans le tampon, prêt à être relu.
+     *
+     * @return L'expéditeur, ou null si aucun datagramme n'attend.
+     */
+    private SocketAddress recevoir(DatagramChannel canal) throws IOException {
+        tampon.clear();
+        SocketAddress expediteur = canal.receive(tampon);
+        tampon.flip();
+        return expediteur;
+    }
+
+    /**
+     * Décide au hasard si un datagramme est transmis ou perdu.
+     *
+     * @return {@code true} si le datagramme doit être transmis.
+     */
+    private boolean transmettre() {
+        if (hasard.nextDouble() < perte) {
+            perdus.incrementAndGet();
+            return false;
+        }
+        transmis.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return Le nombre de datagrammes transmis, dans les deux sens.
+     */
+    public long getTransmis() {
+        return transmis.get();
+    }
+
+    /**
+     * @return Le nombre de datagrammes perdus, dans les deux sens.
+     */
+    public long getPerdus() {
+        return perdus.get();
+    }
+
+    /**
+     * Arrête le relais et ferme ses canaux.
+     */
+    @Override
+    public void close() throws IOException {
+        actif = false;
+        selecteur.close();
+        try {
+            relais.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        entree.close();
+        for (DatagramChannel canal : versServeur.values()) {
+            canal.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RelaisAvecPertes{perte=" + perte + ", transmis=" + getTransmis() + ", perdus=" + getPerdus() + '}';
+    }
+}
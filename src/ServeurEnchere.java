@@ -17,7 +17,20 @@ import java.util.List;
 import java.time.Duration;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.concurrent.ConcurrentHashMap;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
 
 import Communication.*;
 
@@ -27,10 +40,45 @@ import Communication.*;
  */
 public class ServeurEnchere extends Serveur {
     private static final int PORT = 9876; // Port par défaut pour le serveur
+    private static final String MODE_EXECUTION = Configuration.texte("jhal.serveur.execution", "pool"); // pool ou virtuel
+    private static final int NB_THREADS = Configuration.entier("jhal.serveur.threads", Runtime.getRuntime().availableProcessors() * 2);
+    private static final int CAPACITE_FILE = Configuration.entier("jhal.serveur.file", 1024); // Messages en attente au maximum, par voie
+    private static final int LIMITE_CATALOGUE = Configuration.entier("jhal.serveur.voie.catalogue", Math.max(NB_THREADS / 4, 1)); // Demandes de catalogue simultanées
+    private static final int LIMITE_CONSULTATION = Configuration.entier("jhal.serveur.voie.consultation", Math.max(NB_THREADS / 8, 1)); // Historiques, réclamations et inscriptions simultanés
+    private static final long ATTENTE_MAX = Configuration.entierLong("jhal.serveur.attente.max", 250); // ms, 0 = jamais de délestage
+    private static final boolean TRANSPORT_NIO = Configuration.texte("jhal.transport", "socket").equalsIgnoreCase("nio"); // socket ou nio
+    private static final long PERIODE_COALESCENCE = Configuration.entierLong("jhal.serveur.coalescence", 0); // ms, 0 = désactivé
+    private static final int NB_TAMPONS = Configuration.entier("jhal.serveur.tampons", 4); // Tampons de réception recyclés (mode nio), retenus le temps d'une réception
+    private static final String DOSSIER_JOURNAL = System.getProperty("jhal.journal", "journal").trim(); // Vide = journal désactivé (Configuration.texte remplacerait le vide par le défaut)
+    private static final int TAILLE_SEGMENT = Configuration.entier("jhal.journal.segment", 16 * 1024 * 1024); // Octets par segment du journal
+    private static final long SEUIL_INSTANTANE = Configuration.entierLong("jhal.journal.instantane", 100000); // Événements entre deux instantanés
+    private static final int NB_EMETTEURS = Configuration.entier("jhal.serveur.emetteurs", 2); // Threads d'émission, 0 = envoi direct
+    private static final int CAPACITE_EMISSION = Configuration.entier("jhal.serveur.emission", 256); // Mises à jour en attente par client
+    private static final long INACTIVITE_MILLIS = Configuration.entierLong("jhal.serveur.inactivite", 30) * 1000; // Silence avant le retrait d'un client, 0 = jamais
+    private static final Set<String> COMMISSAIRES = lireCommissaires(); // Utilisateurs autorisés à ouvrir et démarrer une vente
     private DatagramSocket socket; // Socket pour les communications UDP
+    private DatagramChannel canal; // Canal de réception en mode nio (null en mode socket)
+    private PoolTampons tampons; // Tampons directs recyclés pour la réception en mode nio
+    private FilesEmission emission; // Files d'émission bornées de chaque client
+    private GroupeMulticast groupe; // Groupe des messages publics de la vente par défaut, null si le multicast est désactivé
     private DataBase database; // Instance de la base de données
-    private Map<InetAddress, Integer> connectedClients; // Liste des clients connectés
+    private LivreEncheres livre; // État des lots en mémoire, qui fait autorité pendant l'enchère
+    private PlanificateurExpirations expirations; // Clôt chaque lot à son échéance
+    private JournalEncheres journal; // Journal des événements de l'enchère, null s'il est désactivé
+    private Map<InetSocketAddress, Long> connectedClients; // Clients connectés (adresse et port) et instant de leur dernier message
+    private ScheduledExecutorService balayeur; // Retire les clients inactifs, null si le retrait est désactivé
+    private final Map<String, Set<InetSocketAddress>> surveillants = new ConcurrentHashMap<>(); // Clients qui surveillent chaque lot
+    private final Map<String, InetSocketAddress> adressesUtilisateurs = new ConcurrentHashMap<>(); // Dernière adresse de chaque utilisateur
+    private final Map<String, Set<String>> encherisseurs = new ConcurrentHashMap<>(); // Utilisateurs ayant enchéri sur chaque lot
     private volatile boolean running; // Indique si le serveur est en cours d'exécution
+    private volatile Catalogue catalogue; // Catalogue en cache, valable tant que le livre des enchères ne change pas
+
+    /**
+     * Catalogue des produits actifs associé à la version du livre des enchères dont il est issu,
+     * avec la réponse {@link RecupererProduits} correspondante déjà encodée.
+     */
+    private record Catalogue(long version, List<Produit> produits, MessageEncode reponse) {
+    }
 
     /**
      * Constructeur pour initialiser le serveur d'enchères.
@@ -38,13 +86,55 @@ public class ServeurEnchere extends Serveur {
      */
     public ServeurEnchere() {
         try {
-            socket = new DatagramSocket(PORT);
+            if (TRANSPORT_NIO) {
+                canal = DatagramChannel.open();
+                canal.bind(new InetSocketAddress(PORT));
+                socket = canal.socket(); // Les envois passent par l'adaptateur du canal
+                tampons = new PoolTampons(NB_TAMPONS);
+            } else {
+                socket = new DatagramSocket(PORT);
+            }
+            emission = new FilesEmission(NB_EMETTEURS, CAPACITE_EMISSION, this::emettre);
+            groupe = GroupeMulticast.depuisConfiguration();
+            if (groupe != null) {
+                try {
+                    groupe.configurerEmission(socket);
+                    System.out.println("Messages publics diffuses sur " + groupe);
+                } catch (IOException e) {
+                    System.err.println("Multicast desactive: " + e.getMessage());
+                    groupe = null;
+                }
+            }
             database = new DataBase();
+            if (!DOSSIER_JOURNAL.isEmpty()) {
+                journal = new JournalEncheres(Path.of(DOSSIER_JOURNAL), TAILLE_SEGMENT, SEUIL_INSTANTANE);
+            }
+            if (COMMISSAIRES.isEmpty()) {
+                System.err.println("Aucun commissaire configure (jhal.commissaires) : aucune vente ne peut etre ouverte");
+            }
+            livre = new LivreEncheres(versions::incrementAndGet, database, journal, COMMISSAIRES::contains);
+            if (!livre.restaurer()) {
+                livre.reconstruire(database.getAllCarsWithBestBids());
+            }
             connectedClients = new ConcurrentHashMap<>();
+            if (INACTIVITE_MILLIS > 0) {
+                balayeur = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "clients-inactifs");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                long periode = Math.max(INACTIVITE_MILLIS / 2, 1);
+                balayeur.scheduleAtFixedRate(this::retirerClientsInactifs, periode, periode, TimeUnit.MILLISECONDS);
+            }
+            executeur = new ExecuteurMessages(ExecuteurMessages.Mode.depuisNom(MODE_EXECUTION), NB_THREADS, CAPACITE_FILE,
+                    LIMITE_CATALOGUE, LIMITE_CONSULTATION, ATTENTE_MAX);
+            if (journal != null) {
+                journal.demarrer(livre::produitsActifs, livre::ventes, livre::maximums, database::barriere);
+                System.out.println("Journal des encheres ouvert: " + journal);
+            }
             running = true;
-            new Thread(() -> verifierExpirationProduit()).start();
             System.out.println("Server initialisé avec succès sur le port " + PORT);
-        } catch (SocketException e) {
+        } catch (IOException e) {
             System.err.println("Echec de la creation du socket " + PORT);
             System.err.println("Error: " + e.getMessage());
             e.printStackTrace();
@@ -61,6 +151,12 @@ public class ServeurEnchere extends Serveur {
             return;
         }
         System.out.println("Demarrage du serveur...");
+        brancherLivre();
+
+        if (canal != null) {
+            new Thread(this::recevoirParCanal).start();
+            return;
+        }
 
         new Thread(() -> {
             while (running) {
@@ -72,7 +168,7 @@ public class ServeurEnchere extends Serveur {
                     InetAddress clientAddress = receivePacket.getAddress();
                     int clientPort = receivePacket.getPort();
                     System.out.println("Message recue de " + clientAddress + ":" + clientPort);
-                    new Thread(() -> gererMessage(receivePacket)).start();
+                    repartirMessage(receivePacket);
                 } catch (IOException e) {
                     if (running) {
                         System.err.println("Erreur de reception des data: " + e.getMessage());
@@ -83,16 +179,81 @@ public class ServeurEnchere extends Serveur {
         }).start();
     }
 
+    /**
+     * Branche sur le serveur les traitements déclenchés par le livre des enchères : surenchères, regroupement des mises
+     * à jour et fins d'enchère. Fait au démarrage et non dans le constructeur, pour qu'aucun de ces traitements
+     * ne voie le serveur avant la fin de sa construction.
+     */
+    private void brancherLivre() {
+        livre.setSurenchere(this::signalerSurenchere);
+        if (PERIODE_COALESCENCE > 0) {
+            coalesceur = new CoalesceurMisesAJour(PERIODE_COALESCENCE, this::diffuserMiseAJourPrix, livre::estOuvert);
+        }
+        expirations = new PlanificateurExpirations(this::expirerProduit);
+        // Chaque vente restaurée reprend là où elle en était : les lots dont l'échéance est passée sont clos aussitôt
+        for (Vente vente : livre.ventes()) {
+            if (vente.isDemarree()) {
+                planifierExpirations(vente.getId(), vente.getDebutMillis());
+            }
+        }
+    }
+
+    /**
+     * Boucle de réception du mode nio : chaque datagramme est lu dans un tampon direct emprunté au pool, puis le tampon
+     * est rendu au pool dès que le message a été examiné et, s'il est accepté, copié pour l'exécuteur.
+     */
+    private void recevoirParCanal() {
+        while (running) {
+            ByteBuffer tampon = tampons.acquerir();
+            try {
+                InetSocketAddress client = (InetSocketAddress) canal.receive(tampon);
+                tampon.flip();
+                repartirMessage(tampon, client.getAddress(), client.getPort(), () -> tampons.liberer(tampon));
+            } catch (IOException e) {
+                tampons.liberer(tampon);
+                if (running) {
+                    System.err.println("Erreur de reception des data: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
     /**
      * Arrête le serveur et libère les ressources associées.
      */
     public void arreterServeur() {
         running = false;
+        if (balayeur != null) {
+            balayeur.shutdownNow();
+        }
+        if (expirations != null) {
+            expirations.arreter();
+            System.out.println("Bilan des fins d'enchere: " + expirations);
+        }
+        if (coalesceur != null) {
+            coalesceur.arreter();
+            System.out.println("Bilan du regroupement des mises a jour: " + coalesceur);
+        }
+        if (emission != null) {
+            emission.arreter();
+            System.out.println("Bilan des files d'emission: " + emission);
+        }
         if (socket != null && !socket.isClosed()) {
             socket.close();
         }
+        if (executeur != null) {
+            executeur.arreter();
+            System.out.println("Bilan du traitement des messages: " + executeur);
+            System.out.println("Bilan des requetes retransmises: " + reponsesEnvoyees);
+            System.out.println("Bilan de la limitation du debit: " + limiteur);
+        }
+        if (journal != null) {
+            journal.fermer(); // Le dernier instantané rend le prochain démarrage immédiat
+            System.out.println("Bilan du journal: " + journal);
+        }
         if (database != null) {
-            database.close();
+            database.close(); // Les offres acceptées sont écrites avant la fermeture de la base
         }
         System.out.println("Server stopped");
     }
@@ -124,7 +285,7 @@ public class ServeurEnchere extends Serveur {
     public void incrireNouveauClient(User utilisateur) throws IllegalArgumentException {
         try {
             if (database.getUserByUsername(utilisateur.getUsername()) == null) {
-                database.addUser(utilisateur.getUsername(), HashMDP(utilisateur.getPassword()));
+                attendreEcriture(database.addUser(utilisateur.getUsername(), HashMDP(utilisateur.getPassword())));
             } else {
                 throw new IllegalArgumentException("l'utilisateur existe deja");
             }
@@ -133,6 +294,38 @@ public class ServeurEnchere extends Serveur {
         }
     }
 
+    /**
+     * Attend la validation d'une écriture dans la base de données.
+     *
+     * @param ecriture La future de l'écriture.
+     * @throws SQLException Si l'écriture a échoué.
+     */
+    private static void attendreEcriture(CompletableFuture<Void> ecriture) throws SQLException {
+        try {
+            ecriture.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException(e.getCause());
+        }
+    }
+
+    /**
+     * Lit la liste des commissaires, noms d'utilisateurs séparés par des virgules dans {@code jhal.commissaires}.
+     *
+     * @return Les noms des commissaires, vide si aucun n'est configuré.
+     */
+    private static Set<String> lireCommissaires() {
+        Set<String> commissaires = new HashSet<>();
+        for (String nom : Configuration.texte("jhal.commissaires", "").split(",")) {
+            if (!nom.isBlank()) {
+                commissaires.add(nom.trim());
+            }
+        }
+        return Set.copyOf(commissaires);
+    }
+
     /**
      * Ajoute un client connecté à la liste des clients connectés.
      *
@@ -140,7 +333,94 @@ public class ServeurEnchere extends Serveur {
      * @param clientPort    Le port du client.
      */
     public void ajouterClientConnecte(InetAddress clientAddress, int clientPort) {
-        connectedClients.put(clientAddress, clientPort);
+        connectedClients.put(new InetSocketAddress(clientAddress, clientPort), System.currentTimeMillis());
+    }
+
+    /**
+     * Note l'activité d'un client déjà connecté ; un client inconnu n'est pas ajouté.
+     *
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort    Le port du client.
+     */
+    @Override
+    protected void noterActivite(InetAddress clientAddress, int clientPort) {
+        connectedClients.computeIfPresent(new InetSocketAddress(clientAddress, clientPort), (client, vu) -> System.currentTimeMillis());
+    }
+
+    /**
+     * Retire un client des clients connectés, des lots qu'il surveille, des ventes qu'il suit et des adresses
+     * de ses avis personnels.
+     *
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort    Le port du client.
+     */
+    public void retirerClientConnecte(InetAddress clientAddress, int clientPort) {
+        retirerClient(new InetSocketAddress(clientAddress, clientPort));
+    }
+
+    private void retirerClient(InetSocketAddress client) {
+        connectedClients.remove(client);
+        for (Set<InetSocketAddress> clients : surveillants.values()) {
+            clients.remove(client);
+        }
+        for (Vente vente : livre.ventes()) {
+            vente.getAbonnes().remove(client);
+        }
+        adressesUtilisateurs.values().removeIf(client::equals);
+    }
+
+    /**
+     * Retire les clients dont aucun message n'a été reçu depuis le délai d'inactivité : ils ne reçoivent plus
+     * les messages diffusés. Leur session reste valable jusqu'à son expiration et un battement les inscrit de nouveau.
+     */
+    private void retirerClientsInactifs() {
+        long limite = System.currentTimeMillis() - INACTIVITE_MILLIS;
+        int retires = 0;
+        for (Map.Entry<InetSocketAddress, Long> client : connectedClients.entrySet()) {
+            if (client.getValue() < limite && connectedClients.remove(client.getKey(), client.getValue())) {
+                retirerClient(client.getKey());
+                retires++;
+            }
+        }
+        if (retires > 0) {
+            System.out.println(LocalDateTime.now() + " clients inactifs retires: " + retires + ", clients connectes: " + connectedClients.size());
+        }
+    }
+
+    /**
+     * Retient la dernière adresse depuis laquelle un utilisateur authentifié a écrit.
+     *
+     * @param username      Le nom de l'utilisateur.
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort    Le port du client.
+     */
+    public void associerUtilisateur(String username, InetAddress clientAddress, int clientPort) {
+        adressesUtilisateurs.put(username, new InetSocketAddress(clientAddress, clientPort));
+    }
+
+    /**
+     * Envoie un avis personnel à la dernière adresse connue d'un utilisateur ; l'avis est abandonné si l'utilisateur
+     * n'a pas écrit au serveur depuis son démarrage.
+     *
+     * @param username Le nom de l'utilisateur.
+     * @param avis     L'avis à envoyer.
+     */
+    private void envoyerAvis(String username, AvisEnchere avis) {
+        InetSocketAddress adresse = adressesUtilisateurs.get(username);
+        if (adresse != null) {
+            envoyerMessage(adresse.getAddress(), adresse.getPort(), avis);
+        }
+    }
+
+    /**
+     * Prévient l'enchérisseur qui vient de perdre la tête d'un lot. Appelée par le livre des enchères
+     * hors du verrou du lot.
+     *
+     * @param lot    La copie du lot après l'offre.
+     * @param ancien L'enchérisseur dépassé.
+     */
+    private void signalerSurenchere(Produit lot, String ancien) {
+        envoyerAvis(ancien, new AvisEnchere(AvisEnchere.Type.SURENCHERI, lot));
     }
 
     /**
@@ -152,42 +432,246 @@ public class ServeurEnchere extends Serveur {
      */
     protected void envoyerMessage(InetAddress address, int port, Message message) {
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutputStream oos = new ObjectOutputStream(baos);
-            oos.writeObject(message);
-
-            byte[] sendData = baos.toByteArray();
-            DatagramPacket sendPacket = new DatagramPacket(sendData, sendData.length, address, port);
-            socket.send(sendPacket);
-            System.out.println("Response sent to " + address + ":" + port);
+            envoyerDonnees(address, port, MessageEncode.de(codec, message));
         } catch (IOException e) {
-            System.err.println("Error sending response: " + e.getMessage());
+            System.err.println("Error encoding response: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    /**
+     * Dépose un message déjà encodé dans la file d'émission d'un client ; il ne sera jamais écarté.
+     *
+     * @param address L'adresse du client.
+     * @param port    Le port du client.
+     * @param donnees Le message encodé à envoyer.
+     */
+    protected void envoyerDonnees(InetAddress address, int port, MessageEncode donnees) {
+        emission.soumettre(new InetSocketAddress(address, port), donnees, null);
+    }
+
+    /**
+     * Envoie un datagramme sur le socket ; exécutée par les threads d'émission.
+     *
+     * @param client  Le destinataire.
+     * @param donnees Le message encodé.
+     * @throws IOException Si l'envoi échoue.
+     */
+    private void emettre(InetSocketAddress client, MessageEncode donnees) throws IOException {
+        socket.send(donnees.paquet(client.getAddress(), client.getPort()));
+        System.out.println("Response sent to " + client);
+    }
+
+    /**
+     * Retourne la clé sous laquelle un message diffusé peut être remplacé par un plus récent, ou écarté,
+     * dans la file d'un client qui ne suit pas : les mises à jour d'un lot. Les fins d'enchère, débuts de vente
+     * et avis personnels n'ont pas de clé et sont toujours envoyés.
+     *
+     * @param message Le message diffusé.
+     * @return La clé de regroupement, ou null.
+     */
+    private static String cleRegroupement(Message message) {
+        if (message instanceof PrixMisAJour prix) {
+            return "prix:" + prix.getCarId();
+        }
+        if (message instanceof MiseAJour miseAJour && !(message instanceof FinEnchere)) {
+            return "lot:" + miseAJour.getProduit().getCarId();
+        }
+        return null;
+    }
+
     /**
      * Diffuse un message à tous les clients connectés.
+     * Le message est encodé une seule fois puis le même contenu est envoyé à chaque client,
+     * ou une seule fois au groupe multicast s'il est activé.
      *
      * @param message Le message à diffuser.
      */
     public void broadcastMessage(Message message) {
-        for (Map.Entry<InetAddress, Integer> client : connectedClients.entrySet()) {
-            envoyerMessage(client.getKey(), client.getValue(), message);
+        MessageEncode donnees;
+        try {
+            donnees = MessageEncode.de(codec, message);
+        } catch (IOException e) {
+            System.err.println("Error encoding broadcast: " + e.getMessage());
+            return;
+        }
+        String cle = cleRegroupement(message);
+        if (groupe != null) {
+            emission.soumettre(groupe.getAdresse(), donnees, cle);
+            return;
+        }
+        for (InetSocketAddress client : connectedClients.keySet()) {
+            emission.soumettre(client, donnees, cle);
+        }
+    }
+
+    /**
+     * Diffuse un message au catalogue d'une vente (tous les clients connectés pour la vente par défaut, ses abonnés
+     * pour les autres ventes) et aux clients qui surveillent un lot. Le message est encodé une seule fois et
+     * chaque client ne le reçoit qu'une fois. Si le multicast est activé, le catalogue de la vente par défaut
+     * reçoit un unique datagramme envoyé au groupe, que tous les clients ont rejoint. Le message est seulement déposé
+     * dans la file d'émission de chaque destinataire : le thread appelant n'attend pas le socket.
+     *
+     * @param vente   L'identifiant de la vente, ou null pour ne pas diffuser au catalogue.
+     * @param carId   L'identifiant du lot, ou null pour ne pas diffuser aux clients qui le surveillent.
+     * @param message Le message à diffuser.
+     */
+    public void diffuser(String vente, String carId, Message message) {
+        Set<InetSocketAddress> lot = carId == null ? Set.of() : surveillants.getOrDefault(carId, Set.of());
+        Vente cible = vente == null ? null : livre.vente(vente);
+        boolean tous = vente != null && (cible == null || cible.isParDefaut());
+        if (!tous && lot.isEmpty() && (cible == null || cible.getAbonnes().isEmpty())) {
+            return; // Personne à prévenir : le message n'est pas encodé
+        }
+        MessageEncode donnees;
+        try {
+            donnees = MessageEncode.de(codec, message);
+        } catch (IOException e) {
+            System.err.println("Error encoding broadcast: " + e.getMessage());
+            return;
+        }
+        String cle = cleRegroupement(message);
+        if (tous && groupe != null) {
+            emission.soumettre(groupe.getAdresse(), donnees, cle);
+            return;
+        }
+        if (tous) {
+            for (InetSocketAddress client : connectedClients.keySet()) {
+                emission.soumettre(client, donnees, cle);
+            }
+            for (InetSocketAddress surveillant : lot) {
+                if (!connectedClients.containsKey(surveillant)) {
+                    emission.soumettre(surveillant, donnees, cle);
+                }
+            }
+            return;
+        }
+        Set<InetSocketAddress> destinataires = new HashSet<>(lot);
+        if (cible != null) {
+            destinataires.addAll(cible.getAbonnes());
+        }
+        for (InetSocketAddress destinataire : destinataires) {
+            emission.soumettre(destinataire, donnees, cle);
         }
     }
 
+    /**
+     * Ajoute des lots à la liste de surveillance d'un client, ou les en retire.
+     *
+     * @param carIds        Les identifiants des lots.
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort    Le port du client.
+     * @param surveiller    {@code true} pour surveiller les lots, {@code false} pour ne plus les surveiller.
+     * @throws IllegalArgumentException Si des lots à surveiller ne sont pas en vente ; les autres lots sont surveillés.
+     */
+    public void surveillerLots(List<String> carIds, InetAddress clientAddress, int clientPort, boolean surveiller) {
+        InetSocketAddress client = new InetSocketAddress(clientAddress, clientPort);
+        List<String> indisponibles = new ArrayList<>();
+        for (String carId : carIds) {
+            if (!surveiller) {
+                Set<InetSocketAddress> clients = surveillants.get(carId);
+                if (clients != null) {
+                    clients.remove(client);
+                }
+            } else if (livre.estOuvert(carId)) {
+                surveillants.computeIfAbsent(carId, id -> ConcurrentHashMap.newKeySet()).add(client);
+            } else {
+                indisponibles.add(carId);
+            }
+        }
+        if (!indisponibles.isEmpty()) {
+            throw new IllegalArgumentException("Produits non disponibles pour les encheres: " + indisponibles);
+        }
+    }
 
     /**
-     * Ajoute un nouveau produit à la base de données.
+     * Abonne un client à une vente, ou l'en désabonne.
      *
-     * @param produit Le produit à ajouter.
-     * @throws IllegalArgumentException Si le produit existe déjà ou si une erreur survient dans la base de données.
+     * @param vente         L'identifiant de la vente.
+     * @param clientAddress L'adresse IP du client.
+     * @param clientPort    Le port du client.
+     * @param suivre        {@code true} pour abonner le client, {@code false} pour le désabonner.
+     * @throws IllegalArgumentException Si la vente n'existe pas.
      */
-    public void ajouterProduit(Produit produit) {
+    public void suivreVente(String vente, InetAddress clientAddress, int clientPort, boolean suivre) {
+        Vente cible = livre.vente(vente);
+        if (cible == null) {
+            throw new IllegalArgumentException("La vente " + Vente.normaliser(vente) + " n'existe pas");
+        }
+        InetSocketAddress client = new InetSocketAddress(clientAddress, clientPort);
+        if (suivre) {
+            cible.getAbonnes().add(client);
+        } else {
+            cible.getAbonnes().remove(client);
+        }
+    }
+
+    /**
+     * Encode la réponse à un message traité. Les réponses à {@link RecupererProduits} réutilisent
+     * le catalogue déjà encodé tant que les produits n'ont pas changé dans le livre des enchères :
+     * seul l'identifiant de requête est modifié, au format binaire comme en sérialisation Java
+     * (voir {@link MessageEncode#reutilisable(CodecMessage, Message)}) ; à défaut, seule la liste des produits est réutilisée.
+     *
+     * @param message Le message traité.
+     * @return La réponse encodée.
+     * @throws IOException Si le message ne peut pas être encodé.
+     */
+    @Override
+    protected MessageEncode encoderReponse(Message message) throws IOException {
+        if (message instanceof RecupererProduits && message.isSucces()) {
+            Catalogue courant = catalogueCourant();
+            if (courant.reponse().estReutilisable()) {
+                return courant.reponse().avecIdRequete(message.getIdRequete());
+            }
+            RecupererProduits reponse = new RecupererProduits(null);
+            reponse.getProduits().addAll(courant.produits());
+            reponse.setSucces(true);
+            reponse.setIdRequete(message.getIdRequete());
+            return MessageEncode.de(codec, reponse);
+        }
+        return super.encoderReponse(message);
+    }
+
+    /**
+     * Retourne le catalogue en cache, en le reconstruisant si le livre des enchères a changé depuis sa création.
+     *
+     * @return Le catalogue à jour.
+     * @throws IOException Si la réponse ne peut pas être encodée.
+     */
+    private Catalogue catalogueCourant() throws IOException {
+        Catalogue courant = catalogue;
+        long version = livre.getModifications();
+        if (courant == null || courant.version() != version) {
+            List<Produit> produits = List.copyOf(livre.produitsActifs());
+            RecupererProduits reponse = new RecupererProduits(null);
+            reponse.getProduits().addAll(produits);
+            reponse.setSucces(true);
+            courant = new Catalogue(version, produits, MessageEncode.reutilisable(codec, reponse));
+            catalogue = courant;
+        }
+        return courant;
+    }
+
+    /**
+     * Ajoute un nouveau produit à la base de données puis au livre des enchères, dans sa vente, qui est ouverte
+     * au besoin pour le commissaire.
+     *
+     * @param produit     Le produit à ajouter.
+     * @param commissaire Le commissaire qui ajoute le produit.
+     * @throws IllegalArgumentException Si le produit existe déjà, si la vente appartient à un autre commissaire
+     *                                  ou si une erreur survient dans la base de données.
+     */
+    public void ajouterProduit(Produit produit, User commissaire) {
+        Vente vente = livre.ouvrirVente(produit.getVente(), commissaire.getUsername());
+        produit.setVente(vente.getId());
         try {
             if (database.getCar(produit.getCarId()) == null) {
-                database.addCar(produit);
+                attendreEcriture(database.addCar(produit));
+                produit.setVersion(livre.ajouter(produit).getVersion());
+                if (vente.isDemarree()) {
+                    // La vente a démarré pendant l'ajout : le lot reçoit son échéance comme les autres lots de la vente
+                    expirations.planifier(produit.getCarId(), vente.getDebutMillis() + produit.getDureeEnchereSecondes() * 1000L);
+                }
             } else {
                 throw new IllegalArgumentException("Produit deja existant");
             }
@@ -198,27 +682,54 @@ public class ServeurEnchere extends Serveur {
 
     /**
      * Permet à un utilisateur de placer une enchère sur un produit.
+     * L'offre est validée et appliquée dans le livre des enchères ; son enregistrement dans la base de données est différé.
      *
      * @param produit Le produit sur lequel enchérir avec les informations mises à jour.
      * @return Le produit mis à jour après l'enchère.
-     * @throws IllegalArgumentException Si une erreur survient dans la base de données.
+     * @throws IllegalArgumentException Si le produit n'est pas disponible ou si le montant est insuffisant.
      */
     public Produit encherir(Produit produit) {
-        try {
-            database.addBid(produit.getCarId(), produit.getUserAcheteur(), produit.getPrixCourant());
-            return database.getCar(produit.getCarId());
-        } catch (SQLException e) {
-            throw new IllegalArgumentException("Erreur survenu dans la data base " + e.getMessage());
+        Produit resultat = livre.encherir(produit.getCarId(), produit.getUserAcheteur(), produit.getPrixCourant());
+        retenirEncherisseur(produit);
+        return resultat;
+    }
+
+    /**
+     * Confie au livre des enchères l'enchère maximale d'un utilisateur, résolue en mémoire face au maximum du meneur.
+     *
+     * @param produit Le produit visé ; son prix courant porte le maximum et son acheteur l'utilisateur.
+     * @return Le produit après résolution.
+     * @throws IllegalArgumentException Si le produit n'est pas disponible ou si le maximum est insuffisant.
+     */
+    public Produit encherirMax(Produit produit) {
+        Produit resultat = livre.encherirMax(produit.getCarId(), produit.getUserAcheteur(), produit.getPrixCourant());
+        retenirEncherisseur(produit);
+        return resultat;
+    }
+
+    /**
+     * Retient l'auteur d'une offre acceptée pour le prévenir de l'issue de l'enchère du lot.
+     *
+     * @param produit Le lot visé ; son acheteur est l'auteur de l'offre.
+     */
+    private void retenirEncherisseur(Produit produit) {
+        encherisseurs.computeIfAbsent(produit.getCarId(), id -> ConcurrentHashMap.newKeySet()).add(produit.getUserAcheteur());
+        if (!livre.estOuvert(produit.getCarId())) {
+            encherisseurs.remove(produit.getCarId()); // Le lot a été clos entre-temps
         }
     }
 
     /**
-     * Récupère la liste de tous les produits disponibles dans la base de données.
+     * Récupère la liste de tous les produits disponibles dans le livre des enchères.
      *
      * @return Une liste contenant tous les produits.
      */
     public List<Produit> recupererTousLesProduits() {
-        return database.getAllCars();
+        try {
+            return catalogueCourant().produits();
+        } catch (IOException e) {
+            return livre.produitsActifs();
+        }
     }
 
     /**
@@ -247,33 +758,72 @@ public class ServeurEnchere extends Serveur {
     }
 
     /**
-     * Vérifie si des produits sont arrivés à expiration et met à jour leur disponibilité.
-     * Diffuse un message de fin d'enchère pour les produits expirés.
+     * Retourne la date de début d'une vente.
+     *
+     * @param vente L'identifiant de la vente (null : vente par défaut).
+     * @return La date de début, ou null si la vente n'existe pas ou n'a pas commencé.
      */
-    protected void verifierExpirationProduit() {
-        try {
-            while (running) {
-                if (getDebutEnchere() != null) {
-                    LocalDateTime now = LocalDateTime.now();
-                    long elapsed = Duration.between(getDebutEnchere(), now).toSeconds();
-                    for (Produit produit : database.getAllCars()) {
-                        if (elapsed > produit.getDureeEnchereSecondes()) {
-                            produit.setDisponible(false);
-                            try {
-                                database.updateCar(produit);
-                                broadcastMessage(new FinEnchere(produit));
-                                System.out.println(now + " le produit suivant n'est plus disponible " + produit);
-                            } catch (SQLException e) {
-                                System.out.println("echec de la mise a jour du produit dans la data base: " + e.getMessage());
-                            }
-                        }
-                    }
+    public LocalDateTime getDebutEnchere(String vente) {
+        Vente cible = livre.vente(vente);
+        if (cible == null || !cible.isDemarree()) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(cible.getDebutMillis()), ZoneId.systemDefault());
+    }
+
+    /**
+     * Démarre une vente, la journalise et planifie la fin de chacun de ses lots à l'échéance de sa durée d'enchère.
+     * Un nouveau démarrage replanifie les échéances de la vente à partir de la nouvelle date de début.
+     *
+     * @param vente       L'identifiant de la vente (null : vente par défaut).
+     * @param commissaire Le commissaire qui démarre la vente.
+     * @throws IllegalArgumentException Si la vente appartient à un autre commissaire ou si son début ne peut pas être journalisé.
+     */
+    public void demarrerVente(String vente, User commissaire) {
+        long debut = livre.demarrerVente(vente, commissaire.getUsername());
+        planifierExpirations(vente, debut);
+    }
+
+    /**
+     * Planifie la fin de chaque lot actif d'une vente à l'échéance de sa durée d'enchère.
+     * Toutes les échéances partagent le même planificateur, mais chaque lot est clos sous son propre verrou :
+     * les ventes ne se bloquent pas entre elles.
+     *
+     * @param vente L'identifiant de la vente.
+     * @param debut La date de début de la vente, en millisecondes depuis l'époque.
+     */
+    private void planifierExpirations(String vente, long debut) {
+        for (Produit produit : livre.produitsActifs(vente)) {
+            expirations.planifier(produit.getCarId(), debut + produit.getDureeEnchereSecondes() * 1000L);
+        }
+    }
+
+    /**
+     * Clôt un lot dont l'échéance est atteinte, diffuse un message de fin d'enchère puis envoie à chaque
+     * enchérisseur du lot un avis personnel : lot remporté pour le gagnant, perdu pour les autres.
+     * Après un redémarrage, seuls le gagnant et les enchérisseurs suivants sont connus.
+     *
+     * @param carId L'identifiant du lot expiré.
+     */
+    protected void expirerProduit(String carId) {
+        // La mise à jour de la base de données est différée
+        Produit clos = livre.cloturer(carId);
+        Set<String> participants = encherisseurs.remove(carId);
+        if (clos != null) {
+            diffuserFinEnchere(new FinEnchere(clos));
+            surveillants.remove(carId);
+            String gagnant = clos.getUserAcheteur();
+            if (gagnant != null && !gagnant.isEmpty()) {
+                envoyerAvis(gagnant, new AvisEnchere(AvisEnchere.Type.GAGNE, clos));
+            }
+            if (participants != null) {
+                participants.remove(gagnant);
+                for (String perdant : participants) {
+                    envoyerAvis(perdant, new AvisEnchere(AvisEnchere.Type.PERDU, clos));
                 }
-                Thread.sleep(2000);
             }
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            System.out.println(LocalDateTime.now() + " le produit suivant n'est plus disponible " + clos);
         }
     }
 
-}
\ No newline at end of file
+}
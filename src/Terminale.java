@@ -125,6 +125,7 @@ public class Terminale {
             }
             user.ecouterMiseAJour(new PrintCallback());
             user.ecouterDebutEnchere(new PrintCallback());
+            user.ecouterAvis(new PrintCallback());
             usermenu(scanner, user);
         }else{
             System.err.println("connexion echouée");
@@ -152,9 +153,9 @@ public class Terminale {
         System.out.print("Entrez votre description : ");
         String description = scanner.nextLine();
         System.out.print("Entrez le prix de départ : ");
-        double price = scanner.nextDouble();
+        long price = Montant.depuisTexte(scanner.next());
         System.out.print("Entrez l'incrément minimal : ");
-        int minIncrement = scanner.nextInt();
+        long minIncrement = Montant.depuisTexte(scanner.next());
         System.out.print("Entrez la durée de l'enchere en seconde: ");
         int dureeEnchere = scanner.nextInt();
         AjoutProduit message = user.ajouterProduit(emailVendeur, carId, description, price, minIncrement, dureeEnchere);
@@ -166,11 +167,20 @@ public class Terminale {
         System.out.print("\nID de l'enchère : ");
         String auctionId = scanner.nextLine();
         System.out.print("Votre offre : ");
-        double newPrice = scanner.nextDouble();
+        long newPrice = Montant.depuisTexte(scanner.next());
         Encherir message = user.encherir(auctionId, newPrice);
         System.out.println(message);
     }
 
+    private static void PlacerEnchereMaximale(Scanner scanner, Utilisateur user) {
+        System.out.print("\nID de l'enchère : ");
+        String auctionId = scanner.nextLine();
+        System.out.print("Votre montant maximal : ");
+        long maximum = Montant.depuisTexte(scanner.next());
+        EnchereMaximale message = user.encherirMax(auctionId, maximum);
+        System.out.println(message);
+    }
+
     public static void FaireReclamation(Scanner scanner, Utilisateur user) {
         System.out.print("\nEntrez le carId de la voiture sur laquelle vous avez encherit : ");
         String carId = scanner.nextLine();
@@ -192,8 +202,9 @@ public class Terminale {
             System.out.println("1. placer enchere");
             System.out.println("2. FaireReclamation");
             System.out.println("3: VoirHistorique");
-            System.out.println("4. quitter ");
-            System.out.print("Choisissez une option (1-4): ");
+            System.out.println("4. placer enchere maximale");
+            System.out.println("5. quitter ");
+            System.out.print("Choisissez une option (1-5): ");
 
             int choice = scanner.nextInt();
             scanner.nextLine();  // Consommer la nouvelle ligne après l'input de l'utilisateur
@@ -215,6 +226,10 @@ public class Terminale {
                         FaireDemandeHistorique(scanner, client);
                         break;
                     case 4:
+                        PlacerEnchereMaximale(scanner, client);
+                        break;
+                    case 5:
+                        client.deconnexion();
                         System.out.println("[INFO] Au revoir !");
                         scanner.close();
                         return;
@@ -1,22 +1,61 @@
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import Communication.*;
 
 
 public class Utilisateur extends User {
     protected DatagramSocket socket;
+    protected DatagramChannel canal; // Canal de réception en mode nio (null en mode socket)
+    protected MulticastSocket socketGroupe; // Réception des messages publics du groupe multicast (null s'il est désactivé)
     protected InetAddress serverAddress;
-    protected boolean debutEnchere = false;
-    protected final int SERVER_PORT = 9876;
+    protected final Set<String> ventesDemarrees = ConcurrentHashMap.newKeySet(); // Ventes dont le début est connu, mis à jour par le thread de réception
+    protected final int SERVER_PORT = Configuration.entier("jhal.client.port", 9876); // Port visé : celui du serveur, ou d'un relais placé devant lui
     protected Map<String, Produit> produits;
-    protected ConcurrentLinkedQueue<Message> reponses;
+    protected BlockingQueue<Message> reponses; // Boîte de réception bornée des messages diffusés sans abonné
+    protected final Map<Class<? extends Message>, List<MessageCallback>> abonnes = new ConcurrentHashMap<>();
+    protected final AtomicLong messagesPerdus = new AtomicLong();
+    protected CodecMessage codec = CodecMessage.depuisConfiguration(); // Format d'envoi des messages
+    protected long delaiReponseMillis = Configuration.entierLong("jhal.client.delai", 1000); // Délai d'attente d'une réponse
+    protected volatile String jeton; // Jeton de session délivré par le serveur à la connexion (null avant)
+    protected final Map<Long, CompletableFuture<Message>> requetesEnAttente = new ConcurrentHashMap<>();
+    protected final boolean fiabilite = Configuration.booleen("jhal.fiabilite", false); // Retransmission des requêtes sans réponse
+    protected final int retransmissionsMax = Configuration.entier("jhal.client.retransmissions", 4);
+    protected final EstimateurRTO estimateurRTO = new EstimateurRTO(200, 20, 2000);
+    protected ScheduledExecutorService minuterieRetransmission; // null si la fiabilité est désactivée
+    protected final long periodeBattementMillis = Configuration.entierLong("jhal.client.battement", 10) * 1000; // 0 = pas de battement
+    protected ScheduledExecutorService minuterieBattements; // Signale la présence du client au serveur, null avant la connexion
+    protected final AtomicLong compteurRequetes = new AtomicLong(ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE / 2)); // Départ aléatoire pour éviter les collisions entre clients
 
 
     public boolean isDebutEnchere() {
-        return debutEnchere;
+        return isVenteDemarree(null);
+    }
+
+    /**
+     * Indique si le début d'une vente a été annoncé au client.
+     *
+     * @param vente L'identifiant de la vente (null : vente par défaut).
+     * @return {@code true} si la vente a commencé.
+     */
+    public boolean isVenteDemarree(String vente) {
+        return ventesDemarrees.contains(Vente.normaliser(vente));
     }
 
     public boolean estConnecte() {
@@ -27,9 +66,16 @@ public class Utilisateur extends User {
      * Permet de fermer proprement un socket.
      */
     public void close() {
+        arreterBattements();
+        if (minuterieRetransmission != null) {
+            minuterieRetransmission.shutdownNow();
+        }
         if (estConnecte()) {
             socket.close();
         }
+        if (socketGroupe != null) {
+            socketGroupe.close(); // Quitte le groupe
+        }
     }
 
     public Map<String, Produit> getProduits() {
@@ -48,56 +94,94 @@ public class Utilisateur extends User {
         super(username, motDePasse);
 
         try {
-            socket = new DatagramSocket();  // crée un soocket UDP (attribue un port libre aléatoire à l'utilisateur)
-            reponses = new ConcurrentLinkedQueue<Message>();
-            produits = new HashMap<String, Produit>();
+            if (Configuration.texte("jhal.transport", "socket").equalsIgnoreCase("nio")) {
+                canal = DatagramChannel.open();
+                canal.bind(null);  // attribue un port libre aléatoire à l'utilisateur
+                socket = canal.socket();  // les envois passent par l'adaptateur du canal
+            } else {
+                socket = new DatagramSocket();  // crée un soocket UDP (attribue un port libre aléatoire à l'utilisateur)
+            }
+            reponses = new ArrayBlockingQueue<Message>(Configuration.entier("jhal.client.boite", 256));
+            produits = new ConcurrentHashMap<String, Produit>();
+            if (fiabilite) {
+                minuterieRetransmission = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "retransmission-" + username);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
             serverAddress = InetAddress.getByName(addresseServeur);  // l'utilisateur se prépare à interagir avec un serveur en définissant son adresse IP
             System.out.println(username + " cre avec un port dynamique " + socket.getLocalPort());
 
             startListening();
+            rejoindreGroupe();
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException(e.getMessage());
         }
     }
 
+    /**
+     * Abonne un callback aux mises à jour des produits diffusées par le serveur
+     * ({@link MiseAJour}, {@link FinEnchere} et {@link PrixMisAJour}).
+     *
+     * @param miseAJourCallback Le callback appelé à chaque mise à jour.
+     */
     public void ecouterMiseAJour(MessageCallback miseAJourCallback) {
-        new Thread(() -> {
-            LinkedList<MiseAJour> miseAJourServeur = new LinkedList<>();
-            try {
-                while (estConnecte()) {
-                    filterReponsesByType(MiseAJour.class, miseAJourServeur);
-                    while (!miseAJourServeur.isEmpty()) {
-                        MiseAJour miseAJour = miseAJourServeur.pollFirst();
-                        Produit produit = miseAJour.getProduit();
-                        produits.put(produit.getCarId(), produit);
-                        miseAJourCallback.traiterMessage(miseAJour);
-                    }
-                    Thread.sleep(100);
-                }
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-            }
-        }).start();
+        abonner(MiseAJour.class, miseAJourCallback);
+        abonner(PrixMisAJour.class, miseAJourCallback);
     }
 
+    /**
+     * Abonne un callback à l'annonce du début de l'enchère.
+     *
+     * @param debutEnchereCallback Le callback appelé lorsque l'enchère débute.
+     */
     public void ecouterDebutEnchere(MessageCallback debutEnchereCallback) {
-        new Thread(() -> {
-            LinkedList<DebutEnchere> debutEncheres = new LinkedList<>();
-            try {
-                while (!isDebutEnchere()){
-                    filterReponsesByType(DebutEnchere.class, debutEncheres);
-                    while (!debutEncheres.isEmpty()){
-                        DebutEnchere debutEnchere = debutEncheres.pollFirst();
-                        this.debutEnchere = debutEnchere.isDebutEnchere();
-                        debutEnchereCallback.traiterMessage(debutEnchere);
-                    }
-                    Thread.sleep(75);
-                }
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-            }
-        }).start();
+        abonner(DebutEnchere.class, debutEnchereCallback);
+    }
+
+    /**
+     * Abonne un callback aux avis personnels envoyés par le serveur ({@link AvisEnchere}) :
+     * offre dépassée, lot remporté ou perdu.
+     *
+     * @param avisCallback Le callback appelé à chaque avis.
+     */
+    public void ecouterAvis(MessageCallback avisCallback) {
+        abonner(AvisEnchere.class, avisCallback);
+    }
+
+    /**
+     * Abonne un callback à un type de message diffusé par le serveur.
+     * Le callback reçoit aussi les sous-types du type demandé (par exemple {@link FinEnchere} pour {@link MiseAJour}).
+     * Il est appelé sur le thread de réception : un traitement long doit être confié à un autre thread
+     * (par exemple avec {@code Platform.runLater} dans l'interface graphique).
+     *
+     * @param type     Le type de message.
+     * @param callback Le callback à appeler.
+     */
+    public void abonner(Class<? extends Message> type, MessageCallback callback) {
+        abonnes.computeIfAbsent(type, t -> new CopyOnWriteArrayList<>()).add(callback);
+    }
+
+    /**
+     * Retire un callback précédemment abonné à un type de message.
+     *
+     * @param type     Le type de message.
+     * @param callback Le callback à retirer.
+     */
+    public void desabonner(Class<? extends Message> type, MessageCallback callback) {
+        List<MessageCallback> callbacks = abonnes.get(type);
+        if (callbacks != null) {
+            callbacks.remove(callback);
+        }
+    }
+
+    /**
+     * @return Le nombre de messages diffusés écartés parce que la boîte de réception était pleine.
+     */
+    public long getMessagesPerdus() {
+        return messagesPerdus.get();
     }
 
     /**
@@ -106,12 +190,19 @@ public class Utilisateur extends User {
      * Envoie au serveur les informations d'identification
      */
     public Inscription inscription() {
+        return attendre(inscriptionAsync());
+    }
+
+    /**
+     * Variante asynchrone de {@link #inscription()}.
+     *
+     * @return La future complétée par la réponse du serveur.
+     */
+    public CompletableFuture<Inscription> inscriptionAsync() {
         if (password.isEmpty()) {
             throw new IllegalArgumentException("veuillez entrer un mot de passe");
         }
-        sendMessage(new Inscription(this));
-        Inscription message = filterReponsesByTypeWithRetry(Inscription.class, 10).getLast();
-        return message;
+        return envoyerRequete(new Inscription(this), Inscription.class);
     }
 
     /**
@@ -119,24 +210,95 @@ public class Utilisateur extends User {
      * le message est envoye au serveur.
      */
     public Connexion connexion() {
+        return attendre(connexionAsync());
+    }
+
+    /**
+     * Variante asynchrone de {@link #connexion()}.
+     * En cas de succès, le jeton de session renvoyé par le serveur remplace les identifiants dans les requêtes suivantes.
+     *
+     * @return La future complétée par la réponse du serveur.
+     */
+    public CompletableFuture<Connexion> connexionAsync() {
         if (password.isEmpty()) {
             throw new IllegalArgumentException("veuillez entrer un mot de passe");
         }
-        sendMessage(new Connexion(this));
-        Connexion message = filterReponsesByTypeWithRetry(Connexion.class, 10).getLast();
-        return message;
+        return envoyerRequete(new Connexion(this), Connexion.class).thenApply(message -> {
+            if (message.isSucces()) {
+                jeton = message.getJeton();
+                demarrerBattements();
+            }
+            return message;
+        });
+    }
+
+    /**
+     * Se déconnecte explicitement du serveur : la session est fermée, le client ne reçoit plus aucun message diffusé
+     * et son socket est fermé. Le client est fermé même si le serveur ne répond pas.
+     *
+     * @return La réponse du serveur.
+     * @throws IllegalArgumentException Si le serveur n'a pas répondu dans le délai imparti.
+     */
+    public Deconnexion deconnexion() {
+        arreterBattements();
+        try {
+            return attendre(envoyerRequete(new Deconnexion(this), Deconnexion.class));
+        } finally {
+            jeton = null;
+            close();
+        }
+    }
+
+    /**
+     * Envoie périodiquement un {@link Battement} au serveur pour qu'il garde le client dans la liste des clients
+     * connectés. La période doit rester nettement inférieure au délai d'inactivité du serveur.
+     */
+    protected synchronized void demarrerBattements() {
+        if (periodeBattementMillis <= 0 || minuterieBattements != null) {
+            return;
+        }
+        minuterieBattements = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "battements-" + username);
+            thread.setDaemon(true);
+            return thread;
+        });
+        minuterieBattements.scheduleAtFixedRate(() -> {
+            if (estConnecte()) {
+                // Un battement perdu est sans conséquence : le suivant le remplace
+                envoyerRequete(new Battement(this), Battement.class).exceptionally(erreur -> null);
+            }
+        }, periodeBattementMillis, periodeBattementMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Arrête l'envoi des battements.
+     */
+    protected synchronized void arreterBattements() {
+        if (minuterieBattements != null) {
+            minuterieBattements.shutdownNow();
+            minuterieBattements = null;
+        }
     }
 
     /**
      * Envoie une requete au serveur pour recuperer tous les produits encore actifs de l'enchere.
      */
     public RecupererProduits recupererTousLesProduits() {
-        sendMessage(new RecupererProduits(this));
-        RecupererProduits message =  filterReponsesByTypeWithRetry(RecupererProduits.class, 10).getLast();
-        for (Produit p: message.getProduits()){
-            produits.put(p.getCarId(), p);
-        }
-        return message;
+        return attendre(recupererTousLesProduitsAsync());
+    }
+
+    /**
+     * Variante asynchrone de {@link #recupererTousLesProduits()}.
+     *
+     * @return La future complétée par la réponse du serveur, une fois les produits enregistrés localement.
+     */
+    public CompletableFuture<RecupererProduits> recupererTousLesProduitsAsync() {
+        return envoyerRequete(new RecupererProduits(this), RecupererProduits.class).thenApply(message -> {
+            for (Produit p : message.getProduits()) {
+                produits.put(p.getCarId(), p);
+            }
+            return message;
+        });
     }
 
     /**
@@ -144,11 +306,11 @@ public class Utilisateur extends User {
      *
      * @param carId
      * @param description
-     * @param prixInitial
-     * @param pasEnchere
+     * @param prixInitial en centimes
+     * @param pasEnchere en centimes
      * @param dureeEnchereSecondes
      */
-    public AjoutProduit ajouterProduit(String usernameVendeur, String carId, String description, double prixInitial, int pasEnchere, int dureeEnchereSecondes) {
+    public AjoutProduit ajouterProduit(String usernameVendeur, String carId, String description, long prixInitial, long pasEnchere, int dureeEnchereSecondes) {
         throw new IllegalArgumentException("un utilisateur n'a pas le droit  d'ajouter des produits");
     }
 
@@ -157,22 +319,134 @@ public class Utilisateur extends User {
      * Met à jour son prix courant en notifiant le serveur.
      *
      * @param produit: la voiture sur laquelle placer l'enchere
-     * @param montant: la nouvelle offre
+     * @param montant: la nouvelle offre, en centimes
+     */
+    public Encherir encherir(Produit produit, long montant) throws IllegalArgumentException {
+        return attendre(encherirAsync(produit, montant));
+    }
+
+    public Encherir encherir(String carId, long montant) throws IllegalArgumentException {
+        return this.encherir(produits.get(carId), montant);
+    }
+
+    /**
+     * Variante asynchrone de {@link #encherir(Produit, long)}.
+     * Plusieurs offres peuvent être en cours simultanément : chacune reçoit sa propre réponse.
+     *
+     * @param produit La voiture sur laquelle placer l'enchère.
+     * @param montant La nouvelle offre, en centimes.
+     * @return La future complétée par la réponse du serveur.
      */
-    public Encherir encherir(Produit produit, double montant) throws IllegalArgumentException {
+    public CompletableFuture<Encherir> encherirAsync(Produit produit, long montant) throws IllegalArgumentException {
         if (produit == null||!produit.isDisponible()) {
             throw new IllegalArgumentException("Le produit propose n'existe pas ou n'est plus disponible");
         }
-        if (!debutEnchere) {
+        if (!isVenteDemarree(produit.getVente())) {
             throw new IllegalArgumentException("L'enchere n'a pas encore debute");
         }
-        sendMessage(new Encherir(this, produit.encherir(this, montant)));
-        Encherir message = filterReponsesByTypeWithRetry(Encherir.class, 10).getLast();
-        return message;
+        return envoyerRequete(new Encherir(this, produit.encherir(this, montant)), Encherir.class);
     }
 
-    public Encherir encherir(String carId, double montant) throws IllegalArgumentException {
-        return this.encherir(produits.get(carId), montant);
+    public CompletableFuture<Encherir> encherirAsync(String carId, long montant) throws IllegalArgumentException {
+        return this.encherirAsync(produits.get(carId), montant);
+    }
+
+    /**
+     * Confie au serveur une enchère maximale sur une voiture : le serveur surenchérit automatiquement,
+     * d'un pas d'enchère, face aux offres concurrentes, jusqu'à ce montant.
+     *
+     * @param carId   L'identifiant de la voiture.
+     * @param maximum Le montant maximal, en centimes.
+     * @return La réponse du serveur, avec le prix et le meneur après résolution.
+     */
+    public EnchereMaximale encherirMax(String carId, long maximum) throws IllegalArgumentException {
+        return attendre(encherirMaxAsync(produits.get(carId), maximum));
+    }
+
+    /**
+     * Variante asynchrone de {@link #encherirMax(String, long)}.
+     *
+     * @param produit La voiture visée.
+     * @param maximum Le montant maximal, en centimes.
+     * @return La future complétée par la réponse du serveur.
+     */
+    public CompletableFuture<EnchereMaximale> encherirMaxAsync(Produit produit, long maximum) throws IllegalArgumentException {
+        if (produit == null || !produit.isDisponible()) {
+            throw new IllegalArgumentException("Le produit propose n'existe pas ou n'est plus disponible");
+        }
+        if (!isVenteDemarree(produit.getVente())) {
+            throw new IllegalArgumentException("L'enchere n'a pas encore debute");
+        }
+        return envoyerRequete(new EnchereMaximale(this, produit.encherir(this, maximum)), EnchereMaximale.class);
+    }
+
+    /**
+     * S'abonne à une vente : le client reçoit alors son début, ses nouveaux lots, ses prix et ses fins d'enchère.
+     * La vente par défaut est diffusée à tous les clients connectés, sans abonnement.
+     *
+     * @param vente L'identifiant de la vente.
+     * @return La réponse du serveur, qui indique si la vente a déjà commencé.
+     */
+    public SuivreVente suivreVente(String vente) {
+        return attendre(suivreVenteAsync(vente, true));
+    }
+
+    /**
+     * Se désabonne d'une vente.
+     *
+     * @param vente L'identifiant de la vente.
+     * @return La réponse du serveur.
+     */
+    public SuivreVente quitterVente(String vente) {
+        return attendre(suivreVenteAsync(vente, false));
+    }
+
+    /**
+     * Variante asynchrone de {@link #suivreVente(String)} et {@link #quitterVente(String)}.
+     *
+     * @param vente  L'identifiant de la vente.
+     * @param suivre {@code true} pour s'abonner, {@code false} pour se désabonner.
+     * @return La future complétée par la réponse du serveur.
+     */
+    public CompletableFuture<SuivreVente> suivreVenteAsync(String vente, boolean suivre) {
+        return envoyerRequete(new SuivreVente(this, vente, suivre), SuivreVente.class).thenApply(reponse -> {
+            if (reponse.isSucces() && reponse.isDemarree()) {
+                ventesDemarrees.add(Vente.normaliser(reponse.getVente()));
+            }
+            return reponse;
+        });
+    }
+
+    /**
+     * Ajoute des voitures à la liste de surveillance : le client reçoit les mises à jour de prix de ces voitures.
+     * Une voiture sur laquelle le client enchérit est surveillée automatiquement.
+     *
+     * @param carIds Les identifiants des voitures.
+     * @return La réponse du serveur.
+     */
+    public SurveillerLots surveiller(List<String> carIds) {
+        return attendre(surveillerAsync(carIds, true));
+    }
+
+    /**
+     * Retire des voitures de la liste de surveillance.
+     *
+     * @param carIds Les identifiants des voitures.
+     * @return La réponse du serveur.
+     */
+    public SurveillerLots nePlusSurveiller(List<String> carIds) {
+        return attendre(surveillerAsync(carIds, false));
+    }
+
+    /**
+     * Variante asynchrone de {@link #surveiller(List)} et {@link #nePlusSurveiller(List)}.
+     *
+     * @param carIds     Les identifiants des voitures.
+     * @param surveiller {@code true} pour surveiller les voitures, {@code false} pour ne plus les surveiller.
+     * @return La future complétée par la réponse du serveur.
+     */
+    public CompletableFuture<SurveillerLots> surveillerAsync(List<String> carIds, boolean surveiller) {
+        return envoyerRequete(new SurveillerLots(this, carIds, surveiller), SurveillerLots.class);
     }
 
     /**
@@ -188,24 +462,241 @@ public class Utilisateur extends User {
      * @param carId: identifiant du produit a reclamer
      */
     public Reclamation reclamer(String carId) {
-        sendMessage(new Reclamation(this, carId));
-        Reclamation message = filterReponsesByTypeWithRetry(Reclamation.class, 10).getLast();
-        return message;
+        return attendre(reclamerAsync(carId));
+    }
+
+    /**
+     * Variante asynchrone de {@link #reclamer(String)}.
+     *
+     * @param carId Identifiant du produit à réclamer.
+     * @return La future complétée par la réponse du serveur.
+     */
+    public CompletableFuture<Reclamation> reclamerAsync(String carId) {
+        return envoyerRequete(new Reclamation(this, carId), Reclamation.class);
     }
 
     /**
      * Envoie une demande d'historique au serveur;
      */
     public Historique demanderHistorique() {
-        sendMessage(new Historique(this));
-        Historique message = filterReponsesByTypeWithRetry(Historique.class, 10).getLast();
-        return message;
+        return attendre(demanderHistoriqueAsync());
+    }
+
+    /**
+     * Variante asynchrone de {@link #demanderHistorique()}.
+     *
+     * @return La future complétée par la réponse du serveur.
+     */
+    public CompletableFuture<Historique> demanderHistoriqueAsync() {
+        return envoyerRequete(new Historique(this), Historique.class);
+    }
+
+    /**
+     * Définit le délai d'attente des réponses du serveur.
+     *
+     * @param delaiReponseMillis Le délai en millisecondes au-delà duquel une requête échoue.
+     */
+    public void setDelaiReponse(long delaiReponseMillis) {
+        this.delaiReponseMillis = delaiReponseMillis;
+    }
+
+    /**
+     * Envoie une requête au serveur et enregistre la future qui sera complétée par sa réponse.
+     * La requête reçoit un identifiant unique que le serveur recopie dans sa réponse ; la future est
+     * complétée dès le décodage de cette réponse, ou échoue avec une {@link TimeoutException} après le délai de réponse.
+     * Une fois l'utilisateur connecté, la requête porte le jeton de session à la place de l'auteur,
+     * ce qui évite d'envoyer le mot de passe à chaque message.
+     * Si la fiabilité est activée, la requête est retransmise tant qu'aucune réponse n'est reçue,
+     * la réponse du serveur servant d'acquittement (voir {@link #retransmettre(byte[], CompletableFuture, long, int)}) ;
+     * le délai de réponse est alors allongé pour laisser place à toutes les retransmissions (voir {@link #delaiRetransmissions(long)}).
+     *
+     * @param requete La requête à envoyer.
+     * @param type    Le type de la réponse attendue.
+     * @return La future complétée par la réponse du serveur.
+     */
+    protected <T extends Message> CompletableFuture<T> envoyerRequete(T requete, Class<T> type) {
+        long idRequete = compteurRequetes.incrementAndGet();
+        requete.setIdRequete(idRequete);
+        if (jeton != null && !(requete instanceof Connexion) && !(requete instanceof Inscription)) {
+            requete.setJeton(jeton);
+            requete.setAuteur(null);
+        }
+        long delai = estimateurRTO.getRto();
+        long delaiTotal = minuterieRetransmission != null ? Math.max(delaiReponseMillis, delaiRetransmissions(delai)) : delaiReponseMillis;
+        CompletableFuture<Message> reponse = new CompletableFuture<>();
+        requetesEnAttente.put(idRequete, reponse);
+        reponse.orTimeout(delaiTotal, TimeUnit.MILLISECONDS)
+                .whenComplete((message, erreur) -> requetesEnAttente.remove(idRequete));
+        byte[] donnees = encoder(requete);
+        if (donnees == null) {
+            reponse.completeExceptionally(new IOException("le message n'a pas pu etre encode"));
+            return reponse.thenApply(type::cast);
+        }
+        if (minuterieRetransmission != null) {
+            long debut = System.nanoTime();
+            reponse.thenRun(() -> {
+                // Algorithme de Karn : seule une réponse reçue avant toute retransmission fournit une mesure fiable
+                if ((System.nanoTime() - debut) / 1_000_000 < delai) {
+                    estimateurRTO.echantillon((System.nanoTime() - debut) / 1e6);
+                }
+            });
+            retransmettre(donnees, reponse, delai, 1);
+        }
+        envoyerDonnees(donnees);
+        return reponse.thenApply(type::cast);
+    }
+
+    /**
+     * Calcule le temps nécessaire à toutes les retransmissions d'une requête, attente de la réponse à la dernière
+     * comprise, avec le recul exponentiel du délai de retransmission.
+     *
+     * @param delai Le délai avant la première retransmission, en millisecondes.
+     * @return La durée totale, en millisecondes.
+     */
+    private long delaiRetransmissions(long delai) {
+        long total = 0;
+        for (int tentative = 0; tentative <= retransmissionsMax; tentative++) {
+            total += delai;
+            delai = estimateurRTO.reculer(delai);
+        }
+        return total;
+    }
+
+    /**
+     * Programme la retransmission d'une requête si sa réponse n'est pas reçue avant le délai de retransmission.
+     * Le délai double à chaque tentative (recul exponentiel) ; la requête garde le même identifiant,
+     * ce qui permet au serveur d'écarter les doublons sans la traiter deux fois.
+     *
+     * @param donnees   La requête encodée.
+     * @param reponse   La future de la réponse.
+     * @param delai     Le délai avant la retransmission, en millisecondes.
+     * @param tentative Le numéro de la retransmission.
+     */
+    private void retransmettre(byte[] donnees, CompletableFuture<Message> reponse, long delai, int tentative) {
+        if (tentative > retransmissionsMax) {
+            return;
+        }
+        try {
+            minuterieRetransmission.schedule(() -> {
+                if (!reponse.isDone() && estConnecte()) {
+                    envoyerDonnees(donnees);
+                    retransmettre(donnees, reponse, estimateurRTO.reculer(delai), tentative + 1);
+                }
+            }, delai, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Le client est fermé : plus de retransmission
+        }
+    }
+
+    /**
+     * Attend la réponse d'une requête.
+     *
+     * @param reponse La future de la réponse.
+     * @return La réponse du serveur.
+     * @throws IllegalArgumentException Si le serveur n'a pas répondu dans le délai imparti.
+     */
+    protected <T extends Message> T attendre(CompletableFuture<T> reponse) {
+        try {
+            return reponse.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new IllegalArgumentException("le serveur n'a pas repondu dans le delai imparti");
+            }
+            throw new IllegalArgumentException(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        }
+    }
+
+    /**
+     * Remet un message reçu à son destinataire, sur le thread de réception :
+     * la requête en attente portant le même identifiant, ou, pour un message diffusé par le serveur,
+     * les callbacks abonnés à son type. Un message diffusé sans abonné est déposé dans la boîte de réception.
+     * Un {@link Refus} fait échouer la requête en attente qui porte son identifiant.
+     *
+     * @param message Le message décodé.
+     */
+    protected void recevoir(Message message) {
+        if (message.getIdRequete() != 0) {
+            CompletableFuture<Message> reponse = requetesEnAttente.remove(message.getIdRequete());
+            if (reponse != null && message instanceof Refus) {
+                // Requête refusée sans traitement : serveur surchargé ou débit dépassé
+                reponse.completeExceptionally(new IllegalArgumentException(message.getInfo()));
+            } else if (reponse != null) {
+                reponse.complete(message);
+            }
+            return;
+        }
+        if (appliquer(message) && !distribuer(message)) {
+            deposer(message);
+        }
+    }
+
+    /**
+     * Met à jour l'état local du client à partir d'un message diffusé par le serveur.
+     *
+     * @param message Le message diffusé.
+     * @return {@code false} si le message est périmé et ne doit pas être distribué.
+     */
+    protected boolean appliquer(Message message) {
+        if (message instanceof PrixMisAJour prix) {
+            // Applique le nouveau prix à la copie locale du produit, sauf si la mise à jour est périmée
+            return prix.appliquer(produits.get(prix.getCarId()));
+        }
+        if (message instanceof MiseAJour miseAJour) {
+            Produit produit = miseAJour.getProduit();
+            produits.put(produit.getCarId(), produit);
+        } else if (message instanceof DebutEnchere debut && debut.isDebutEnchere()) {
+            ventesDemarrees.add(Vente.normaliser(debut.getVente()));
+        }
+        return true;
+    }
+
+    /**
+     * Appelle les callbacks abonnés au type du message et à ses super-types.
+     *
+     * @param message Le message diffusé.
+     * @return {@code true} si au moins un callback a reçu le message.
+     */
+    private boolean distribuer(Message message) {
+        boolean distribue = false;
+        for (Class<?> type = message.getClass(); Message.class.isAssignableFrom(type); type = type.getSuperclass()) {
+            List<MessageCallback> callbacks = abonnes.get(type);
+            if (callbacks == null) {
+                continue;
+            }
+            for (MessageCallback callback : callbacks) {
+                distribue = true;
+                try {
+                    callback.traiterMessage(message);
+                } catch (RuntimeException e) {
+                    // Un callback défaillant ne doit pas interrompre la réception
+                    System.err.println(username + " Callback error: " + e.getMessage());
+                }
+            }
+        }
+        return distribue;
+    }
+
+    /**
+     * Dépose un message dans la boîte de réception bornée ; lorsqu'elle est pleine, le message le plus ancien est écarté.
+     *
+     * @param message Le message diffusé.
+     */
+    private void deposer(Message message) {
+        while (!reponses.offer(message)) {
+            if (reponses.poll() != null) {
+                messagesPerdus.incrementAndGet();
+            }
+        }
     }
 
     /**
      * Démarre un thread qui écoute en continue les messages entrants sur le socket UDP tant que le socket n'est pas fermé
      */
     protected void startListening() {
+        if (canal != null) {
+            new Thread(this::ecouterCanal).start();
+            return;
+        }
         //Lance un nouveau Thread, cela permet de ne pas bloquer le thread principal de l'application.
         new Thread(() -> {
             while (!socket.isClosed()) {
@@ -215,11 +706,9 @@ public class Utilisateur extends User {
                     DatagramPacket receivePacket = new DatagramPacket(receiveData, receiveData.length);
                     socket.receive(receivePacket);
 
-                    //Désérialisation du message (données reçues converties en objet Message
-                    ByteArrayInputStream bais = new ByteArrayInputStream(receivePacket.getData(), 0, receivePacket.getLength());
-                    ObjectInputStream ois = new ObjectInputStream(bais);
-                    Message msg = (Message) ois.readObject();
-                    reponses.add(msg);
+                    //Décodage du message (données reçues converties en objet Message), le format est reconnu automatiquement
+                    Message msg = CodecMessage.decoderAuto(ByteBuffer.wrap(receivePacket.getData(), 0, receivePacket.getLength()));
+                    recevoir(msg);
                 } catch (Exception e) {
                     if (!socket.isClosed()) {
                         System.err.println(username + " Receiving error: " + e.getMessage());
@@ -229,51 +718,92 @@ public class Utilisateur extends User {
         }).start();
     }
 
-    public <T extends Message> List<T> filterReponsesByTypeWithRetry(Class<T> type, int retry) {
-        List<T> filtered = new ArrayList<>();
-        for (int i=0; i<retry; i++){
-            filterReponsesByType(type, filtered);
-            try {
-                if (!filtered.isEmpty()){
-                    break;
-                } else{
-                    Thread.sleep(100);
+    /**
+     * Rejoint le groupe multicast des messages publics s'il est configuré, et démarre un thread qui en reçoit
+     * les messages. Les réponses du serveur continuent d'arriver sur le socket unicast. Si le groupe ne peut pas
+     * être rejoint, l'erreur est signalée et le client ne reçoit plus que les messages unicast.
+     */
+    protected void rejoindreGroupe() {
+        GroupeMulticast groupe = GroupeMulticast.depuisConfiguration();
+        if (groupe == null) {
+            return;
+        }
+        try {
+            socketGroupe = groupe.rejoindre();
+        } catch (IOException e) {
+            System.err.println(username + " Impossible de rejoindre " + groupe + ": " + e.getMessage());
+            return;
+        }
+        new Thread(() -> {
+            byte[] receiveData = new byte[8192];
+            while (!socketGroupe.isClosed()) {
+                try {
+                    DatagramPacket receivePacket = new DatagramPacket(receiveData, receiveData.length);
+                    socketGroupe.receive(receivePacket);
+                    recevoir(CodecMessage.decoderAuto(ByteBuffer.wrap(receivePacket.getData(), 0, receivePacket.getLength())));
+                } catch (Exception e) {
+                    if (!socketGroupe.isClosed()) {
+                        System.err.println(username + " Receiving error: " + e.getMessage());
+                    }
                 }
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
             }
-        }
-        return filtered;
+        }).start();
     }
 
-    // Generic function to filter messages by type
-    protected <T extends Message> void filterReponsesByType(Class<T> type, List<T> filtered) {
-        Iterator<Message> iterator = reponses.iterator();
-        while (iterator.hasNext()) {
-            Message message = iterator.next();
-            if (type.isInstance(message)) {
-                filtered.add(type.cast(message));
-                iterator.remove();
+    /**
+     * Boucle de réception du mode nio : un unique tampon direct est réutilisé pour chaque datagramme,
+     * le message étant décodé directement depuis le tampon avant la réception suivante.
+     */
+    private void ecouterCanal() {
+        ByteBuffer tampon = ByteBuffer.allocateDirect(PoolTampons.TAILLE_TAMPON);
+        while (canal.isOpen()) {
+            try {
+                tampon.clear();
+                canal.receive(tampon);
+                tampon.flip();
+                recevoir(CodecMessage.decoderAuto(tampon));
+            } catch (Exception e) {
+                if (canal.isOpen()) {
+                    System.err.println(username + " Receiving error: " + e.getMessage());
+                }
             }
         }
     }
 
     /**
-     * Envoie un objet sérialisé de type Message à un serveur via un socket UDP
+     * Envoie un objet encodé de type Message à un serveur via un socket UDP
      *
      * @param message
      */
     protected void sendMessage(Message message) {
-        try {
-            //Stock les données sous forme de tableau de bytes en mémoire
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-
-            //Sérialise l'objet message en format binaire qui pourra être transmis via le réseau
-            ObjectOutputStream oos = new ObjectOutputStream(baos);
-            oos.writeObject(message);
+        byte[] sendData = encoder(message);
+        if (sendData != null) {
+            envoyerDonnees(sendData);
+        }
+    }
 
-            byte[] sendData = baos.toByteArray();
+    /**
+     * Encode l'objet message en format binaire qui pourra être transmis via le réseau.
+     *
+     * @param message Le message à encoder.
+     * @return Le message encodé, ou null si l'encodage a échoué.
+     */
+    protected byte[] encoder(Message message) {
+        try {
+            return codec.encoder(message);
+        } catch (IOException e) {
+            System.err.println(username + " Encoding error: " + e.getMessage());
+            return null;
+        }
+    }
 
+    /**
+     * Envoie un message déjà encodé au serveur.
+     *
+     * @param sendData Le message encodé.
+     */
+    protected void envoyerDonnees(byte[] sendData) {
+        try {
             // DatagramPacket : unité de transmission pour les communications UDP.
             DatagramPacket sendPacket = new DatagramPacket(sendData, sendData.length, serverAddress, SERVER_PORT);    // Send to server's port
 
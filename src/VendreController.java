@@ -1,5 +1,6 @@
 
 import Communication.AjoutProduit;
+import Communication.Montant;
 import javafx.event.ActionEvent;
 import javafx.fxml.Initializable;
 
@@ -96,8 +97,8 @@ public class VendreController implements Initializable {
             String emailVendeur = emailVendeurField.getText();
             String description = descriptionField.getText();
             String carID = carIDField.getText();
-            double prixDepart = Double.parseDouble(prixDepartField.getText());
-            int incrementMin = Integer.parseInt(incrementMinField.getText());
+            long prixDepart = Montant.depuisTexte(prixDepartField.getText());
+            long incrementMin = Montant.depuisTexte(incrementMinField.getText());
             int dureeEnchere = Integer.parseInt(dureeEnchereField.getText());
 
             // Vérifier que tous les champs sont remplis
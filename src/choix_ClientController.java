@@ -121,6 +121,14 @@ public class choix_ClientController implements Initializable {
      */
     @FXML
     private void Deconnexion(ActionEvent event) throws Exception {
+        Utilisateur utilisateur = Main.getUtilisateurConnecte();
+        if (utilisateur != null) {
+            try {
+                utilisateur.deconnexion();
+            } catch (IllegalArgumentException e) {
+                System.err.println("Deconnexion sans reponse du serveur: " + e.getMessage());
+            }
+        }
         Main.setUtilisateurConnecte(null);
         fctUtile.changeToScene(getClass(), event, "menuCo.fxml");
     }